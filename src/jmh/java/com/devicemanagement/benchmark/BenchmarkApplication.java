@@ -0,0 +1,100 @@
+package com.devicemanagement.benchmark;
+
+import com.devicemanagement.DeviceManagementApplication;
+import com.devicemanagement.dto.BulkItemResultDto;
+import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.service.DeviceBulkService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+import java.util.stream.IntStream;
+
+
+/**
+ * This is the helper which starts the application without the web server for the benchmarks, or with it on a free port.
+ * Each benchmark trial gets its own in-memory H2 database, unless an active profile points the datasource elsewhere.
+ * */
+
+final class BenchmarkApplication {
+
+    static final int BRANDS = 20;
+
+    private static final int SEED_CHUNK = 500_000;
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(Map<String, Object> properties) {
+        return start(WebApplicationType.NONE, properties);
+    }
+
+    /**
+     * This method starts the application with its web server on a free port, read it from local.server.port
+     * */
+    static ConfigurableApplicationContext startServer(Map<String, Object> properties) {
+        return start(WebApplicationType.SERVLET, properties);
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType webApplicationType, Map<String, Object> properties) {
+
+        return new SpringApplicationBuilder(DeviceManagementApplication.class)
+                .web(webApplicationType)
+                .properties(Map.of(
+                        "spring.datasource.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "server.port", 0,
+                        "logging.level.root", "WARN"))
+                .properties(properties)
+                .run();
+
+    }
+
+    /**
+     * This method adds devices spread over BRANDS brands
+     *
+     * @return the ids of the added devices
+     */
+    static long[] seed(ConfigurableApplicationContext context, int devices) {
+
+        DeviceBulkService deviceBulkService = context.getBean(DeviceBulkService.class);
+
+        return deviceBulkService.addDevices(IntStream.range(0, devices)
+                        .mapToObj(i -> CreateDeviceDto.builder().name("Device " + i).brand(brand(i)).build())
+                        .iterator())
+                .getResults().stream()
+                .mapToLong(BulkItemResultDto::getId)
+                .toArray();
+
+    }
+
+    static String brand(int i) {
+        return "Brand " + (i % BRANDS);
+    }
+
+    /**
+     * This method fills a persisted H2 file with devices spread over BRANDS brands, with SQL instead of the service.
+     * The file is kept and reused as long as it holds the wanted number of devices
+     *
+     * @param properties the properties pointing the application at the file
+     */
+    static void seedFile(Map<String, Object> properties, int devices) {
+
+        ConfigurableApplicationContext seedContext = start(properties);
+        JdbcTemplate jdbcTemplate = seedContext.getBean(JdbcTemplate.class);
+
+        Long existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM devices", Long.class);
+        if (existing == null || existing != devices) {
+            jdbcTemplate.update("DELETE FROM devices");
+            for (int from = 1; from <= devices; from += SEED_CHUNK) {
+                jdbcTemplate.update("INSERT INTO devices (id, name, brand, creation_time, last_modified, version)"
+                                + " SELECT X, 'Device ' || X, 'Brand ' || MOD(X, ?), LOCALTIMESTAMP, LOCALTIMESTAMP, 0 FROM SYSTEM_RANGE(?, ?)",
+                        BRANDS, from, Math.min(from + SEED_CHUNK - 1, devices));
+            }
+            jdbcTemplate.execute("ALTER SEQUENCE devices_seq RESTART WITH " + (devices + 1));
+        }
+        seedContext.close();
+
+    }
+}
@@ -0,0 +1,112 @@
+package com.devicemanagement.benchmark;
+
+import com.devicemanagement.dto.UpdateDeviceDto;
+import com.devicemanagement.service.DeviceService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This benchmark sweeps the Hikari pool size against the number of concurrent callers, with the perf profile active.
+ * The caches are switched off, so every call of the mix reaches the DeviceRepository:
+ * 6 reads by id, 2 pages of 50 devices and 2 renames out of 10 calls.
+ * Each invocation runs OPERATIONS calls spread over concurrency threads, the knee is the smallest pool size
+ * after which the throughput of a concurrency no longer grows.
+ * */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 6, time = 4)
+@Measurement(iterations = 5, time = 4)
+@Fork(1)
+public class ConnectionPoolBenchmark {
+
+    private static final int OPERATIONS = 1000;
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"10000"})
+    private int devices;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    private int poolSize;
+
+    @Param({"1", "4", "16", "64"})
+    private int concurrency;
+
+    private ConfigurableApplicationContext context;
+
+    private DeviceService deviceService;
+
+    private ExecutorService callers;
+
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Map.of(
+                "spring.profiles.active", "perf",
+                "spring.datasource.hikari.maximum-pool-size", poolSize,
+                "spring.datasource.hikari.minimum-idle", poolSize,
+                "spring.cache.type", "none",
+                "device.brand-cache.max-brands", 0,
+                "device.store.load-on-startup", false));
+        deviceService = context.getBean(DeviceService.class);
+        ids = BenchmarkApplication.seed(context, devices);
+        callers = Executors.newFixedThreadPool(concurrency);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        callers.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public int repositoryMix() throws InterruptedException, ExecutionException {
+
+        List<Future<Integer>> results = new ArrayList<>(concurrency);
+        for (int caller = 0; caller < concurrency; caller++) {
+            int calls = OPERATIONS / concurrency + (caller < OPERATIONS % concurrency ? 1 : 0);
+            results.add(callers.submit(() -> call(calls)));
+        }
+
+        int found = 0;
+        for (Future<Integer> result : results) {
+            found += result.get();
+        }
+        return found;
+
+    }
+
+    private int call(int calls) {
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int found = 0;
+        for (int i = 0; i < calls; i++) {
+            long id = ids[random.nextInt(ids.length)];
+            int kind = random.nextInt(10);
+            if (kind < 6) {
+                found += deviceService.getDeviceById(id).isPresent() ? 1 : 0;
+            } else if (kind < 8) {
+                found += deviceService.getDevicesPage(null, PAGE_SIZE).getDevices().size();
+            } else {
+                found += deviceService.updateDevice(id, UpdateDeviceDto.builder().name("Renamed device " + i).build()) == null ? 0 : 1;
+            }
+        }
+        return found;
+
+    }
+}
@@ -0,0 +1,98 @@
+package com.devicemanagement.benchmark;
+
+import com.devicemanagement.encoding.DeviceColumns;
+import com.devicemanagement.entity.Device;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * This benchmark measures the encoding of a device list in each response format, plain and gzipped as Tomcat does.
+ * The payload size of every format is printed once per trial.
+ * */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DeviceEncodingBenchmark {
+
+    @Param({"100000"})
+    private int size;
+
+    @Param({"json", "cbor", "smile", "columns"})
+    private String format;
+
+    @Param({"none", "gzip"})
+    private String compression;
+
+    private ObjectMapper objectMapper;
+
+    private List<Device> devices;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        // same settings as the JSON converter and as the binary converters of EncodingConfig
+        objectMapper = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json()
+                    .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.json().factory(new CBORFactory())
+                    .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .build();
+            case "smile" -> Jackson2ObjectMapperBuilder.json().factory(new SmileFactory())
+                    .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .build();
+            default -> null;
+        };
+
+        LocalDateTime creationTime = LocalDateTime.of(2024, 1, 1, 0, 0);
+        devices = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            devices.add(Device.builder()
+                    .id((long) i + 1)
+                    .name("Device " + i)
+                    .brand(BenchmarkApplication.brand(i))
+                    .creationTime(creationTime.plusNanos(i * 1_234_567_000L))
+                    .version((long) (i % 3))
+                    .build());
+        }
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        encode(payload);
+        System.out.printf("%n%s %s payload of %d devices: %d bytes%n", format, compression, size, payload.size());
+
+    }
+
+    @Benchmark
+    public void encodeDeviceList() throws IOException {
+        encode(OutputStream.nullOutputStream());
+    }
+
+    private void encode(OutputStream output) throws IOException {
+
+        OutputStream target = compression.equals("gzip") ? new GZIPOutputStream(output, 8192) : output;
+        if (objectMapper == null) {
+            DeviceColumns.write(devices, target);
+        } else {
+            objectMapper.writeValue(target, devices);
+        }
+        target.close();
+
+    }
+}
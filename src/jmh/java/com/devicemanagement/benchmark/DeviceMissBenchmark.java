@@ -0,0 +1,131 @@
+package com.devicemanagement.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This benchmark sends miss-heavy traffic to the web server: updates of ids which have no device, answered with 404.
+ * Run it with -prof gc to see the allocation per miss, which includes the HTTP client of the benchmark.
+ * Every thread keeps one connection, which Tomcat is told not to close after 100 requests, and writes each request
+ * in one packet with TCP_NODELAY, so the time is not spent waiting on delayed acknowledgements.
+ * */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 15, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+public class DeviceMissBenchmark {
+
+    private static final String BODY = "{\"name\":\"Renamed device\"}";
+
+    @Param({"1000"})
+    private int devices;
+
+    private ConfigurableApplicationContext context;
+
+    private int port;
+
+    @State(Scope.Thread)
+    public static class Connection {
+
+        long next;
+
+        Socket socket;
+
+        OutputStream out;
+
+        InputStream in;
+
+        @Setup(Level.Trial)
+        public void open(DeviceMissBenchmark benchmark) throws IOException {
+            socket = new Socket("localhost", benchmark.port);
+            socket.setTcpNoDelay(true);
+            out = socket.getOutputStream();
+            in = new BufferedInputStream(socket.getInputStream());
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.startServer(Map.of("server.tomcat.max-keep-alive-requests", -1));
+        BenchmarkApplication.seed(context, devices);
+        port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int updateMissingDevice(Connection connection) throws IOException {
+
+        // ids above the seeded ones never have a device
+        long id = 1_000_000 + connection.next++ % 1000;
+        connection.out.write(("PUT /api/devices/" + id + " HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                + "Content-Length: " + BODY.length() + "\r\n\r\n" + BODY).getBytes(StandardCharsets.US_ASCII));
+        connection.out.flush();
+
+        return readResponse(connection.in);
+
+    }
+
+    // reads the status line, the headers and a body of Content-Length bytes or of chunks, returns the status
+    private static int readResponse(InputStream in) throws IOException {
+
+        String statusLine = readLine(in);
+        int contentLength = 0;
+        boolean chunked = false;
+        for (String header = readLine(in); !header.isEmpty(); header = readLine(in)) {
+            if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                contentLength = Integer.parseInt(header.substring(15).trim());
+            } else if (header.regionMatches(true, 0, "Transfer-Encoding:", 0, 18)) {
+                chunked = header.substring(18).trim().equalsIgnoreCase("chunked");
+            }
+        }
+
+        if (!chunked) {
+            in.skipNBytes(contentLength);
+        } else {
+            for (int size = Integer.parseInt(readLine(in), 16); size > 0; size = Integer.parseInt(readLine(in), 16)) {
+                in.skipNBytes(size);
+                readLine(in);
+            }
+            readLine(in);
+        }
+        return Integer.parseInt(statusLine.substring(9, 12));
+
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+
+        StringBuilder line = new StringBuilder();
+        for (int c = in.read(); c != '\n'; c = in.read()) {
+            if (c < 0) {
+                throw new IOException("Connection closed");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+
+    }
+}
@@ -0,0 +1,71 @@
+package com.devicemanagement.benchmark;
+
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.repository.DeviceRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This benchmark compares the ways of reading device lists, run it with -prof gc to see the allocation per read.
+ * entity loads managed devices in a read-write transaction, so Hibernate keeps an entity entry and a snapshot of each,
+ * readOnlyEntity loads them in a read-only transaction, which drops the snapshots,
+ * and projection builds them with a constructor expression, so Hibernate does not track them at all.
+ * */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DeviceReadBenchmark {
+
+    @Param({"10000", "100000"})
+    private int devices;
+
+    @Param({"entity", "readOnlyEntity", "projection"})
+    private String read;
+
+    private ConfigurableApplicationContext context;
+
+    private DeviceRepository deviceRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Map.of());
+        deviceRepository = context.getBean(DeviceRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transactionTemplate.setReadOnly(!"entity".equals(read));
+        BenchmarkApplication.seed(context, devices);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Device> allDevices() {
+        return transactionTemplate.execute(status -> "projection".equals(read)
+                ? deviceRepository.findAllProjected()
+                : deviceRepository.findAll());
+    }
+
+    @Benchmark
+    public List<Device> devicesByBrand() {
+        String brand = BenchmarkApplication.brand(next++);
+        return transactionTemplate.execute(status -> "projection".equals(read)
+                ? deviceRepository.findProjectedByBrand(brand)
+                : deviceRepository.findAll((root, query, builder) -> builder.equal(root.get("brand"), brand)));
+    }
+}
@@ -0,0 +1,70 @@
+package com.devicemanagement.benchmark;
+
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.event.DeviceChangedEvent;
+import com.devicemanagement.search.DeviceSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This benchmark measures the text search of DeviceSearchIndex without the DB.
+ * The devices get product like names, as "Galaxy Tab 42 Ultra", drawn from a fixed set of series, numbers and editions.
+ * */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class DeviceSearchIndexBenchmark {
+
+    private static final String[][] SERIES = {
+            {"Apple", "iPhone", "iPad", "iPad Pro", "iPad Air", "MacBook Pro", "MacBook Air", "Watch"},
+            {"Samsung", "Galaxy", "Galaxy Tab", "Galaxy Book", "Galaxy Watch", "Galaxy Z Fold"},
+            {"Google", "Pixel", "Pixel Tablet", "Pixel Watch", "Chromebook"},
+            {"Microsoft", "Surface Pro", "Surface Laptop", "Surface Go"},
+            {"Lenovo", "ThinkPad", "IdeaPad", "Yoga", "Tab"},
+            {"Dell", "XPS", "Latitude", "Inspiron"},
+            {"Xiaomi", "Redmi Note", "Mi Pad", "Poco"},
+            {"Sony", "Xperia", "Xperia Pro"}
+    };
+
+    private static final String[] EDITIONS = {"", "Pro", "Max", "Ultra", "Mini", "Plus", "Lite", "Edge"};
+
+    @Param({"1000000", "10000000"})
+    private int devices;
+
+    @Param({"ipad pro", "galaxy tab ultra", "gal", "pixel 7", "sams z fold 4 mini", "ipad pro 42", "xperia 7 lite"})
+    private String text;
+
+    private DeviceSearchIndex deviceSearchIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        deviceSearchIndex = new DeviceSearchIndex();
+        SplittableRandom random = new SplittableRandom(42);
+
+        for (long id = 1; id <= devices; id++) {
+            String[] brand = SERIES[random.nextInt(SERIES.length)];
+            String series = brand[1 + random.nextInt(brand.length - 1)];
+            String edition = EDITIONS[random.nextInt(EDITIONS.length)];
+            Device device = Device.builder()
+                    .id(id)
+                    .name(series + " " + (1 + random.nextInt(99)) + (edition.isEmpty() ? "" : " " + edition))
+                    .brand(brand[0])
+                    .build();
+            deviceSearchIndex.onDeviceChanged(DeviceChangedEvent.created(device));
+        }
+
+    }
+
+    @Benchmark
+    public DeviceSearchIndex.Hits search() {
+        return deviceSearchIndex.search(text, 0, 20);
+    }
+}
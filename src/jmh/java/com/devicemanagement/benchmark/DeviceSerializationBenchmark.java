@@ -0,0 +1,60 @@
+package com.devicemanagement.benchmark;
+
+import com.devicemanagement.entity.Device;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This benchmark measures the Jackson serialization of device lists, as written by the list endpoints.
+ * */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DeviceSerializationBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+
+    private List<Device> devices;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        // same settings as the ObjectMapper auto-configured by Spring Boot
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        LocalDateTime creationTime = LocalDateTime.now();
+        devices = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            devices.add(Device.builder()
+                    .id((long) i + 1)
+                    .name("Device " + i)
+                    .brand(BenchmarkApplication.brand(i))
+                    .creationTime(creationTime.plusSeconds(i))
+                    .build());
+        }
+
+    }
+
+    @Benchmark
+    public void serializeDeviceList() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), devices);
+    }
+}
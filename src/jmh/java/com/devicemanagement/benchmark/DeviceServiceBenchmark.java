@@ -0,0 +1,81 @@
+package com.devicemanagement.benchmark;
+
+import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.dto.UpdateDeviceDto;
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.service.DeviceService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This benchmark measures the DeviceService operations against an embedded H2.
+ * cacheType=none switches off the device cache, the brand lookup cache and the device store, so every call reaches the DB.
+ * */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DeviceServiceBenchmark {
+
+    @Param({"10000"})
+    private int devices;
+
+    @Param({"caffeine", "none"})
+    private String cacheType;
+
+    private ConfigurableApplicationContext context;
+
+    private DeviceService deviceService;
+
+    private long[] ids;
+
+    @State(Scope.Thread)
+    public static class Counter {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Map.of(
+                "spring.cache.type", cacheType,
+                "device.brand-cache.max-brands", "none".equals(cacheType) ? 0 : 64,
+                "device.store.load-on-startup", !"none".equals(cacheType)));
+        deviceService = context.getBean(DeviceService.class);
+        ids = BenchmarkApplication.seed(context, devices);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Device addDevice(Counter counter) {
+        int i = counter.next++;
+        return deviceService.addDevice(CreateDeviceDto.builder().name("New device " + i).brand(BenchmarkApplication.brand(i)).build());
+    }
+
+    @Benchmark
+    public Optional<Device> getDeviceById(Counter counter) {
+        return deviceService.getDeviceById(ids[counter.next++ % ids.length]);
+    }
+
+    @Benchmark
+    public Device updateDevice(Counter counter) {
+        int i = counter.next++;
+        return deviceService.updateDevice(ids[i % ids.length], UpdateDeviceDto.builder().name("Renamed device " + i).build());
+    }
+
+    @Benchmark
+    public List<Device> searchDeviceByBrand(Counter counter) {
+        return deviceService.searchDeviceByBrand(BenchmarkApplication.brand(counter.next++));
+    }
+}
@@ -0,0 +1,78 @@
+package com.devicemanagement.benchmark;
+
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.store.DeviceStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This benchmark compares the heap taken per device by a list of Device objects, as the DB reads return them,
+ * with the DeviceStore holding the same devices, and measures the reads of the store.
+ * Every Device read from the DB gets its own brand string, so the list is built the same way.
+ * The retained sizes are measured with JOL and printed once per trial, as bytes per device.
+ * */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djdk.attach.allowAttachSelf=true"})
+public class DeviceStoreFootprintBenchmark {
+
+    @Param({"1000000"})
+    private int devices;
+
+    private DeviceStore deviceStore;
+
+    @State(Scope.Thread)
+    public static class Counter {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Device> deviceList = new ArrayList<>(devices);
+        for (int i = 0; i < devices; i++) {
+            LocalDateTime creationTime = now.minusSeconds(i);
+            deviceList.add(Device.builder()
+                    .id(i + 1L)
+                    .name("Device " + i)
+                    .brand(new String(BenchmarkApplication.brand(i)))
+                    .creationTime(creationTime)
+                    .lastModified(creationTime)
+                    .version(0L)
+                    .build());
+        }
+
+        deviceStore = new DeviceStore();
+        deviceStore.startLoading();
+        deviceStore.load(deviceList);
+        deviceStore.finishLoading();
+
+        long listBytes = GraphLayout.parseInstance(deviceList).totalSize();
+        long storeBytes = GraphLayout.parseInstance(deviceStore).totalSize();
+        System.out.printf("%nList<Device> of %d devices: %d bytes, %d bytes per device%n", devices, listBytes, listBytes / devices);
+        System.out.printf("DeviceStore of %d devices: %d bytes, %d bytes per device%n", devices, storeBytes, storeBytes / devices);
+
+    }
+
+    @Benchmark
+    public Optional<Device> findById(Counter counter) {
+        return deviceStore.findById(1L + counter.next++ % devices);
+    }
+
+    @Benchmark
+    public List<Device> findByBrand(Counter counter) {
+        return deviceStore.findByBrand(BenchmarkApplication.brand(counter.next++));
+    }
+}
@@ -0,0 +1,95 @@
+package com.devicemanagement.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.logging.LogMarkers;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This benchmark compares the cost of the log statements of the service, with the level disabled and enabled.
+ * Run it with -prof gc to see the bytes allocated per operation.
+ * The enabled level writes to an appender which only formats the message, so the numbers exclude any I/O.
+ * */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LoggingBenchmark {
+
+    @Param({"INFO", "DEBUG"})
+    private String level;
+
+    private Logger log;
+
+    private Device device;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+
+        AppenderBase<ILoggingEvent> formattingAppender = new AppenderBase<>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                event.getFormattedMessage();
+                event.getKeyValuePairs();
+            }
+        };
+        formattingAppender.setContext(loggerContext);
+        formattingAppender.start();
+
+        log = loggerContext.getLogger(LoggingBenchmark.class);
+        log.setAdditive(false);
+        log.addAppender(formattingAppender);
+        log.setLevel(ch.qos.logback.classic.Level.toLevel(level));
+
+        device = Device.builder()
+                .id(1L)
+                .name("Pixel 8 Pro")
+                .brand("Google")
+                .creationTime(LocalDateTime.now())
+                .build();
+
+    }
+
+    /**
+     * The message of DeviceNotFoundException before it was built lazily
+     */
+    @Benchmark
+    public void concatenatedDebug() {
+        log.debug("Device not found with Id: " + device.getId());
+    }
+
+    /**
+     * The previous updateDevice log, the whole device is rendered by the Lombok toString
+     */
+    @Benchmark
+    public void toStringInfo() {
+        log.info("Device updated successfully: {}", device);
+    }
+
+    @Benchmark
+    public void parameterizedDebug() {
+        log.debug(LogMarkers.UPDATE_DEVICE, "Device not found with Id: {}", device.getId());
+    }
+
+    @Benchmark
+    public void keyValueInfo() {
+        if (log.isInfoEnabled(LogMarkers.UPDATE_DEVICE)) {
+            log.atInfo().addMarker(LogMarkers.UPDATE_DEVICE)
+                    .addKeyValue("id", device.getId())
+                    .addKeyValue("brand", device.getBrand())
+                    .log("Device updated successfully");
+        }
+    }
+}
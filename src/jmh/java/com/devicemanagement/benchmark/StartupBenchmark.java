@@ -0,0 +1,67 @@
+package com.devicemanagement.benchmark;
+
+import com.devicemanagement.dto.DevicePageDto;
+import com.devicemanagement.service.DeviceService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This benchmark measures the time until the application serves its first page from a persisted H2 file.
+ * The file is seeded once per device count under target/startup-benchmark and reused by later runs.
+ * shutdown=immediate closes the DB without storing or compacting it, so the next start has to recover the file.
+ * */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class StartupBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int devices;
+
+    @Param({"clean", "immediate"})
+    private String shutdown;
+
+    private Map<String, Object> properties;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        // the device store is left out, it would load the devices in the background while the first page is read
+        properties = Map.of(
+                "spring.profiles.active", "persistent",
+                "device.data-dir", Path.of("target", "startup-benchmark", String.valueOf(devices)).toAbsolutePath().toString(),
+                "device.store.load-on-startup", false);
+
+        BenchmarkApplication.seedFile(properties, devices);
+
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() {
+
+        if ("immediate".equals(shutdown)) {
+            context.getBean(JdbcTemplate.class).execute("SHUTDOWN IMMEDIATELY");
+        }
+        context.close();
+
+    }
+
+    @Benchmark
+    public DevicePageDto startUntilFirstPage() {
+
+        context = BenchmarkApplication.start(properties);
+        return context.getBean(DeviceService.class).getDevicesPage(null, 100);
+
+    }
+}
@@ -0,0 +1,88 @@
+package com.devicemanagement.benchmark;
+
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.service.DeviceService;
+import com.devicemanagement.store.DeviceStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This benchmark measures the time from the start of the application until a search by brand is answered by the DeviceStore,
+ * with the store loaded from a persisted H2 file or restored from a snapshot of it.
+ * The file is seeded once per device count under target/warm-start-benchmark, the snapshot is written once per trial
+ * by starting and stopping the application. Every iteration rewrites it when it stops, with the same devices.
+ * */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class StoreWarmStartBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int devices;
+
+    @Param({"db", "snapshot"})
+    private String readModel;
+
+    private Map<String, Object> properties;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        Path directory = Path.of("target", "warm-start-benchmark", String.valueOf(devices)).toAbsolutePath();
+        Path snapshotFile = directory.resolve("devices.snapshot");
+
+        properties = Map.of(
+                "spring.profiles.active", "persistent",
+                "device.data-dir", directory.toString(),
+                "device.search.load-on-startup", false,
+                "device.store.snapshot-file", "db".equals(readModel) ? "" : snapshotFile.toString());
+
+        BenchmarkApplication.seedFile(properties, devices);
+        Files.deleteIfExists(snapshotFile);
+
+        // the first start loads the store from the DB and writes the snapshot when it stops
+        if ("snapshot".equals(readModel)) {
+            context = BenchmarkApplication.start(properties);
+            awaitLoaded();
+            context.close();
+        }
+
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Device> startUntilFirstStoreRead() {
+
+        context = BenchmarkApplication.start(properties);
+        awaitLoaded();
+        return context.getBean(DeviceService.class).searchDeviceByBrand(BenchmarkApplication.brand(0));
+
+    }
+
+    private void awaitLoaded() {
+
+        DeviceStore deviceStore = context.getBean(DeviceStore.class);
+        while (!deviceStore.isLoaded()) {
+            Thread.onSpinWait();
+        }
+
+    }
+}
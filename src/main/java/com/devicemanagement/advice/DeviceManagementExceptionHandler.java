@@ -1,80 +1,206 @@
 package com.devicemanagement.advice;
 
 import com.devicemanagement.exception.DeviceNotFoundException;
+import com.devicemanagement.exception.DeviceVersionConflictException;
+import com.devicemanagement.exception.InvalidCursorException;
+import com.devicemanagement.exception.InvalidQueryException;
+import com.devicemanagement.exception.SubmissionQueueFullException;
+import com.devicemanagement.logging.LogMarkers;
+import com.devicemanagement.metrics.DeviceMetrics;
+import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 
 /**
 * This is the Controller Advice class for device-management application which handles excepts thrown by the application
  * It uses @RestControllerAdvice to cover the controller classes
- * The logging is done by @Slf4j
+ * The errors are answered with RFC 7807 problem details. The ones clients can cause in bulk, a missing device,
+ * a full submission queue and an unexpected error, are answered with responses serialized once and shared.
+ * They are shared as bytes, as Spring sets the instance of a ProblemDetail body to the path of the request
+ * The logging is done by @Slf4j, the error events are rate limited by their markers, see RateLimitingTurboFilter
  *
  * @author Lalit Biswal
 * */
 
 @Slf4j
 @RestControllerAdvice
+@AllArgsConstructor
 public class DeviceManagementExceptionHandler {
 
+    private static final ResponseEntity<byte[]> NOT_FOUND = ResponseEntity.status(HttpStatus.NOT_FOUND)
+            .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+            .body(problemJson(HttpStatus.NOT_FOUND, "No device has the requested id"));
+
+    private static final ResponseEntity<byte[]> QUEUE_FULL = ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+            .body(problemJson(HttpStatus.TOO_MANY_REQUESTS, "The device submission queue is full, retry later"));
+
+    private static final ResponseEntity<byte[]> UNEXPECTED_ERROR = ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+            .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+            .body(problemJson(HttpStatus.INTERNAL_SERVER_ERROR, "An unexpected error occurred"));
+
+    private final DeviceMetrics deviceMetrics;
+
     /**
      * Handles validation errors
      * @param ex thrown a MethodArgumentNotValidException when the validation fails
-     * @return a ResponseEntity which contains the errors and status code  400
+     * @return a ResponseEntity which contains the problem with the message of every invalid field and status code  400
     * */
 
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<Map<String, String>> handleInvalidArgumentException(MethodArgumentNotValidException ex) {
+    public ResponseEntity<ProblemDetail> handleInvalidArgumentException(MethodArgumentNotValidException ex) {
 
-        Map<String, String> errorMap = new HashMap<>();
+        deviceMetrics.validationFailed();
+
+        Map<String, String> errorMap = new LinkedHashMap<>();
         ex.getBindingResult().getFieldErrors().forEach(error -> {
             errorMap.put(error.getField(), error.getDefaultMessage());
         });
 
-        log.error("Validation errors for request: {}", errorMap);
-        return new ResponseEntity<>(errorMap, HttpStatus.BAD_REQUEST);
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, "The request has invalid fields");
+        problem.setProperty("errors", errorMap);
+
+        log.warn(LogMarkers.CLIENT_ERROR, "Validation errors for request: {}", errorMap);
+        return ResponseEntity.badRequest().body(problem);
 
     }
 
     /**
      * Handles DeviceNotFoundException exception
      * @param ex thrown a DeviceNotFoundException when there is no device with an id
-     * @return a ResponseEntity which contains the errors and status code 404
+     * @return the shared ResponseEntity which contains the problem and status code 404
      * */
 
     @ResponseStatus(HttpStatus.NOT_FOUND)
     @ExceptionHandler(DeviceNotFoundException.class)
-    public ResponseEntity<Map<String, String>> handleDeviceNotFoundException(DeviceNotFoundException ex) {
+    public ResponseEntity<byte[]> handleDeviceNotFoundException(DeviceNotFoundException ex) {
+
+        deviceMetrics.notFound();
+
+        log.debug(LogMarkers.CLIENT_ERROR, "Not found: {}", ex.getMessage());
+        return NOT_FOUND;
+
+    }
+
+    /**
+     * Handles DeviceVersionConflictException exception
+     * @param ex thrown a DeviceVersionConflictException when a device was changed since the version the client read
+     * @return a ResponseEntity which contains the problem and status code 409
+     * */
 
-        Map<String, String> errorMap = new HashMap<>();
-        errorMap.put("errorMessage : ", ex.getMessage());
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(DeviceVersionConflictException.class)
+    public ResponseEntity<ProblemDetail> handleDeviceVersionConflictException(DeviceVersionConflictException ex) {
 
-        log.error("Not found: {}", ex.getMessage());
-        return new ResponseEntity<>(errorMap, HttpStatus.NOT_FOUND);
+        deviceMetrics.versionConflict();
+
+        log.debug(LogMarkers.CLIENT_ERROR, "Version conflict: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, ex.getMessage()));
+
+    }
+
+    /**
+     * Handles InvalidQueryException exception
+     * @param ex thrown a InvalidQueryException when a device query cannot be run
+     * @return a ResponseEntity which contains the problem and status code 400
+     * */
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidQueryException.class)
+    public ResponseEntity<ProblemDetail> handleInvalidQueryException(InvalidQueryException ex) {
+
+        deviceMetrics.validationFailed();
+
+        log.debug(LogMarkers.CLIENT_ERROR, "Bad query: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage()));
+
+    }
+
+    /**
+     * Handles InvalidCursorException exception
+     * @param ex thrown a InvalidCursorException when a page cursor cannot be decoded
+     * @return a ResponseEntity which contains the problem and status code 400
+     * */
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ProblemDetail> handleInvalidCursorException(InvalidCursorException ex) {
+
+        deviceMetrics.invalidCursor();
+
+        log.debug(LogMarkers.CLIENT_ERROR, "Bad cursor: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage()));
+
+    }
+
+    /**
+     * Handles SubmissionQueueFullException exception
+     * @param ex thrown a SubmissionQueueFullException when the write-behind queue cannot take another device
+     * @return the shared ResponseEntity which contains the problem, a Retry-After header and status code 429
+     * */
+
+    @ExceptionHandler(SubmissionQueueFullException.class)
+    public ResponseEntity<byte[]> handleSubmissionQueueFullException(SubmissionQueueFullException ex) {
+
+        deviceMetrics.queueFull();
+
+        log.debug(LogMarkers.CLIENT_ERROR, "Queue full: {}", ex.getMessage());
+        return QUEUE_FULL;
+
+    }
+
+    /**
+     * Handles HttpMediaTypeNotAcceptableException exception
+     * @param ex thrown a HttpMediaTypeNotAcceptableException when the response cannot be written in a format the client accepts
+     * @return a ResponseEntity without body, as no accepted format can carry it, and status code 406
+     * */
+
+    @ExceptionHandler(HttpMediaTypeNotAcceptableException.class)
+    public ResponseEntity<Void> handleHttpMediaTypeNotAcceptableException(HttpMediaTypeNotAcceptableException ex) {
+
+        deviceMetrics.notAcceptable();
+
+        log.debug(LogMarkers.CLIENT_ERROR, "Not acceptable: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
 
     }
 
     /**
      * Handles all other exception and errors
      * @param ex thrown an Exception when there generic exception or any error
-     * @return a ResponseEntity which contains the errors and status code 500
+     * @return the shared ResponseEntity which contains the problem and status code 500, the message of the error is only logged
      * */
 
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<String> handleGlobalException(Exception ex) {
+    public ResponseEntity<byte[]> handleGlobalException(Exception ex) {
 
-        log.error("Unexpected error occurred: {}", ex.getMessage());
-        return new ResponseEntity<>(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        deviceMetrics.unexpectedError();
+
+        log.error(LogMarkers.UNEXPECTED_ERROR, "Unexpected error occurred: {}", ex.getMessage());
+        return UNEXPECTED_ERROR;
+
+    }
 
+    // the detail must not need JSON escaping, it is only given constants
+    private static byte[] problemJson(HttpStatus status, String detail) {
+        return ("{\"type\":\"about:blank\",\"title\":\"" + status.getReasonPhrase() + "\",\"status\":" + status.value()
+                + ",\"detail\":\"" + detail + "\"}").getBytes(StandardCharsets.UTF_8);
     }
 
 }
@@ -0,0 +1,146 @@
+package com.devicemanagement.cache;
+
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.event.DeviceChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * This is the in-memory brand to devices lookup used by the brand search.
+ * A brand is loaded from the DB on its first search and is then kept up to date from the DeviceChangedEvent,
+ * so searches for hot brands are answered without a query.
+ * The number of brands and the number of devices per brand kept in memory are bounded.
+ * The devices are copied in and out, so a caller changing a device it was given does not change the lookup.
+ */
+
+@Slf4j
+@Component
+public class BrandLookupCache {
+
+    private final int maxBrands;
+
+    private final int maxDevicesPerBrand;
+
+    private final Map<String, Map<Long, Device>> devicesByBrand = new ConcurrentHashMap<>();
+
+    private final Map<Long, String> brandById = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    public BrandLookupCache(@Value("${device.brand-cache.max-brands:64}") int maxBrands,
+                            @Value("${device.brand-cache.max-devices-per-brand:50000}") int maxDevicesPerBrand) {
+        this.maxBrands = maxBrands;
+        this.maxDevicesPerBrand = maxDevicesPerBrand;
+    }
+
+    /**
+     * This method looks up the devices of a brand
+     *
+     * @param brand the brand to look up
+     * @return copies of the devices ordered by id if the brand is loaded, else empty
+     */
+    public Optional<List<Device>> get(String brand) {
+
+        Map<Long, Device> devices = devicesByBrand.get(brand);
+        if (devices == null) {
+            return Optional.empty();
+        }
+        List<Device> copies = new ArrayList<>(devices.size());
+        devices.values().forEach(device -> copies.add(device.copy()));
+        return Optional.of(copies);
+
+    }
+
+    /**
+     * This method returns the number of changes applied so far.
+     * It is read before loading a brand from the DB and handed back to put
+     *
+     * @return the current generation
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * This method loads the devices of a brand read from the DB.
+     * The devices are dropped when a change was applied since the given generation was read,
+     * as the DB result may then be missing that change
+     *
+     * @param brand      the brand which was searched
+     * @param devices    all the devices of the brand
+     * @param generation the value of generation() read before querying the DB
+     */
+    public void put(String brand, List<Device> devices, long generation) {
+
+        if (devices.size() > maxDevicesPerBrand) {
+            return;
+        }
+
+        synchronized (this) {
+
+            if (this.generation.get() != generation || devicesByBrand.size() >= maxBrands || devicesByBrand.containsKey(brand)) {
+                return;
+            }
+
+            Map<Long, Device> byId = new ConcurrentSkipListMap<>();
+            devices.forEach(device -> {
+                byId.put(device.getId(), device.copy());
+                brandById.put(device.getId(), brand);
+            });
+            devicesByBrand.put(brand, byId);
+
+        }
+
+        log.debug("Loaded {} devices of brand {} into the lookup cache", devices.size(), brand);
+
+    }
+
+    /**
+     * This method applies a device change to the loaded brands
+     *
+     * @param event the change which was written to the DB
+     */
+    @Order(DeviceChangedEvent.VIEW_LISTENER_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onDeviceChanged(DeviceChangedEvent event) {
+
+        generation.incrementAndGet();
+
+        String previousBrand = brandById.remove(event.getDeviceId());
+        if (previousBrand != null) {
+            Map<Long, Device> devices = devicesByBrand.get(previousBrand);
+            if (devices != null) {
+                devices.remove(event.getDeviceId());
+            }
+        }
+
+        Device device = event.getDevice();
+        if (device == null) {
+            return;
+        }
+
+        Map<Long, Device> devices = devicesByBrand.get(device.getBrand());
+        if (devices != null) {
+            if (devices.size() >= maxDevicesPerBrand) {
+                devicesByBrand.remove(device.getBrand()).keySet().forEach(brandById::remove);
+                return;
+            }
+            devices.put(device.getId(), device.copy());
+            brandById.put(device.getId(), device.getBrand());
+        }
+
+    }
+}
@@ -0,0 +1,181 @@
+package com.devicemanagement.cache;
+
+import com.devicemanagement.dto.BrandCountDto;
+import com.devicemanagement.dto.CreationDayCountDto;
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.event.DeviceChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+
+/**
+ * This is the in-memory count of devices per brand and per creation day used by the statistics endpoints.
+ * The counts are loaded from the DB by a GROUP BY on their first request and are then kept up to date from the DeviceChangedEvent,
+ * so they are answered without reading the devices table however big it is.
+ */
+
+@Slf4j
+@Component
+public class DeviceCountsCache {
+
+    private static final Comparator<BrandCountDto> BIGGEST_FIRST = Comparator.comparing(BrandCountDto::getCount).reversed()
+            .thenComparing(BrandCountDto::getBrand, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    // null until loaded
+    private Map<String, Long> countByBrand;
+
+    private NavigableMap<LocalDate, Long> countByCreationDay;
+
+    private long generation;
+
+    /**
+     * This method returns the number of devices of every brand
+     *
+     * @return the brands with their number of devices, the biggest first, if the counts are loaded, else empty
+     */
+    public synchronized Optional<List<BrandCountDto>> brandCounts() {
+
+        if (countByBrand == null) {
+            return Optional.empty();
+        }
+
+        List<BrandCountDto> counts = new ArrayList<>(countByBrand.size());
+        countByBrand.forEach((brand, count) -> counts.add(new BrandCountDto(brand, count)));
+        counts.sort(BIGGEST_FIRST);
+        return Optional.of(counts);
+
+    }
+
+    /**
+     * This method returns the number of devices created on every day of a range
+     *
+     * @param from the first day, or null to start at the first day having devices
+     * @param to   the day after the last one, or null to end at the last day having devices
+     * @return the days having devices with their number of devices, in day order, if the counts are loaded, else empty
+     */
+    public synchronized Optional<List<CreationDayCountDto>> creationDayCounts(LocalDate from, LocalDate to) {
+
+        if (countByCreationDay == null) {
+            return Optional.empty();
+        }
+
+        List<CreationDayCountDto> counts = new ArrayList<>();
+        range(countByCreationDay, from, to).forEach((day, count) -> counts.add(new CreationDayCountDto(day, count)));
+        return Optional.of(counts);
+
+    }
+
+    /**
+     * This method returns the number of changes applied so far.
+     * It is read before counting the devices in the DB and handed back to the put methods
+     *
+     * @return the current generation
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * This method loads the brand counts read from the DB.
+     * They are dropped when a change was applied since the given generation was read,
+     * as the DB result may then be missing that change
+     *
+     * @param counts     the number of devices of every brand
+     * @param generation the value of generation() read before querying the DB
+     */
+    public synchronized void putBrandCounts(List<BrandCountDto> counts, long generation) {
+
+        if (this.generation != generation || countByBrand != null) {
+            return;
+        }
+
+        countByBrand = new HashMap<>();
+        counts.forEach(count -> countByBrand.put(count.getBrand(), count.getCount()));
+
+        log.debug("Loaded the device counts of {} brands", counts.size());
+
+    }
+
+    /**
+     * This method loads the creation day counts read from the DB, under the same rule as putBrandCounts
+     *
+     * @param counts     the number of devices created on every day
+     * @param generation the value of generation() read before querying the DB
+     */
+    public synchronized void putCreationDayCounts(List<CreationDayCountDto> counts, long generation) {
+
+        if (this.generation != generation || countByCreationDay != null) {
+            return;
+        }
+
+        countByCreationDay = new TreeMap<>();
+        counts.forEach(count -> countByCreationDay.put(count.getDay(), count.getCount()));
+
+        log.debug("Loaded the device counts of {} creation days", counts.size());
+
+    }
+
+    /**
+     * This method applies a device change to the loaded counts
+     *
+     * @param event the change which was written to the DB
+     */
+    @Order(DeviceChangedEvent.VIEW_LISTENER_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onDeviceChanged(DeviceChangedEvent event) {
+
+        generation++;
+
+        Device previous = event.getPrevious();
+        Device device = event.getDevice();
+
+        if (countByBrand != null) {
+            if (previous != null) {
+                add(countByBrand, previous.getBrand(), -1);
+            }
+            if (device != null) {
+                add(countByBrand, device.getBrand(), 1);
+            }
+        }
+
+        if (countByCreationDay != null) {
+            if (previous != null && previous.getCreationTime() != null) {
+                add(countByCreationDay, previous.getCreationTime().toLocalDate(), -1);
+            }
+            if (device != null && device.getCreationTime() != null) {
+                add(countByCreationDay, device.getCreationTime().toLocalDate(), 1);
+            }
+        }
+
+    }
+
+    private static <K> Map<K, Long> range(NavigableMap<K, Long> counts, K from, K to) {
+
+        if (from != null && to != null) {
+            return counts.subMap(from, true, to, false);
+        }
+        if (from != null) {
+            return counts.tailMap(from, true);
+        }
+        return to != null ? counts.headMap(to, false) : counts;
+
+    }
+
+    private static <K> void add(Map<K, Long> counts, K key, long delta) {
+        // a count dropping to zero is removed, so the brands and days without devices are not listed
+        counts.merge(key, delta, (count, change) -> count + change == 0 ? null : count + change);
+    }
+}
@@ -0,0 +1,149 @@
+package com.devicemanagement.changes;
+
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.entity.DeviceChange;
+import com.devicemanagement.event.DeviceChangedEvent;
+import com.devicemanagement.repository.DeviceChangeRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * This is the writer of the change feed, it appends the device changes to the device_changes table.
+ * The changes are written in the transaction which changes the devices, so a change is in the feed exactly when it is in the DB.
+ * Transactions commit in any order, so a reader must not go past the offsets of the transactions still open:
+ * an offset below them could still appear and would be skipped. readableBefore() gives the offset to stop at.
+ * It also keeps the version of the devices table, which moves on with every commit, for the ETags of the device lists.
+ */
+
+@Component
+public class DeviceChangeLog {
+
+    private final EntityManager entityManager;
+
+    // offsets appended by transactions which have not completed yet
+    private final NavigableSet<Long> openOffsets = new TreeSet<>();
+
+    private CompletableFuture<Void> nextCommit = new CompletableFuture<>();
+
+    // the number of committed changes counted on from the last offset in the DB at startup. Every offset is above that one
+    // and handed out once, so after a restart the version starts beyond every value it had for other content
+    private long version;
+
+    public DeviceChangeLog(EntityManager entityManager, DeviceChangeRepository deviceChangeRepository) {
+        this.entityManager = entityManager;
+        Long lastOffset = deviceChangeRepository.findLastOffsetBefore(Long.MAX_VALUE);
+        this.version = lastOffset == null ? 0L : lastOffset;
+    }
+
+    /**
+     * This method appends changes to the feed, it must be called inside the transaction which made them
+     *
+     * @param events the changes, in the order they were made
+     * @throws IllegalStateException if no transaction is active
+     */
+    public void append(List<DeviceChangedEvent> events) {
+
+        if (events.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Device changes must be appended inside the transaction which made them");
+        }
+
+        LocalDateTime changedAt = LocalDateTime.now();
+        List<Long> offsets = new ArrayList<>(events.size());
+
+        // the offsets are handed out and registered as open together, so a reader never sees a lower offset appear later
+        synchronized (this) {
+            for (DeviceChangedEvent event : events) {
+                DeviceChange change = toChange(event, changedAt);
+                entityManager.persist(change);
+                offsets.add(change.getOffset());
+            }
+            openOffsets.addAll(offsets);
+        }
+
+        // unordered, so it completes after the view listeners of DeviceChangedEvent.VIEW_LISTENER_ORDER
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                completed(offsets, status == STATUS_COMMITTED);
+            }
+        });
+
+    }
+
+    /**
+     * This method returns the offset below which every change is either committed or will never be
+     *
+     * @return the lowest offset of the open transactions, or Long.MAX_VALUE when none is open
+     */
+    public synchronized long readableBefore() {
+        return openOffsets.isEmpty() ? Long.MAX_VALUE : openOffsets.first();
+    }
+
+    /**
+     * This method returns a future completed by the next commit of changes.
+     * It must be taken before reading the feed, so a commit made during the read is not missed
+     *
+     * @return a future shared by every caller until the next commit, it must not be completed by the caller
+     */
+    public synchronized CompletableFuture<Void> nextCommit() {
+        return nextCommit;
+    }
+
+    /**
+     * This method returns the version of the devices table, it changes with every commit of device changes.
+     * A version read before reading devices is never newer than what was read, so it is safe to serve it as their ETag
+     *
+     * @return the current version
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    private void completed(List<Long> offsets, boolean committed) {
+
+        CompletableFuture<Void> committedFuture = null;
+        synchronized (this) {
+            offsets.forEach(openOffsets::remove);
+            if (committed) {
+                version += offsets.size();
+                committedFuture = nextCommit;
+                nextCommit = new CompletableFuture<>();
+            }
+        }
+
+        // completed outside the lock, the waiting readers continue on their own executor
+        if (committedFuture != null) {
+            committedFuture.complete(null);
+        }
+
+    }
+
+    private static DeviceChange toChange(DeviceChangedEvent event, LocalDateTime changedAt) {
+
+        Device device = event.getDevice();
+        return DeviceChange.builder()
+                .type(event.getType())
+                .deviceId(event.getDeviceId())
+                .name(device == null ? null : device.getName())
+                .brand(device == null ? null : device.getBrand())
+                .creationTime(device == null ? null : device.getCreationTime())
+                .lastModified(device == null ? null : device.getLastModified())
+                .version(device == null ? null : device.getVersion())
+                .changedAt(changedAt)
+                .build();
+
+    }
+}
@@ -0,0 +1,134 @@
+package com.devicemanagement.coalescing;
+
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.metrics.DeviceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+
+/**
+ * This is the component which lets concurrent identical reads of the DB share one query and its result.
+ * The first caller of a key runs the read in a read-only transaction, the callers of the same key arriving while it runs
+ * wait for it instead of running their own. The waiting callers hold no transaction, so they hold no DB connection either.
+ * The reads in flight are kept in a ConcurrentHashMap, a caller takes no lock to join or start one.
+ * A failed read is thrown to every caller which waited for it.
+ * The result of a shared read is never handed out itself, every caller is given its own copy of the devices read.
+ */
+
+@Component
+public class DeviceReadCoalescer {
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final DeviceMetrics deviceMetrics;
+
+    private final boolean enabled;
+
+    private final Flights<Long, Optional<Device>> devicesById = new Flights<>("getDeviceById", device -> device.map(Device::copy));
+
+    private final Flights<String, List<Device>> devicesByBrand = new Flights<>("searchDeviceByBrand", DeviceReadCoalescer::copyAll);
+
+    public DeviceReadCoalescer(PlatformTransactionManager transactionManager,
+                               DeviceMetrics deviceMetrics,
+                               @Value("${device.coalescing.enabled:true}") boolean enabled) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.deviceMetrics = deviceMetrics;
+        this.enabled = enabled;
+    }
+
+    /**
+     * This method reads a device, together with the concurrent reads of the same id
+     *
+     * @param id   the unique identifier of the device
+     * @param read reads the device from the DB
+     * @return the device read by this caller or by the one it waited for
+     */
+    public Optional<Device> deviceById(Long id, Supplier<Optional<Device>> read) {
+        return devicesById.read(id, read);
+    }
+
+    /**
+     * This method reads the devices of a brand, together with the concurrent reads of the same brand
+     *
+     * @param brand the brand of the devices
+     * @param read  reads the devices from the DB
+     * @return the devices read by this caller or by the one it waited for
+     */
+    public List<Device> devicesByBrand(String brand, Supplier<List<Device>> read) {
+        return devicesByBrand.read(brand, read);
+    }
+
+    private static List<Device> copyAll(List<Device> devices) {
+        List<Device> copies = new ArrayList<>(devices.size());
+        devices.forEach(device -> copies.add(device.copy()));
+        return copies;
+    }
+
+    private final class Flights<K, V> {
+
+        private final String method;
+
+        // applied to the result of a shared read for each caller, so a caller changing its devices cannot change the others'
+        private final UnaryOperator<V> copy;
+
+        private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+        private Flights(String method, UnaryOperator<V> copy) {
+            this.method = method;
+            this.copy = copy;
+        }
+
+        V read(K key, Supplier<V> read) {
+
+            if (!enabled || key == null) {
+                return readOnlyTransaction.execute(status -> read.get());
+            }
+
+            CompletableFuture<V> flight = new CompletableFuture<>();
+            CompletableFuture<V> running = inFlight.putIfAbsent(key, flight);
+            if (running != null) {
+                deviceMetrics.readCoalesced(method);
+                return copy.apply(await(running));
+            }
+
+            try {
+                V result = readOnlyTransaction.execute(status -> read.get());
+                // removed before it completes, so a caller arriving from now on reads again and sees the later changes
+                inFlight.remove(key, flight);
+                flight.complete(result);
+                return copy.apply(result);
+            } catch (RuntimeException | Error ex) {
+                inFlight.remove(key, flight);
+                flight.completeExceptionally(ex);
+                throw ex;
+            }
+
+        }
+
+        private V await(CompletableFuture<V> running) {
+            try {
+                return running.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (ex.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw ex;
+            }
+        }
+    }
+}
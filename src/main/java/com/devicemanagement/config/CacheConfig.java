@@ -0,0 +1,18 @@
+package com.devicemanagement.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+
+/**
+ * This is the configuration class which enables the Spring cache abstraction.
+ * The caches are Caffeine caches, their size, expiry and statistics are set by spring.cache.caffeine.spec
+ * */
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String DEVICES_CACHE = "devices";
+
+}
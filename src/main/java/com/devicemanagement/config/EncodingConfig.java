@@ -0,0 +1,52 @@
+package com.devicemanagement.config;
+
+import com.devicemanagement.encoding.DeviceColumnsHttpMessageConverter;
+import com.devicemanagement.metrics.TimedBinaryJacksonHttpMessageConverter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+
+/**
+ * This is the configuration class for the response formats offered next to JSON.
+ * The format is picked from the Accept header: CBOR, Smile and, for device lists, the column layout of DeviceColumns.
+ * The binary Jackson formats write the dates as numbers instead of ISO strings, the rest of their mapping is the JSON one
+ * */
+
+@Configuration
+@AllArgsConstructor
+public class EncodingConfig implements WebMvcConfigurer {
+
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+
+        // the converters are added after the JSON one, so JSON stays the format of the clients accepting anything
+        converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+                || converter instanceof MappingJackson2SmileHttpMessageConverter);
+
+        objectMapperBuilder.featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        converters.add(new TimedBinaryJacksonHttpMessageConverter(objectMapperBuilder.factory(new CBORFactory()).build(),
+                MediaType.APPLICATION_CBOR, "cbor", meterRegistry));
+        converters.add(new TimedBinaryJacksonHttpMessageConverter(objectMapperBuilder.factory(new SmileFactory()).build(),
+                APPLICATION_SMILE, "smile", meterRegistry));
+        converters.add(new DeviceColumnsHttpMessageConverter(meterRegistry));
+
+    }
+}
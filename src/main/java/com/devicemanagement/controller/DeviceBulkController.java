@@ -0,0 +1,99 @@
+package com.devicemanagement.controller;
+
+import com.devicemanagement.dto.BulkChangeResultDto;
+import com.devicemanagement.dto.BulkIngestResultDto;
+import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.dto.DeviceFilterDto;
+import com.devicemanagement.dto.RebrandDevicesDto;
+import com.devicemanagement.service.DeviceBulkService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * This class has the REST API endpoints for managing many devices in one request.
+ */
+
+@Tag(name = "Device Bulk APIs")
+@Slf4j
+@RestController
+@RequestMapping("/api/devices/bulk")
+@AllArgsConstructor
+public class DeviceBulkController {
+
+    private final DeviceBulkService deviceBulkService;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * This method is used for adding many devices at once.
+     * The body is either a JSON array or newline delimited JSON of CreateDeviceDto objects, it is read while the devices are written
+     *
+     * @param body the request body
+     * @return a ResponseEntity which contains the outcome of every entry having status code 200 (OK)
+     * @throws IOException if the body is not valid JSON
+     **/
+
+    @Operation(summary = "Add many devices")
+    @PostMapping(value = "/add-devices", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkIngestResultDto> addDevices(InputStream body) throws IOException {
+
+        log.debug("Request to bulk add devices");
+
+        try (MappingIterator<CreateDeviceDto> createDeviceDtos = objectMapper.readerFor(CreateDeviceDto.class).readValues(body)) {
+            BulkIngestResultDto result = deviceBulkService.addDevices(createDeviceDtos);
+            return ResponseEntity.ok(result);
+        }
+
+    }
+
+    /**
+     * This method is used for deleting many devices at once.
+     * The devices are selected by a list of ids, a brand, or both
+     *
+     * @param filter the ids and/or brand of the devices to delete
+     * @return a ResponseEntity which contains the number of deleted devices having status code 200 (OK)
+     **/
+
+    @Operation(summary = "Delete many devices")
+    @PostMapping("/delete-devices")
+    public ResponseEntity<BulkChangeResultDto> deleteDevices(@RequestBody @Valid DeviceFilterDto filter) {
+
+        log.debug("Request to bulk delete devices : {}", filter);
+
+        return ResponseEntity.ok(deviceBulkService.deleteDevices(filter));
+
+    }
+
+    /**
+     * This method is used for moving many devices to a new brand at once.
+     *
+     * @param rebrandDevicesDto the filter selecting the devices and their new brand
+     * @return a ResponseEntity which contains the number of updated devices having status code 200 (OK)
+     **/
+
+    @Operation(summary = "Rebrand many devices")
+    @PostMapping("/rebrand-devices")
+    public ResponseEntity<BulkChangeResultDto> rebrandDevices(@RequestBody @Valid RebrandDevicesDto rebrandDevicesDto) {
+
+        log.debug("Request to bulk rebrand devices : {}", rebrandDevicesDto);
+
+        return ResponseEntity.ok(deviceBulkService.rebrandDevices(rebrandDevicesDto.getFilter(), rebrandDevicesDto.getNewBrand()));
+
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.devicemanagement.controller;
+
+import com.devicemanagement.dto.DeviceChangePageDto;
+import com.devicemanagement.service.DeviceChangeService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * This class has the REST API endpoint of the change feed, which downstream consumers follow instead of re-reading every device.
+ */
+
+@Tag(name = "Device Change Feed APIs")
+@Slf4j
+@RestController
+@RequestMapping("/api/devices/changes")
+@AllArgsConstructor
+public class DeviceChangeController {
+
+    static final int MAX_WAIT_SECONDS = 25;
+
+    private final DeviceChangeService deviceChangeService;
+
+    /**
+     * This method is used to get the device changes following an offset.
+     * Without since it returns the current offset to start from. When there is no change yet the request is held
+     * until one is committed or waitSeconds, at most 25, have passed; the request thread is released meanwhile
+     *
+     * @param since       the nextOffset of the previous batch
+     * @param limit       the number of changes wanted, it is capped to 1000
+     * @param waitSeconds the longest time to wait for a change, 0 to answer at once
+     * @return the changes in offset order and the offset to pass as since for the next ones
+     **/
+    @Operation(summary = "Follow the device changes from an offset")
+    @GetMapping
+    public CompletableFuture<DeviceChangePageDto> getChanges(@RequestParam(required = false) Long since,
+                                                             @RequestParam(defaultValue = "100") int limit,
+                                                             @RequestParam(defaultValue = "0") int waitSeconds) {
+
+        log.debug("Request to get device changes after offset : {}", since);
+
+        Duration wait = Duration.ofSeconds(Math.max(0, Math.min(waitSeconds, MAX_WAIT_SECONDS)));
+        return deviceChangeService.pollChanges(since, limit, wait);
+
+    }
+}
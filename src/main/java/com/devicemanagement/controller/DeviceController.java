@@ -1,24 +1,51 @@
 package com.devicemanagement.controller;
 
+import com.devicemanagement.dto.BrandCountDto;
 import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.dto.CreationDayCountDto;
+import com.devicemanagement.dto.DeviceBatchGetResultDto;
+import com.devicemanagement.dto.DeviceIdsDto;
+import com.devicemanagement.dto.DevicePageDto;
+import com.devicemanagement.dto.DeviceQueryDto;
+import com.devicemanagement.dto.DeviceSearchPageDto;
 import com.devicemanagement.dto.UpdateDeviceDto;
 import com.devicemanagement.entity.Device;
 import com.devicemanagement.service.DeviceService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.PagedModel;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 
 /**
  * This class has the REST API endpoints for managing devices.
  * It provides methods to add, retrieve, update, delete, and search devices.
+ * The reads carry an ETag, a device the one of its version and a device list the one of the devices table version,
+ * so a client sending it back in If-None-Match gets a 304 without the body being read or written again.
  *
  * @author Lalit Biswal
  */
@@ -32,6 +59,8 @@ public class DeviceController {
 
     private final DeviceService deviceService;
 
+    private final ObjectMapper objectMapper;
+
     /**
      * This method is used for adding a new device based on the CreateDeviceDto object.
      *
@@ -44,7 +73,7 @@ public class DeviceController {
     @PostMapping("/add-device")
     public ResponseEntity<Device> addDevice(@RequestBody @Valid CreateDeviceDto createDeviceDto) {
 
-        log.info("Request to add device : {} {}", createDeviceDto.getBrand(), createDeviceDto.getName());
+        log.debug("Request to add device : {} {}", createDeviceDto.getBrand(), createDeviceDto.getName());
 
         Device newDevice = deviceService.addDevice(createDeviceDto);
         return ResponseEntity.ok(newDevice);
@@ -54,6 +83,8 @@ public class DeviceController {
     /**
      * This method is used to get a device details by passing the id of that device
      *
+     * The ETag and Last-Modified of the device are sent, a matching If-None-Match or If-Modified-Since gets a 304 without the device being written
+     *
      * @param id the unique identifier for a device
      * @return a  ResponseEntity containing a devices object if the device is present, else no content will be displayed
      **/
@@ -61,11 +92,27 @@ public class DeviceController {
     @GetMapping("/{id}")
     public ResponseEntity<Device> getDeviceById(@PathVariable Long id) {
 
-        log.info("Request to get device for id: {}", id);
+        log.debug("Request to get device for id: {}", id);
 
         Optional<Device> device = deviceService.getDeviceById(id);
 
-        return device.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.noContent().build());
+        return device.map(DeviceController::conditional).orElseGet(() -> ResponseEntity.noContent().build());
+
+    }
+
+    /**
+     * This method is used to get the details of many devices by their ids in one request
+     *
+     * @param deviceIdsDto the ids of the devices, at most 1000
+     * @return a  ResponseEntity containing one result per id in the order of the ids, the missing devices marked NOT_FOUND
+     **/
+    @Operation(summary = "Get many devices by identifier")
+    @PostMapping("/batch-get")
+    public ResponseEntity<DeviceBatchGetResultDto> getDevicesByIds(@RequestBody @Valid DeviceIdsDto deviceIdsDto) {
+
+        log.debug("Request to get {} devices by id", deviceIdsDto.getIds().size());
+
+        return ResponseEntity.ok(deviceService.getDevicesByIds(deviceIdsDto.getIds()));
 
     }
 
@@ -76,15 +123,116 @@ public class DeviceController {
      **/
     @Operation(summary = "List all devices")
     @GetMapping("/all-devices")
-    public ResponseEntity<List<Device>> getAllDevices() {
+    public ResponseEntity<List<Device>> getAllDevices(ServletWebRequest webRequest) {
+
+        log.debug("Request to get all devices initiated");
 
-        log.info("Request to get all devices initiated");
+        if (notModified(webRequest, deviceService.getDevicesVersion())) {
+            return null;
+        }
 
         List<Device> devices = deviceService.getAllDevices();
         return ResponseEntity.ok(devices);
 
     }
 
+    /**
+     * This method is used to get the device details page by page, ordered by id
+     *
+     * @param cursor the nextCursor of the previous page, not needed for the first page
+     * @param size   the number of devices per page, at most 1000
+     * @return a  ResponseEntity containing the devices of the page and the cursor for the next one
+     **/
+    @Operation(summary = "List devices page by page")
+    @GetMapping("/page")
+    public ResponseEntity<DevicePageDto> getDevicesPage(@RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "100") int size,
+                                                        ServletWebRequest webRequest) {
+
+        log.debug("Request to get devices page after cursor: {}", cursor);
+
+        if (notModified(webRequest, deviceService.getDevicesVersion())) {
+            return null;
+        }
+
+        DevicePageDto page = deviceService.getDevicesPage(cursor, size);
+        return ResponseEntity.ok(page);
+
+    }
+
+    /**
+     * This method is used to stream all device details as a JSON array.
+     * The devices are written while they are read from the DB, so the whole table is never held in memory
+     *
+     * @return a  ResponseEntity whose body writes all the device details
+     **/
+    @Operation(summary = "Stream all devices")
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllDevices(ServletWebRequest webRequest) {
+
+        log.debug("Request to stream all devices initiated");
+
+        if (notModified(webRequest, deviceService.getDevicesVersion())) {
+            return null;
+        }
+
+        // the devices are not flushed one by one, that would send a chunk and end a gzip block per device
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                deviceService.streamAllDevices(device -> {
+                    try {
+                        writer.writeValue(generator, device);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+
+    }
+
+    /**
+     * This method is used to stream all device details as NDJSON, one device per line.
+     * The devices are written while they are read from the DB, and a client can handle each line as soon as it arrives
+     *
+     * @return a  ResponseEntity whose body writes all the device details
+     **/
+    @Operation(summary = "Stream all devices as NDJSON")
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllDevicesAsNdjson(ServletWebRequest webRequest) {
+
+        log.debug("Request to stream all devices as NDJSON initiated");
+
+        if (notModified(webRequest, deviceService.getDevicesVersion())) {
+            return null;
+        }
+
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                deviceService.streamAllDevices(device -> {
+                    try {
+                        writer.writeValue(generator, device);
+                        generator.writeRaw('\n');
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+
+    }
+
 
     /**
      * This method is used to update a device object based on the input from UpdateDeviceDto object. Updating a device can be full or partial
@@ -96,7 +244,7 @@ public class DeviceController {
     @PutMapping("/{id}")
     public ResponseEntity<Device> updateDevice(@PathVariable Long id, @RequestBody UpdateDeviceDto updateDeviceDto) {
 
-        log.info("Request to update device for id: {}", id);
+        log.debug("Request to update device for id: {}", id);
 
         Device updatedDevice = deviceService.updateDevice(id, updateDeviceDto);
         return ResponseEntity.ok(updatedDevice);
@@ -113,7 +261,7 @@ public class DeviceController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteDevice(@PathVariable Long id) {
 
-        log.info("Request to delete device for id: {}", id);
+        log.debug("Request to delete device for id: {}", id);
 
         deviceService.deleteDevice(id);
         return ResponseEntity.ok().build();
@@ -128,12 +276,156 @@ public class DeviceController {
      **/
     @Operation(summary = "Search a device by brand")
     @GetMapping("/search")
-    public ResponseEntity<List<Device>> searchDevicesByBrand(@RequestParam String brand) {
+    public ResponseEntity<List<Device>> searchDevicesByBrand(@RequestParam String brand, ServletWebRequest webRequest) {
+
+        if (notModified(webRequest, deviceService.getDevicesVersion())) {
+            return null;
+        }
 
         List<Device> devices = deviceService.searchDeviceByBrand(brand);
         return ResponseEntity.ok(devices);
 
     }
 
+    /**
+     * This method is used to search the devices by words or word prefixes of their name and brand
+     *
+     * @param q    the search text, as "ipad pro" or "gal"
+     * @param page the page number, starting at 0
+     * @param size the number of devices per page, at most 1000
+     * @return a  ResponseEntity containing the matching devices of the page, best match first
+     **/
+    @Operation(summary = "Search devices by name and brand text")
+    @GetMapping("/search/text")
+    public ResponseEntity<DeviceSearchPageDto> searchDevicesByText(@RequestParam String q,
+                                                                   @RequestParam(defaultValue = "0") int page,
+                                                                   @RequestParam(defaultValue = "20") int size) {
+
+        log.debug("Request to search devices by text: {}", q);
+
+        // the result also changes when the index finishes loading, so it only gets an ETag once the index is complete
+        OptionalLong version = deviceService.getDevicesVersion();
+        DeviceSearchPageDto searchPage = deviceService.searchDevicesByText(q, page, size);
+        if (!searchPage.isComplete() || version.isEmpty()) {
+            return ResponseEntity.ok(searchPage);
+        }
+        return ResponseEntity.ok().eTag(devicesEtag(version.getAsLong())).varyBy(HttpHeaders.ACCEPT).body(searchPage);
+
+    }
+
+    /**
+     * This method is used to query the devices by several criteria, page by page
+     *
+     * @param namePrefix  the start of the device name
+     * @param brand       the brands the devices may have, the parameter can be repeated
+     * @param createdFrom the earliest creation time, inclusive
+     * @param createdTo   the latest creation time, exclusive
+     * @param pageable    the page, size and sort, as page=0&size=100&sort=creationTime,desc
+     * @return a  ResponseEntity containing the matching devices of the page and the page metadata
+     **/
+    @Operation(summary = "Query devices by name prefix, brands and creation time")
+    @GetMapping("/query")
+    public ResponseEntity<PagedModel<Device>> queryDevices(@RequestParam(required = false) String namePrefix,
+                                                           @RequestParam(required = false) List<String> brand,
+                                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+                                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+                                                           @PageableDefault(size = 100) Pageable pageable,
+                                                           ServletWebRequest webRequest) {
+
+        if (notModified(webRequest, deviceService.getDevicesVersion())) {
+            return null;
+        }
+
+        DeviceQueryDto deviceQueryDto = DeviceQueryDto.builder()
+                .namePrefix(namePrefix)
+                .brands(brand)
+                .createdFrom(createdFrom)
+                .createdTo(createdTo)
+                .build();
+
+        log.debug("Request to query devices : {}", deviceQueryDto);
+
+        return ResponseEntity.ok(new PagedModel<>(deviceService.queryDevices(deviceQueryDto, pageable)));
+
+    }
 
+    /**
+     * This method is used to get the number of devices of every brand
+     *
+     * @return a  ResponseEntity containing the brands with their number of devices, the biggest first
+     **/
+    @Operation(summary = "Count devices by brand")
+    @GetMapping("/stats/brands")
+    public ResponseEntity<List<BrandCountDto>> countDevicesByBrand(ServletWebRequest webRequest) {
+
+        log.debug("Request to count devices by brand");
+
+        if (notModified(webRequest, deviceService.getDevicesVersion())) {
+            return null;
+        }
+
+        return ResponseEntity.ok(deviceService.countDevicesByBrand());
+
+    }
+
+    /**
+     * This method is used to get the number of devices created on every day of a range
+     *
+     * @param from the first day, inclusive
+     * @param to   the last day, exclusive
+     * @return a  ResponseEntity containing the days having devices with their number of devices, in day order
+     **/
+    @Operation(summary = "Count devices by creation day")
+    @GetMapping("/stats/creation-days")
+    public ResponseEntity<List<CreationDayCountDto>> countDevicesByCreationDay(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                              ServletWebRequest webRequest) {
+
+        log.debug("Request to count devices by creation day from {} to {}", from, to);
+
+        if (notModified(webRequest, deviceService.getDevicesVersion())) {
+            return null;
+        }
+
+        return ResponseEntity.ok(deviceService.countDevicesByCreationDay(from, to));
+
+    }
+
+    /**
+     * Sends the ETag of the devices table version and tells whether the client already holds the list of that version.
+     * The version is read before the devices, so a change made meanwhile only makes the client read the list again.
+     * Without a version, while the lists may be older than it, no ETag is sent and the list is always read.
+     * The body depends on the Accept header, so caches are told to keep one per Accept
+     */
+    private static boolean notModified(ServletWebRequest webRequest, OptionalLong version) {
+
+        if (webRequest.getResponse() != null) {
+            webRequest.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        return version.isPresent() && webRequest.checkNotModified(devicesEtag(version.getAsLong()));
+
+    }
+
+    // weak, as Tomcat does not gzip a response with a strong ETag, If-None-Match compares weak ETags the same way
+    private static String devicesEtag(long version) {
+        return "W/\"devices-" + version + "\"";
+    }
+
+    // weak as well, the JSON, CBOR and Smile bodies of a device version are the same device but not the same bytes
+    private static String deviceEtag(Device device) {
+        return "W/\"" + device.getId() + "-" + device.getVersion() + "\"";
+    }
+
+    private static ResponseEntity<Device> conditional(Device device) {
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+        if (device.getVersion() != null) {
+            response.eTag(deviceEtag(device));
+        }
+        if (device.getLastModified() != null) {
+            response.lastModified(device.getLastModified().atZone(ZoneId.systemDefault()));
+        }
+        return response.body(device);
+
+    }
 }
@@ -0,0 +1,70 @@
+package com.devicemanagement.controller;
+
+import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.dto.DeviceSubmissionDto;
+import com.devicemanagement.service.DeviceSubmissionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+
+/**
+ * This class has the REST API endpoints for adding devices through the write-behind queue.
+ * A submitted device is accepted at once and persisted shortly after, the client follows it by the submission id.
+ */
+
+@Tag(name = "Device Submission APIs")
+@Slf4j
+@RestController
+@RequestMapping("/api/devices/submissions")
+@AllArgsConstructor
+public class DeviceSubmissionController {
+
+    private final DeviceSubmissionService deviceSubmissionService;
+
+    /**
+     * This method is used for submitting a new device, which is persisted after the response is sent
+     *
+     * @param createDeviceDto the DTO containing information for device to be created
+     * @return a ResponseEntity which contains the queued submission and its location having status code 202 (Accepted),
+     * or status code 429 (Too Many Requests) when the queue is full
+     **/
+    @Operation(summary = "Submit device to be added")
+    @PostMapping
+    public ResponseEntity<DeviceSubmissionDto> submitDevice(@RequestBody @Valid CreateDeviceDto createDeviceDto) {
+
+        log.debug("Request to submit device : {} {}", createDeviceDto.getBrand(), createDeviceDto.getName());
+
+        DeviceSubmissionDto submission = deviceSubmissionService.submitDevice(createDeviceDto);
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(submission.getId()).toUri())
+                .body(submission);
+
+    }
+
+    /**
+     * This method is used to get the state of a submitted device
+     *
+     * @param id the id of the submission
+     * @return a ResponseEntity containing the submission, with the device id once persisted, or status code 404 when it is unknown
+     **/
+    @Operation(summary = "Get submitted device state")
+    @GetMapping("/{id}")
+    public ResponseEntity<DeviceSubmissionDto> getSubmission(@PathVariable String id) {
+
+        log.debug("Request to get submission for id: {}", id);
+
+        return ResponseEntity.of(deviceSubmissionService.getSubmission(id));
+
+    }
+}
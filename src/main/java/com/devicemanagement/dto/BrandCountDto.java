@@ -0,0 +1,21 @@
+package com.devicemanagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+
+/**
+ * This is the dto class for the number of devices of a brand.
+ * */
+
+@Data
+@Builder
+@AllArgsConstructor
+public class BrandCountDto {
+
+    private String brand;
+
+    private Long count;
+
+}
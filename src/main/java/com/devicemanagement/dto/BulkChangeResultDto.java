@@ -0,0 +1,21 @@
+package com.devicemanagement.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+
+/**
+ * This is the dto class for the outcome of a bulk delete or update.
+ * */
+
+@Data
+@Builder
+public class BulkChangeResultDto {
+
+    private int affected;
+
+    private int statements;
+
+    private long elapsedMillis;
+
+}
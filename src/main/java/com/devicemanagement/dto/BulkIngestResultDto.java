@@ -0,0 +1,29 @@
+package com.devicemanagement.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+
+/**
+ * This is the dto class for the outcome of a bulk device ingestion.
+ * */
+
+@Data
+@Builder
+public class BulkIngestResultDto {
+
+    private int received;
+
+    private int created;
+
+    private int failed;
+
+    private long elapsedMillis;
+
+    private long devicesPerSecond;
+
+    private List<BulkItemResultDto> results;
+
+}
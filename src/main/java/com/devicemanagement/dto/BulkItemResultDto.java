@@ -0,0 +1,33 @@
+package com.devicemanagement.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+
+/**
+ * This is the dto class for the outcome of one entry of a bulk request.
+ * The index is the position of the entry in the request.
+ * */
+
+@Data
+@Builder
+public class BulkItemResultDto {
+
+    public enum Status {
+        CREATED,
+        INVALID,
+        // valid, but the batch it was written in failed and was rolled back
+        FAILED
+    }
+
+    private int index;
+
+    private Status status;
+
+    private Long id;
+
+    private List<String> errors;
+
+}
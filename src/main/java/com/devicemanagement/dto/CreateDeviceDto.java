@@ -1,6 +1,7 @@
 package com.devicemanagement.dto;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
 import lombok.Builder;
 
@@ -14,9 +15,11 @@ import lombok.Builder;
 public class CreateDeviceDto {
 
     @NotBlank(message = "Device name is mandatory and cannot be empty or null")
+    @Size(max = 255, message = "Device name cannot be longer than 255 characters")
     private String name;
 
     @NotBlank(message = "Device brand is mandatory and cannot be empty or null")
+    @Size(max = 255, message = "Device brand cannot be longer than 255 characters")
     private String brand;
 
 }
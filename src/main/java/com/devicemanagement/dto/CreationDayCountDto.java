@@ -0,0 +1,23 @@
+package com.devicemanagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+
+/**
+ * This is the dto class for the number of devices created on a day.
+ * */
+
+@Data
+@Builder
+@AllArgsConstructor
+public class CreationDayCountDto {
+
+    private LocalDate day;
+
+    private Long count;
+
+}
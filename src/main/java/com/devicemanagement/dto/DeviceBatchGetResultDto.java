@@ -0,0 +1,23 @@
+package com.devicemanagement.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+
+/**
+ * This is the dto class for the outcome of a batch read, with one result per requested id in request order.
+ * */
+
+@Data
+@Builder
+public class DeviceBatchGetResultDto {
+
+    private List<DeviceBatchItemDto> results;
+
+    private int found;
+
+    private int missing;
+
+}
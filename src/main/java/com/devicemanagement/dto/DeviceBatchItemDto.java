@@ -0,0 +1,28 @@
+package com.devicemanagement.dto;
+
+import com.devicemanagement.entity.Device;
+import lombok.Builder;
+import lombok.Data;
+
+
+/**
+ * This is the dto class for the outcome of one id of a batch read, in the position of the id in the request.
+ * The device is null when there is no device with the id.
+ * */
+
+@Data
+@Builder
+public class DeviceBatchItemDto {
+
+    public enum Status {
+        FOUND,
+        NOT_FOUND
+    }
+
+    private Long id;
+
+    private Status status;
+
+    private Device device;
+
+}
@@ -0,0 +1,25 @@
+package com.devicemanagement.dto;
+
+import com.devicemanagement.entity.DeviceChange;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+
+/**
+ * This is the dto class for a batch of the change feed.
+ * The nextOffset is passed back as since to fetch the changes following this batch, it stays the same when the batch is empty.
+ * */
+
+@Data
+@Builder
+public class DeviceChangePageDto {
+
+    private List<DeviceChange> changes;
+
+    private int size;
+
+    private long nextOffset;
+
+}
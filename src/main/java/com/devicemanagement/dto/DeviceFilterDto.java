@@ -0,0 +1,30 @@
+package com.devicemanagement.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+
+/**
+ * This is the dto class for selecting the devices of a bulk change.
+ * A device matches when it has one of the ids and the brand, a filter value which is not given matches any device
+ * */
+
+@Data
+@Builder
+public class DeviceFilterDto {
+
+    private List<Long> ids;
+
+    private String brand;
+
+    @JsonIgnore
+    @AssertTrue(message = "Either ids or brand must be given")
+    public boolean isSelective() {
+        return ids != null || (brand != null && !brand.isBlank());
+    }
+
+}
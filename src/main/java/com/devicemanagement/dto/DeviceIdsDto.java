@@ -0,0 +1,29 @@
+package com.devicemanagement.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+
+/**
+ * This is the dto class for reading many devices by their ids in one request.
+ * It has a no-args constructor for Jackson, which cannot tell whether a one-argument constructor takes the whole body or the ids.
+ * */
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceIdsDto {
+
+    @NotEmpty(message = "Device ids are mandatory and cannot be empty")
+    @Size(max = 1000, message = "At most 1000 device ids can be read at once")
+    private List<@NotNull(message = "Device ids cannot be null") Long> ids;
+
+}
@@ -0,0 +1,25 @@
+package com.devicemanagement.dto;
+
+import com.devicemanagement.entity.Device;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+
+/**
+ * This is the dto class for a single keyset page of devices.
+ * The nextCursor is an opaque token which is passed back to fetch the following page, it is null on the last page.
+ * */
+
+@Data
+@Builder
+public class DevicePageDto {
+
+    private List<Device> devices;
+
+    private int size;
+
+    private String nextCursor;
+
+}
@@ -0,0 +1,28 @@
+package com.devicemanagement.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+
+/**
+ * This is the dto class for querying devices, a criterion which is not given matches every device.
+ * */
+
+@Data
+@Builder
+public class DeviceQueryDto {
+
+    private String namePrefix;
+
+    private List<String> brands;
+
+    // inclusive
+    private LocalDateTime createdFrom;
+
+    // exclusive
+    private LocalDateTime createdTo;
+
+}
@@ -0,0 +1,20 @@
+package com.devicemanagement.dto;
+
+import com.devicemanagement.entity.Device;
+import lombok.Builder;
+import lombok.Data;
+
+
+/**
+ * This is the dto class for a device found by a text search together with its score.
+ * */
+
+@Data
+@Builder
+public class DeviceSearchHitDto {
+
+    private Device device;
+
+    private int score;
+
+}
@@ -0,0 +1,28 @@
+package com.devicemanagement.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+
+/**
+ * This is the dto class for one page of a text search, best match first.
+ * */
+
+@Data
+@Builder
+public class DeviceSearchPageDto {
+
+    private List<DeviceSearchHitDto> hits;
+
+    private long total;
+
+    private int page;
+
+    private int size;
+
+    // false while the search index is still being loaded at startup, the results may then be incomplete
+    private boolean complete;
+
+}
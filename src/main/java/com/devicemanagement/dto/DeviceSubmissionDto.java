@@ -0,0 +1,34 @@
+package com.devicemanagement.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+
+/**
+ * This is the dto class for the state of a device submitted to the write-behind queue.
+ * The deviceId is set once the device is persisted, the error once writing it has failed.
+ * */
+
+@Data
+@Builder
+public class DeviceSubmissionDto {
+
+    public enum Status {
+        QUEUED,
+        PERSISTED,
+        FAILED
+    }
+
+    private String id;
+
+    private Status status;
+
+    private LocalDateTime submittedAt;
+
+    private Long deviceId;
+
+    private String error;
+
+}
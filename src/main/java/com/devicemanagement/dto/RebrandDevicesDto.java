@@ -0,0 +1,25 @@
+package com.devicemanagement.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Builder;
+import lombok.Data;
+
+
+/**
+ * This is the dto class for moving many devices to a new brand.
+ * */
+
+@Data
+@Builder
+public class RebrandDevicesDto {
+
+    @Valid
+    @NotNull(message = "Device filter is mandatory")
+    private DeviceFilterDto filter;
+
+    @NotBlank(message = "Device brand is mandatory and cannot be empty or null")
+    private String newBrand;
+
+}
@@ -13,4 +13,7 @@ import lombok.Data;
 public class UpdateDeviceDto {
     private String name;
     private String brand;
+
+    // optional, when set the device is only updated if it is still at this version
+    private Long version;
 }
@@ -0,0 +1,301 @@
+package com.devicemanagement.encoding;
+
+import com.devicemanagement.entity.Device;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+
+/**
+ * This is the codec of the column layout of a device list, served as application/x-device-columns.
+ * The devices are written column by column so each column holds values of one kind which pack well:
+ * ids, creation and modification times as varint deltas from the previous device, brands as indexes into a dictionary
+ * written once, names as length prefixed UTF-8 and versions as varints.
+ * Nulls are written as 0 in the columns of nullable values, the other values are shifted up by one.
+ * */
+
+public final class DeviceColumns {
+
+    public static final String MEDIA_TYPE = "application/x-device-columns";
+
+    private static final int MAGIC = 0x4443;
+
+    private static final int FORMAT_VERSION = 2;
+
+    private DeviceColumns() {
+    }
+
+    /**
+     * This method writes the devices in the column layout
+     *
+     * @param devices the devices to write
+     * @param output  receives the encoded devices, it is not closed
+     */
+    public static void write(List<Device> devices, OutputStream output) throws IOException {
+
+        Writer out = new Writer(output);
+        out.writeShort(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeVarLong(devices.size());
+
+        long previousId = 0;
+        for (Device device : devices) {
+            out.writeVarLong(zigZag(device.getId() - previousId));
+            previousId = device.getId();
+        }
+
+        Map<String, Integer> brandIndexes = new HashMap<>();
+        List<String> brands = new ArrayList<>();
+        for (Device device : devices) {
+            if (device.getBrand() != null && brandIndexes.putIfAbsent(device.getBrand(), brands.size() + 1) == null) {
+                brands.add(device.getBrand());
+            }
+        }
+        out.writeVarLong(brands.size());
+        for (String brand : brands) {
+            out.writeString(brand);
+        }
+        for (Device device : devices) {
+            out.writeVarLong(device.getBrand() == null ? 0 : brandIndexes.get(device.getBrand()));
+        }
+
+        for (Device device : devices) {
+            out.writeNullableString(device.getName());
+        }
+
+        writeTimes(out, devices, Device::getCreationTime);
+        writeTimes(out, devices, Device::getLastModified);
+
+        for (Device device : devices) {
+            out.writeVarLong(device.getVersion() == null ? 0 : zigZag(device.getVersion()) + 1);
+        }
+
+        out.flush();
+
+    }
+
+    /**
+     * This method reads devices written by write
+     *
+     * @param input the encoded devices, it is read through a buffer
+     * @return the devices in the order they were written
+     * @throws IOException if the input is not in the column layout
+     */
+    public static List<Device> read(InputStream input) throws IOException {
+
+        Reader in = new Reader(new BufferedInputStream(input));
+        if (in.readShort() != MAGIC || in.readByte() != FORMAT_VERSION) {
+            throw new IOException("Not a device column stream");
+        }
+        int size = Math.toIntExact(in.readVarLong());
+
+        List<Device> devices = new ArrayList<>(size);
+        long id = 0;
+        for (int i = 0; i < size; i++) {
+            id += unZigZag(in.readVarLong());
+            devices.add(Device.builder().id(id).build());
+        }
+
+        int brandCount = Math.toIntExact(in.readVarLong());
+        String[] brands = new String[brandCount + 1];
+        for (int i = 1; i <= brandCount; i++) {
+            brands[i] = in.readString();
+        }
+        for (Device device : devices) {
+            device.setBrand(brands[Math.toIntExact(in.readVarLong())]);
+        }
+
+        for (Device device : devices) {
+            device.setName(in.readNullableString());
+        }
+
+        readTimes(in, devices, Device::setCreationTime);
+        readTimes(in, devices, Device::setLastModified);
+
+        for (Device device : devices) {
+            long value = in.readVarLong();
+            device.setVersion(value == 0 ? null : unZigZag(value - 1));
+        }
+
+        return devices;
+
+    }
+
+    /**
+     * Writes a time column, the seconds as deltas and the nanos as micros when the time has no finer precision, which is the DB precision
+     */
+    private static void writeTimes(Writer out, List<Device> devices, Function<Device, LocalDateTime> getter) throws IOException {
+
+        long previousSecond = 0;
+        for (Device device : devices) {
+            LocalDateTime time = getter.apply(device);
+            if (time == null) {
+                out.writeVarLong(0);
+                continue;
+            }
+            long second = time.toEpochSecond(ZoneOffset.UTC);
+            out.writeVarLong(zigZag(second - previousSecond) + 1);
+            previousSecond = second;
+            int nano = time.getNano();
+            out.writeVarLong(nano % 1000 == 0 ? (long) (nano / 1000) << 1 : (long) nano << 1 | 1);
+        }
+
+    }
+
+    private static void readTimes(Reader in, List<Device> devices, BiConsumer<Device, LocalDateTime> setter) throws IOException {
+
+        long second = 0;
+        for (Device device : devices) {
+            long value = in.readVarLong();
+            if (value == 0) {
+                continue;
+            }
+            second += unZigZag(value - 1);
+            long nano = in.readVarLong();
+            setter.accept(device, LocalDateTime.ofEpochSecond(second, (int) ((nano & 1) == 0 ? (nano >>> 1) * 1000 : nano >>> 1), ZoneOffset.UTC));
+        }
+
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Buffers the encoded bytes, so the many small writes do not each reach the response stream
+     */
+    private static final class Writer {
+
+        private final OutputStream output;
+
+        private final byte[] buffer = new byte[8192];
+
+        private int position;
+
+        Writer(OutputStream output) {
+            this.output = output;
+        }
+
+        void writeByte(int value) throws IOException {
+            if (position == buffer.length) {
+                output.write(buffer, 0, position);
+                position = 0;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeShort(int value) throws IOException {
+            writeByte(value >>> 8);
+            writeByte(value);
+        }
+
+        void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            writeBytes(bytes);
+        }
+
+        void writeNullableString(String value) throws IOException {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            writeBytes(bytes);
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.length - position) {
+                output.write(buffer, 0, position);
+                position = 0;
+            }
+            if (bytes.length > buffer.length) {
+                output.write(bytes);
+                return;
+            }
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void flush() throws IOException {
+            output.write(buffer, 0, position);
+            position = 0;
+            output.flush();
+        }
+    }
+
+    private static final class Reader {
+
+        private final InputStream input;
+
+        Reader(InputStream input) {
+            this.input = input;
+        }
+
+        int readByte() throws IOException {
+            int value = input.read();
+            if (value < 0) {
+                throw new EOFException("Device column stream ended early");
+            }
+            return value;
+        }
+
+        int readShort() throws IOException {
+            return readByte() << 8 | readByte();
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in device column stream");
+        }
+
+        String readString() throws IOException {
+            return new String(readBytes(Math.toIntExact(readVarLong())), StandardCharsets.UTF_8);
+        }
+
+        String readNullableString() throws IOException {
+            long length = readVarLong();
+            return length == 0 ? null : new String(readBytes(Math.toIntExact(length - 1)), StandardCharsets.UTF_8);
+        }
+
+        private byte[] readBytes(int length) throws IOException {
+            byte[] bytes = input.readNBytes(length);
+            if (bytes.length < length) {
+                throw new EOFException("Device column stream ended early");
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.devicemanagement.encoding;
+
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.metrics.SerializationTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+
+/**
+ * This is the message converter writing device lists in the column layout of DeviceColumns.
+ * It is picked when the client accepts application/x-device-columns, only for the endpoints returning a List of Device
+ * */
+
+public class DeviceColumnsHttpMessageConverter extends AbstractGenericHttpMessageConverter<List<Device>> {
+
+    private static final ResolvableType DEVICE_LIST = ResolvableType.forClassWithGenerics(List.class, Device.class);
+
+    private final MeterRegistry meterRegistry;
+
+    public DeviceColumnsHttpMessageConverter(MeterRegistry meterRegistry) {
+        super(MediaType.parseMediaType(DeviceColumns.MEDIA_TYPE));
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        return type != null && DEVICE_LIST.isAssignableFrom(ResolvableType.forType(type)) && canWrite(mediaType);
+    }
+
+    @Override
+    protected void writeInternal(List<Device> devices, @Nullable Type type, HttpOutputMessage outputMessage) throws IOException {
+        SerializationTimer.time(meterRegistry, "columns", () -> DeviceColumns.write(devices, outputMessage.getBody()));
+    }
+
+    @Override
+    public List<Device> read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Device columns are only written", inputMessage);
+    }
+
+    @Override
+    protected List<Device> readInternal(Class<? extends List<Device>> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Device columns are only written", inputMessage);
+    }
+}
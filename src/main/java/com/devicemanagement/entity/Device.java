@@ -16,13 +16,18 @@ import java.time.LocalDateTime;
 @Data
 @Builder
 @Entity
-@Table(name = "devices")
+@Table(name = "devices", indexes = {
+        @Index(name = "idx_devices_brand_creation_time", columnList = "brand, creation_time"),
+        @Index(name = "idx_devices_name", columnList = "name")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 public class Device {
 
+    // a pooled sequence lets Hibernate hand out ids without a round trip per insert and batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "devices_seq")
+    @SequenceGenerator(name = "devices_seq", sequenceName = "devices_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "name")
@@ -33,4 +38,20 @@ public class Device {
 
     @Column(name = "creation_time")
     private LocalDateTime creationTime;
+
+    @Column(name = "last_modified")
+    private LocalDateTime lastModified;
+
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    /**
+     * This method copies the device, so a device kept by a cache or shared between readers is never handed out itself
+     *
+     * @return a new device with the same values
+     */
+    public Device copy() {
+        return new Device(id, name, brand, creationTime, lastModified, version);
+    }
 }
@@ -0,0 +1,57 @@
+package com.devicemanagement.entity;
+
+import com.devicemanagement.event.DeviceChangedEvent;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * This is the Entity class for device_changes table in DB.
+ * Every row is one change of a device with the state the device was left in, the deleted devices only have their id.
+ * The offset orders the changes, consumers of the change feed resume from the last offset they have seen.
+ */
+
+@Data
+@Builder
+@Entity
+@Table(name = "device_changes")
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceChange {
+
+    // the offsets are handed out by DeviceChangeLog, a pooled sequence keeps that without a round trip per change
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "device_changes_seq")
+    @SequenceGenerator(name = "device_changes_seq", sequenceName = "device_changes_seq", allocationSize = 50)
+    @Column(name = "change_offset")
+    private Long offset;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type")
+    private DeviceChangedEvent.Type type;
+
+    @Column(name = "device_id")
+    private Long deviceId;
+
+    @Column(name = "name")
+    private String name;
+
+    @Column(name = "brand")
+    private String brand;
+
+    @Column(name = "creation_time")
+    private LocalDateTime creationTime;
+
+    @Column(name = "last_modified")
+    private LocalDateTime lastModified;
+
+    @Column(name = "version")
+    private Long version;
+
+    @Column(name = "changed_at")
+    private LocalDateTime changedAt;
+}
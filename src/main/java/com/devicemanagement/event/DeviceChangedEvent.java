@@ -0,0 +1,57 @@
+package com.devicemanagement.event;
+
+import com.devicemanagement.entity.Device;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+
+/**
+ * This is the application event published by the device service after a device is created, updated or deleted.
+ * Components which keep derived views of the devices listen to it to stay in line with the DB.
+ * They listen after commit, so a change which is rolled back never reaches them, and with VIEW_LISTENER_ORDER,
+ * so they hold the change before DeviceChangeLog moves the devices version on the same commit and a list ETag never
+ * names a change the views miss. The events published outside of a transaction are applied at once.
+ * */
+
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class DeviceChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    /**
+     * The order of the listeners keeping a view of the devices, ahead of the unordered synchronization of DeviceChangeLog
+     * */
+    public static final int VIEW_LISTENER_ORDER = 0;
+
+    private final Type type;
+
+    private final Long deviceId;
+
+    /**
+     * The state of the device after the change, null when the device was deleted
+     * */
+    private final Device device;
+
+    /**
+     * The state of the device before the change, null when the device was created
+     * */
+    private final Device previous;
+
+    public static DeviceChangedEvent created(Device device) {
+        return new DeviceChangedEvent(Type.CREATED, device.getId(), device, null);
+    }
+
+    public static DeviceChangedEvent updated(Device previous, Device device) {
+        return new DeviceChangedEvent(Type.UPDATED, device.getId(), device, previous);
+    }
+
+    public static DeviceChangedEvent deleted(Device previous) {
+        return new DeviceChangedEvent(Type.DELETED, previous.getId(), null, previous);
+    }
+}
@@ -3,10 +3,34 @@ package com.devicemanagement.exception;
 /**
  * This is the custom exception class for device management service.
  * This exception is thrown when a device is not found in the DB
+ * A miss is an answer to the client, not a fault, so no stack trace is captured: clients probing missing ids
+ * would otherwise pay a stack walk for every request
  * */
 
 public class DeviceNotFoundException extends RuntimeException {
+
+    private final Long id;
+
     public DeviceNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
+        this.id = null;
+    }
+
+    /**
+     * The message of this constructor is only built when it is read
+     * @param id the identifier which has no device
+     * */
+    public DeviceNotFoundException(Long id) {
+        super(null, null, false, false);
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public String getMessage() {
+        return id == null ? super.getMessage() : "Device not found with Id: " + id;
     }
 }
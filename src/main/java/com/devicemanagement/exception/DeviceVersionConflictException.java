@@ -0,0 +1,12 @@
+package com.devicemanagement.exception;
+
+/**
+ * This is the custom exception class for device management service.
+ * This exception is thrown when a device is updated with a version which is no longer the current one
+ * */
+
+public class DeviceVersionConflictException extends RuntimeException {
+    public DeviceVersionConflictException(Long id, Long expectedVersion, Long currentVersion) {
+        super("Device with Id: " + id + " is at version " + currentVersion + ", not " + expectedVersion);
+    }
+}
@@ -0,0 +1,12 @@
+package com.devicemanagement.exception;
+
+/**
+ * This is the custom exception class for device management service.
+ * This exception is thrown when a page cursor token cannot be decoded
+ * */
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.devicemanagement.exception;
+
+/**
+ * This is the custom exception class for device management service.
+ * This exception is thrown when a device query asks for something the devices cannot be filtered or sorted by
+ * */
+
+public class InvalidQueryException extends RuntimeException {
+    public InvalidQueryException(String message) {
+        super(message);
+    }
+}
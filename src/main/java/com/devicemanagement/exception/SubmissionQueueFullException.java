@@ -0,0 +1,13 @@
+package com.devicemanagement.exception;
+
+/**
+ * This is the custom exception class for device management service.
+ * This exception is thrown when a device is submitted while the write-behind queue is full, the client should retry later
+ * It is thrown for every submission during an overload, so no stack trace is captured
+ * */
+
+public class SubmissionQueueFullException extends RuntimeException {
+    public SubmissionQueueFullException(int capacity) {
+        super("The device submission queue is full (" + capacity + " devices), retry later", null, false, false);
+    }
+}
@@ -0,0 +1,73 @@
+package com.devicemanagement.loading;
+
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.repository.DeviceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+
+/**
+ * This is the loop which fills a LoadableDeviceView with the devices of the DB, shared by DeviceStoreLoader and
+ * DeviceSearchIndexLoader. The devices are read page by page in id order, so the DB never holds a long read open.
+ * The logging is done by @Slf4j
+ * */
+
+@Slf4j
+public class DeviceViewLoader {
+
+    private final DeviceRepository deviceRepository;
+
+    private final int batchSize;
+
+    public DeviceViewLoader(DeviceRepository deviceRepository, int batchSize) {
+        this.deviceRepository = deviceRepository;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * This method loads every device of the DB into the view and finishes its loading
+     *
+     * @param name    the name of the view in the log
+     * @param view    the view to fill
+     * @param stopped tells when the application stops, the view is then left unfinished
+     * @return true when the view was finished, false when the loading failed or was stopped
+     */
+    public boolean load(String name, LoadableDeviceView view, BooleanSupplier stopped) {
+
+        long startTime = System.nanoTime();
+        long afterId = 0L;
+        long loaded = 0L;
+
+        view.startLoading();
+        try {
+
+            List<Device> devices;
+            do {
+                devices = deviceRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(batchSize));
+                if (devices.isEmpty()) {
+                    break;
+                }
+                view.load(devices);
+                loaded += devices.size();
+                afterId = devices.get(devices.size() - 1).getId();
+            } while (devices.size() == batchSize && !stopped.getAsBoolean());
+
+        } catch (RuntimeException ex) {
+            log.warn("Loading the {} failed after {} devices", name, loaded, ex);
+            return false;
+        }
+
+        if (stopped.getAsBoolean()) {
+            return false;
+        }
+
+        view.finishLoading();
+        log.info("Loaded {} devices into the {} in {} ms", loaded, name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        return true;
+
+    }
+}
@@ -0,0 +1,30 @@
+package com.devicemanagement.loading;
+
+import com.devicemanagement.entity.Device;
+
+import java.util.List;
+
+
+/**
+ * This is an in-memory view of the devices which DeviceViewLoader fills with the devices of the DB,
+ * while it keeps applying the device changes made meanwhile
+ */
+
+public interface LoadableDeviceView {
+
+    void startLoading();
+
+    /**
+     * This method adds devices read from the DB, leaving out the ones changed since loading started
+     *
+     * @param devices the devices to add
+     */
+    void load(List<Device> devices);
+
+    void finishLoading();
+
+    /**
+     * @return true once every device of the DB has been added
+     */
+    boolean isLoaded();
+}
@@ -0,0 +1,73 @@
+package com.devicemanagement.loading;
+
+import java.util.HashSet;
+import java.util.Set;
+
+
+/**
+ * This is the loading state of a LoadableDeviceView. While the view is loaded it keeps the ids changed by the events,
+ * so the loader does not overwrite them with what it read from the DB before the change.
+ * It is not thread-safe, the view calls it under its write lock; only isLoaded and isComplete may be read without the lock.
+ */
+
+public class LoadingState {
+
+    private volatile Set<Long> changedWhileLoading;
+
+    private volatile boolean loaded;
+
+    /**
+     * This method starts loading, the view does not answer reads until finish
+     */
+    public void start() {
+        changedWhileLoading = new HashSet<>();
+        loaded = false;
+    }
+
+    /**
+     * This method starts catching up on the changes of a view which already answers reads,
+     * as one restored from a snapshot, until finish
+     */
+    public void startCatchingUp() {
+        changedWhileLoading = new HashSet<>();
+        loaded = true;
+    }
+
+    /**
+     * This method records a change of a device applied by an event
+     *
+     * @param id the unique identifier of the changed device
+     */
+    public void changed(Long id) {
+        if (changedWhileLoading != null) {
+            changedWhileLoading.add(id);
+        }
+    }
+
+    /**
+     * @param id the unique identifier of a device read while loading
+     * @return true when the device was changed since loading started, so what was read must be left out
+     */
+    public boolean changedSinceStart(Long id) {
+        return changedWhileLoading != null && changedWhileLoading.contains(id);
+    }
+
+    public void finish() {
+        changedWhileLoading = null;
+        loaded = true;
+    }
+
+    /**
+     * @return true once the view answers reads
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return true once the view holds every device of the DB and every change made since
+     */
+    public boolean isComplete() {
+        return loaded && changedWhileLoading == null;
+    }
+}
@@ -0,0 +1,39 @@
+package com.devicemanagement.logging;
+
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+
+/**
+ * This class holds the log markers of the device operations.
+ * The marker name is the operation name used by device.logging.sampling, see OperationSamplingTurboFilter
+ * The error markers are named in device.logging.rate-limit instead, see RateLimitingTurboFilter
+ * */
+
+public final class LogMarkers {
+
+    public static final Marker ADD_DEVICE = MarkerFactory.getMarker("addDevice");
+
+    public static final Marker GET_DEVICE_BY_ID = MarkerFactory.getMarker("getDeviceById");
+
+    public static final Marker GET_ALL_DEVICES = MarkerFactory.getMarker("getAllDevices");
+
+    public static final Marker UPDATE_DEVICE = MarkerFactory.getMarker("updateDevice");
+
+    public static final Marker DELETE_DEVICE = MarkerFactory.getMarker("deleteDevice");
+
+    public static final Marker SEARCH_DEVICE_BY_BRAND = MarkerFactory.getMarker("searchDeviceByBrand");
+
+    public static final Marker QUERY_DEVICES = MarkerFactory.getMarker("queryDevices");
+
+    public static final Marker SEARCH_DEVICES_BY_TEXT = MarkerFactory.getMarker("searchDevicesByText");
+
+    public static final Marker COUNT_DEVICES = MarkerFactory.getMarker("countDevices");
+
+    public static final Marker CLIENT_ERROR = MarkerFactory.getMarker("clientError");
+
+    public static final Marker UNEXPECTED_ERROR = MarkerFactory.getMarker("unexpectedError");
+
+    private LogMarkers() {
+    }
+}
@@ -0,0 +1,82 @@
+package com.devicemanagement.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * This is the Logback turbo filter which samples the log events of chosen operations.
+ * The sampling is given as operation:N pairs, for example "getDeviceById:100,addDevice:10", and keeps one event out of N
+ * for the events whose marker is named after the operation. Events of other operations are not touched.
+ * The decision is taken before the event is built, so a dropped event costs a counter increment.
+ * Logback does not call turbo filters for events built with the SLF4J fluent API, so those call sites are guarded
+ * with isInfoEnabled(marker), which is sampled here.
+ * */
+
+public class OperationSamplingTurboFilter extends TurboFilter {
+
+    private String sampling = "";
+
+    private Map<String, Sampler> samplers = Map.of();
+
+    public void setSampling(String sampling) {
+        this.sampling = sampling;
+    }
+
+    @Override
+    public void start() {
+
+        Map<String, Sampler> parsed = new HashMap<>();
+        for (String entry : sampling.split(",")) {
+
+            if (entry.isBlank()) {
+                continue;
+            }
+
+            String[] operationAndRate = entry.trim().split(":");
+            try {
+                parsed.put(operationAndRate[0], new Sampler(Long.parseLong(operationAndRate[1])));
+            } catch (RuntimeException ex) {
+                addError("Invalid log sampling entry '" + entry + "', expected operation:N");
+            }
+        }
+
+        samplers = Map.copyOf(parsed);
+        super.start();
+
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+
+        if (marker == null || samplers.isEmpty() || level == null || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+
+        Sampler sampler = samplers.get(marker.getName());
+        return sampler == null || sampler.keep() ? FilterReply.NEUTRAL : FilterReply.DENY;
+
+    }
+
+    private static final class Sampler {
+
+        private final long rate;
+
+        private final AtomicLong count = new AtomicLong();
+
+        private Sampler(long rate) {
+            this.rate = Math.max(rate, 1);
+        }
+
+        private boolean keep() {
+            return count.getAndIncrement() % rate == 0;
+        }
+    }
+}
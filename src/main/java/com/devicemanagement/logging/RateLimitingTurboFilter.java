@@ -0,0 +1,100 @@
+package com.devicemanagement.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+
+/**
+ * This is the Logback turbo filter which caps the number of log events of chosen markers per second.
+ * The limits are given as marker:N pairs, for example "unexpectedError:10,clientError:100", and keep the first N events
+ * of every second for the events with that marker. Events of other markers are not touched.
+ * Unlike sampling, a burst of errors is not logged in proportion to its size, the rest of the second is dropped.
+ * The error counters of DeviceMetrics still count every error.
+ * */
+
+public class RateLimitingTurboFilter extends TurboFilter {
+
+    private String rateLimit = "";
+
+    private LongSupplier clock = System::currentTimeMillis;
+
+    private Map<String, Limiter> limiters = Map.of();
+
+    public void setRateLimit(String rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public void start() {
+
+        Map<String, Limiter> parsed = new HashMap<>();
+        for (String entry : rateLimit.split(",")) {
+
+            if (entry.isBlank()) {
+                continue;
+            }
+
+            String[] markerAndLimit = entry.trim().split(":");
+            try {
+                parsed.put(markerAndLimit[0], new Limiter(Long.parseLong(markerAndLimit[1])));
+            } catch (RuntimeException ex) {
+                addError("Invalid log rate limit entry '" + entry + "', expected marker:N");
+            }
+        }
+
+        limiters = Map.copyOf(parsed);
+        super.start();
+
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+
+        if (marker == null || limiters.isEmpty() || level == null || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+
+        Limiter limiter = limiters.get(marker.getName());
+        return limiter == null || limiter.keep(clock.getAsLong() / 1000) ? FilterReply.NEUTRAL : FilterReply.DENY;
+
+    }
+
+    private static final class Limiter {
+
+        private final long limit;
+
+        // the second and the number of events seen in it, packed so both move together with one compare-and-set
+        private final AtomicLong secondAndCount = new AtomicLong();
+
+        private Limiter(long limit) {
+            this.limit = Math.max(limit, 0);
+        }
+
+        private boolean keep(long second) {
+
+            while (true) {
+                long current = secondAndCount.get();
+                long count = (current >>> 32) == (second & 0xFFFFFFFFL) ? current & 0xFFFFFFFFL : 0;
+                if (count >= limit) {
+                    return false;
+                }
+                if (secondAndCount.compareAndSet(current, (second << 32) | (count + 1))) {
+                    return true;
+                }
+            }
+
+        }
+    }
+}
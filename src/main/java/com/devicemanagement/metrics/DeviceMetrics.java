@@ -0,0 +1,171 @@
+package com.devicemanagement.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * This class holds the application meters of the device management service which are not covered by @Timed.
+ * The meters are registered once and reused, so recording a value does not allocate.
+ * */
+
+@Component
+public class DeviceMetrics {
+
+    public static final String SERVICE_TIMER = "device.service";
+
+    public static final String RESULT_SIZE = "device.service.result.size";
+
+    public static final String ERRORS = "device.errors";
+
+    public static final String SUBMISSION_QUEUE_DEPTH = "device.submissions.queue.depth";
+
+    public static final String SUBMISSION_BATCH_SIZE = "device.submissions.batch.size";
+
+    public static final String SUBMISSIONS = "device.submissions";
+
+    public static final String COALESCED_READS = "device.service.coalesced";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, DistributionSummary> resultSizes = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> coalescedReads = new ConcurrentHashMap<>();
+
+    private final Counter notFoundErrors;
+
+    private final Counter validationErrors;
+
+    private final Counter versionConflictErrors;
+
+    private final Counter invalidCursorErrors;
+
+    private final Counter notAcceptableErrors;
+
+    private final Counter unexpectedErrors;
+
+    private final Counter queueFullErrors;
+
+    private final DistributionSummary submissionBatchSizes;
+
+    private final Counter persistedSubmissions;
+
+    private final Counter failedSubmissions;
+
+    public DeviceMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.notFoundErrors = errorCounter("not_found");
+        this.validationErrors = errorCounter("validation");
+        this.versionConflictErrors = errorCounter("version_conflict");
+        this.invalidCursorErrors = errorCounter("invalid_cursor");
+        this.notAcceptableErrors = errorCounter("not_acceptable");
+        this.unexpectedErrors = errorCounter("unexpected");
+        this.queueFullErrors = errorCounter("queue_full");
+        this.submissionBatchSizes = DistributionSummary.builder(SUBMISSION_BATCH_SIZE)
+                .description("Number of submitted devices written by one transaction of the write-behind queue")
+                .baseUnit("devices")
+                .register(meterRegistry);
+        this.persistedSubmissions = submissionCounter("persisted");
+        this.failedSubmissions = submissionCounter("failed");
+    }
+
+    /**
+     * This method registers the gauge of the number of submitted devices waiting to be written
+     *
+     * @param queue the write-behind queue, it is only read by the gauge
+     */
+    public void registerSubmissionQueue(Collection<?> queue) {
+        Gauge.builder(SUBMISSION_QUEUE_DEPTH, queue, Collection::size)
+                .description("Number of submitted devices waiting to be written")
+                .baseUnit("devices")
+                .register(meterRegistry);
+    }
+
+    /**
+     * This method records a batch of submitted devices written, or failed to be written, by one transaction
+     *
+     * @param size      the number of devices of the batch
+     * @param persisted whether the transaction committed
+     */
+    public void submissionBatch(int size, boolean persisted) {
+        submissionBatchSizes.record(size);
+        (persisted ? persistedSubmissions : failedSubmissions).increment(size);
+    }
+
+    /**
+     * This method records the number of devices returned by a service method
+     *
+     * @param method the name of the service method
+     * @param size   the number of devices returned
+     */
+    public void recordResultSize(String method, int size) {
+        resultSizes.computeIfAbsent(method, name -> DistributionSummary.builder(RESULT_SIZE)
+                        .description("Number of devices returned by a device service method")
+                        .baseUnit("devices")
+                        .tag("method", name)
+                        .register(meterRegistry))
+                .record(size);
+    }
+
+    /**
+     * This method records a read which waited for the same read of another caller instead of querying the DB
+     *
+     * @param method the name of the service method
+     */
+    public void readCoalesced(String method) {
+        coalescedReads.computeIfAbsent(method, name -> Counter.builder(COALESCED_READS)
+                        .description("Number of reads answered by the same read of another caller instead of the DB")
+                        .tag("method", name)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    public void notFound() {
+        notFoundErrors.increment();
+    }
+
+    public void validationFailed() {
+        validationErrors.increment();
+    }
+
+    public void versionConflict() {
+        versionConflictErrors.increment();
+    }
+
+    public void invalidCursor() {
+        invalidCursorErrors.increment();
+    }
+
+    public void notAcceptable() {
+        notAcceptableErrors.increment();
+    }
+
+    public void unexpectedError() {
+        unexpectedErrors.increment();
+    }
+
+    public void queueFull() {
+        queueFullErrors.increment();
+    }
+
+    private Counter submissionCounter(String result) {
+        return Counter.builder(SUBMISSIONS)
+                .description("Number of submitted devices written by the write-behind queue")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Counter errorCounter(String type) {
+        return Counter.builder(ERRORS)
+                .description("Number of requests answered with an error")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,54 @@
+package com.devicemanagement.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+
+/**
+ * This is the timer shared by the message converters of the application, it times the writing of a response body.
+ * The device.serialization timer is tagged with the handler method and the format written, so it can be set against
+ * the device.service timer and the repository invocation timers of the same operation.
+ * */
+
+public final class SerializationTimer {
+
+    public static final String SERIALIZATION = "device.serialization";
+
+    @FunctionalInterface
+    public interface Write {
+        void run() throws IOException;
+    }
+
+    private SerializationTimer() {
+    }
+
+    public static void time(MeterRegistry meterRegistry, String format, Write write) throws IOException {
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            write.run();
+        } finally {
+            sample.stop(Timer.builder(SERIALIZATION)
+                    .description("Time spent writing response bodies")
+                    .tag("method", handlerMethodName())
+                    .tag("format", format)
+                    .register(meterRegistry));
+        }
+
+    }
+
+    private static String handlerMethodName() {
+
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Object handler = attributes == null ? null
+                : attributes.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return handler instanceof HandlerMethod handlerMethod ? handlerMethod.getMethod().getName() : "unknown";
+
+    }
+}
@@ -0,0 +1,39 @@
+package com.devicemanagement.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+
+/**
+ * This is the message converter for the binary Jackson formats, CBOR and Smile, it times the writing of every response body.
+ * The ObjectMapper given decides the format, the media type is the one it is negotiated for
+ * */
+
+public class TimedBinaryJacksonHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+    private final MeterRegistry meterRegistry;
+
+    private final String format;
+
+    public TimedBinaryJacksonHttpMessageConverter(ObjectMapper objectMapper, MediaType mediaType, String format, MeterRegistry meterRegistry) {
+        super(objectMapper, mediaType);
+        this.meterRegistry = meterRegistry;
+        this.format = format;
+    }
+
+    @Override
+    protected void writeInternal(Object object, @Nullable Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+
+        SerializationTimer.time(meterRegistry, format, () -> super.writeInternal(object, type, outputMessage));
+
+    }
+}
@@ -0,0 +1,33 @@
+package com.devicemanagement.repository;
+
+import com.devicemanagement.entity.DeviceChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+/**
+ * This is the Repository Interface for DeviceChange Entity.
+ * The changes are only appended, by DeviceChangeLog, and read in offset order
+* */
+
+public interface DeviceChangeRepository extends JpaRepository<DeviceChange, Long> {
+
+    /**
+     * This method seeks past the given offset and returns the next changes in offset order
+     * @param offset the last offset already seen
+     * @param before the offset from which the changes are left out
+     * @param limit maximum number of changes to return
+     * @return a list of changes having an offset between the two given offsets
+     * */
+    List<DeviceChange> findByOffsetGreaterThanAndOffsetLessThanOrderByOffsetAsc(Long offset, Long before, Limit limit);
+
+    /**
+     * This method finds the last offset written before the given one
+     * @param before the offset from which the changes are left out
+     * @return the highest offset below the given one, or null when there is none
+     * */
+    @Query("SELECT MAX(c.offset) FROM DeviceChange c WHERE c.offset < :before")
+    Long findLastOffsetBefore(Long before);
+}
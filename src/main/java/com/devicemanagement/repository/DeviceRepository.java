@@ -1,21 +1,100 @@
 package com.devicemanagement.repository;
 
+import com.devicemanagement.dto.BrandCountDto;
+import com.devicemanagement.dto.CreationDayCountDto;
 import com.devicemanagement.entity.Device;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 /**
  * This is the Repository Interface for Device Entity.
  * This interface is responsible to provide methods to interact with the DB
+ * The devices can also be filtered with the Specifications of DeviceSpecifications
+ * The projected reads build the devices with a constructor expression, so they are plain objects which Hibernate
+ * neither keeps in the persistence context nor checks for changes
 * */
 
-public interface DeviceRepository extends JpaRepository<Device, Long> {
+public interface DeviceRepository extends JpaRepository<Device, Long>, JpaSpecificationExecutor<Device>, DeviceRepositoryCustom {
+
+    String PROJECTION = "SELECT new com.devicemanagement.entity.Device(d.id, d.name, d.brand, d.creationTime, d.lastModified, d.version) " +
+            "FROM Device d";
+
+    /**
+     * This method finds a device by its id without making it a managed entity
+     * @param id the unique identifier of the device
+     * @return an Optional which contains the device if found
+     * */
+    @Query(PROJECTION + " WHERE d.id = :id")
+    Optional<Device> findProjectedById(Long id);
+
+    /**
+     * This method finds the devices of the given ids with a single IN query, without making them managed entities
+     * @param ids the unique identifiers of the devices
+     * @return the devices found, in no particular order
+     * */
+    @Query(PROJECTION + " WHERE d.id IN :ids")
+    List<Device> findProjectedByIdIn(Collection<Long> ids);
+
+    /**
+     * This method finds every device without making them managed entities
+     * @return a list of all the devices
+     * */
+    @Query(PROJECTION)
+    List<Device> findAllProjected();
 
     /**
-     * This method finds devices by their brand
+     * This method finds devices by their brand without making them managed entities
      * @param brand name of the device to search
      * @return a list of devices for the given brand name
      * */
-    List<Device> findByBrand(String brand);
+    @Query(PROJECTION + " WHERE d.brand = :brand")
+    List<Device> findProjectedByBrand(String brand);
+
+    /**
+     * This method seeks past the given id and returns the next devices in id order.
+     * It is used for keyset pagination, so the cost of a page does not grow with its position in the table
+     * @param id the last id of the previous page
+     * @param limit maximum number of devices to return
+     * @return a list of devices having an id greater than the given id
+     * */
+    List<Device> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * This method streams all the devices in id order.
+     * It must be consumed inside a transaction and the stream must be closed after use
+     * @return a stream over every device in the DB
+     * */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    Stream<Device> streamAllByOrderByIdAsc();
+
+    /**
+     * This method counts the devices of every brand with a single GROUP BY
+     * @return the brands with their number of devices, the biggest first
+     * */
+    @Query("SELECT new com.devicemanagement.dto.BrandCountDto(d.brand, COUNT(d)) FROM Device d " +
+            "GROUP BY d.brand ORDER BY COUNT(d) DESC, d.brand")
+    List<BrandCountDto> countDevicesByBrand();
+
+    /**
+     * This method counts the devices created on every day with a single GROUP BY
+     * @return the days on which devices were created with their number of devices, in day order
+     * */
+    @Query("SELECT new com.devicemanagement.dto.CreationDayCountDto(CAST(d.creationTime AS LocalDate), COUNT(d)) FROM Device d " +
+            "WHERE d.creationTime IS NOT NULL GROUP BY CAST(d.creationTime AS LocalDate) ORDER BY CAST(d.creationTime AS LocalDate)")
+    List<CreationDayCountDto> countDevicesByCreationDay();
 }
@@ -0,0 +1,55 @@
+package com.devicemanagement.repository;
+
+import com.devicemanagement.entity.Device;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * This is the Repository Interface for the Device queries which are not derived by Spring Data.
+ * It is implemented by DeviceRepositoryCustomImpl and exposed through DeviceRepository
+* */
+
+public interface DeviceRepositoryCustom {
+
+    /**
+     * The state of a device before and after it was changed by one of the statements below
+     * */
+    record Change(Device previous, Device current) {
+    }
+
+    /**
+     * This method updates the given columns of a device with a single statement.
+     * A column is left out when its value is null, and the row is only updated when a value differs from the stored one.
+     * The version is increased by the update
+     * @param id the unique identifier for the device
+     * @param name the new name, or null to keep the current one
+     * @param brand the new brand, or null to keep the current one
+     * @param expectedVersion the version the caller read, or null to update whatever the current version is
+     * @return the device before and after the update when one row was updated, or empty when no row was updated
+     * */
+    Optional<Change> updateChangedColumns(Long id, String name, String brand, Long expectedVersion);
+
+    /**
+     * This method deletes the devices matching a filter with a single statement.
+     * A filter value is left out when it is null
+     * @param ids the devices to delete, or null to match any id
+     * @param brand the brand of the devices to delete, or null to match any brand
+     * @param limit maximum number of devices to delete
+     * @return the deleted devices as they were before the delete
+     * */
+    List<Device> deleteMatching(Collection<Long> ids, String brand, int limit);
+
+    /**
+     * This method moves the devices matching a filter to a new brand with a single statement.
+     * A filter value is left out when it is null, devices which already have the new brand are not updated.
+     * The version of every updated device is increased
+     * @param ids the devices to rebrand, or null to match any id
+     * @param brand the current brand of the devices to rebrand, or null to match any brand
+     * @param newBrand the brand the devices are moved to
+     * @param limit maximum number of devices to update
+     * @return the updated devices before and after the update
+     * */
+    List<Change> rebrandMatching(Collection<Long> ids, String brand, String newBrand, int limit);
+}
@@ -0,0 +1,151 @@
+package com.devicemanagement.repository;
+
+import com.devicemanagement.entity.Device;
+import jakarta.persistence.EntityManager;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * This is the implementation of DeviceRepositoryCustom.
+ * The updates and deletes are wrapped in H2 data change delta tables, so the same statement which changes the rows also returns them.
+ * OLD TABLE returns the rows as they were, the new state of an updated row follows from the values it was updated with
+* */
+
+@AllArgsConstructor
+public class DeviceRepositoryCustomImpl implements DeviceRepositoryCustom {
+
+    static final RowMapper<Device> DEVICE_ROW_MAPPER = (resultSet, rowNum) -> Device.builder()
+            .id(resultSet.getLong("id"))
+            .name(resultSet.getString("name"))
+            .brand(resultSet.getString("brand"))
+            .creationTime(resultSet.getObject("creation_time", LocalDateTime.class))
+            .lastModified(resultSet.getObject("last_modified", LocalDateTime.class))
+            .version(resultSet.getLong("version"))
+            .build();
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final EntityManager entityManager;
+
+    @Override
+    public Optional<Change> updateChangedColumns(Long id, String name, String brand, Long expectedVersion) {
+
+        // at the DB precision, so the updated device returned is the one stored
+        LocalDateTime lastModified = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        MapSqlParameterSource parameters = new MapSqlParameterSource("id", id)
+                .addValue("lastModified", lastModified);
+        List<String> assignments = new ArrayList<>();
+        List<String> changes = new ArrayList<>();
+
+        if (name != null) {
+            parameters.addValue("name", name);
+            assignments.add("name = :name");
+            changes.add("name IS DISTINCT FROM :name");
+        }
+
+        if (brand != null) {
+            parameters.addValue("brand", brand);
+            assignments.add("brand = :brand");
+            changes.add("brand IS DISTINCT FROM :brand");
+        }
+
+        if (assignments.isEmpty()) {
+            return Optional.empty();
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT id, name, brand, creation_time, last_modified, version FROM OLD TABLE (UPDATE devices SET ")
+                .append(String.join(", ", assignments))
+                .append(", last_modified = :lastModified, version = version + 1 WHERE id = :id AND (")
+                .append(String.join(" OR ", changes))
+                .append(')');
+
+        if (expectedVersion != null) {
+            parameters.addValue("version", expectedVersion);
+            sql.append(" AND version = :version");
+        }
+        sql.append(')');
+
+        // pending entity changes must reach the DB before it is updated behind Hibernate's back
+        entityManager.flush();
+
+        return jdbcTemplate.query(sql.toString(), parameters, DEVICE_ROW_MAPPER).stream()
+                .findFirst()
+                .map(previous -> new Change(previous, updated(previous, name, brand, lastModified)));
+
+    }
+
+    @Override
+    public List<Device> deleteMatching(Collection<Long> ids, String brand, int limit) {
+
+        MapSqlParameterSource parameters = new MapSqlParameterSource("limit", limit);
+        List<String> conditions = filterConditions(ids, brand, parameters);
+
+        String sql = "SELECT id, name, brand, creation_time, last_modified, version FROM OLD TABLE (DELETE FROM devices"
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " FETCH FIRST :limit ROWS ONLY)";
+
+        entityManager.flush();
+
+        return jdbcTemplate.query(sql, parameters, DEVICE_ROW_MAPPER);
+
+    }
+
+    @Override
+    public List<Change> rebrandMatching(Collection<Long> ids, String brand, String newBrand, int limit) {
+
+        LocalDateTime lastModified = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        MapSqlParameterSource parameters = new MapSqlParameterSource("limit", limit)
+                .addValue("newBrand", newBrand)
+                .addValue("lastModified", lastModified);
+        List<String> conditions = filterConditions(ids, brand, parameters);
+        conditions.add("brand <> :newBrand");
+
+        String sql = "SELECT id, name, brand, creation_time, last_modified, version FROM OLD TABLE (UPDATE devices"
+                + " SET brand = :newBrand, last_modified = :lastModified, version = version + 1 WHERE " + String.join(" AND ", conditions)
+                + " FETCH FIRST :limit ROWS ONLY)";
+
+        entityManager.flush();
+
+        return jdbcTemplate.query(sql, parameters, DEVICE_ROW_MAPPER).stream()
+                .map(previous -> new Change(previous, updated(previous, null, newBrand, lastModified)))
+                .toList();
+
+    }
+
+    private static Device updated(Device previous, String name, String brand, LocalDateTime lastModified) {
+        return Device.builder()
+                .id(previous.getId())
+                .name(name != null ? name : previous.getName())
+                .brand(brand != null ? brand : previous.getBrand())
+                .creationTime(previous.getCreationTime())
+                .lastModified(lastModified)
+                .version(previous.getVersion() + 1)
+                .build();
+    }
+
+    private static List<String> filterConditions(Collection<Long> ids, String brand, MapSqlParameterSource parameters) {
+
+        List<String> conditions = new ArrayList<>();
+
+        if (ids != null) {
+            parameters.addValue("ids", ids);
+            conditions.add("id IN (:ids)");
+        }
+
+        if (brand != null) {
+            parameters.addValue("brand", brand);
+            conditions.add("brand = :brand");
+        }
+        return conditions;
+
+    }
+}
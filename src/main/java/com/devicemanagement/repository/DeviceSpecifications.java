@@ -0,0 +1,68 @@
+package com.devicemanagement.repository;
+
+import com.devicemanagement.entity.Device;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * This class holds the Specifications used to filter devices with DeviceRepository.
+ * A Specification is null when its value is not given, Specification.where and and leave a null one out
+* */
+
+public final class DeviceSpecifications {
+
+    private DeviceSpecifications() {
+    }
+
+    /**
+     * This method matches the devices whose name starts with the given prefix.
+     * The prefix is escaped, so it is compared literally and the name index can be used
+     * @param prefix the start of the name
+     * @return the Specification, or null when no prefix is given
+     * */
+    public static Specification<Device> nameStartsWith(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return null;
+        }
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (root, query, builder) -> builder.like(root.get("name"), pattern, '\\');
+    }
+
+    /**
+     * This method matches the devices having one of the given brands
+     * @param brands the brands to match
+     * @return the Specification, or null when no brand is given
+     * */
+    public static Specification<Device> brandIn(Collection<String> brands) {
+        if (brands == null || brands.isEmpty()) {
+            return null;
+        }
+        return (root, query, builder) -> root.get("brand").in(brands);
+    }
+
+    /**
+     * This method matches the devices created at or after the given time
+     * @param from the earliest creation time
+     * @return the Specification, or null when no time is given
+     * */
+    public static Specification<Device> createdFrom(LocalDateTime from) {
+        if (from == null) {
+            return null;
+        }
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get("creationTime"), from);
+    }
+
+    /**
+     * This method matches the devices created before the given time
+     * @param to the time the devices must be created before
+     * @return the Specification, or null when no time is given
+     * */
+    public static Specification<Device> createdBefore(LocalDateTime to) {
+        if (to == null) {
+            return null;
+        }
+        return (root, query, builder) -> builder.lessThan(root.get("creationTime"), to);
+    }
+}
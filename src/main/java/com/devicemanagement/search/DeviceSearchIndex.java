@@ -0,0 +1,379 @@
+package com.devicemanagement.search;
+
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.event.DeviceChangedEvent;
+import com.devicemanagement.loading.LoadableDeviceView;
+import com.devicemanagement.loading.LoadingState;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+
+/**
+ * This is the in-memory token index over the device name and brand.
+ * The name and brand are split into lower case tokens, each token keeps the sorted ids of the devices having it,
+ * and the tokens are sorted so a prefix finds its tokens with one range lookup.
+ * It is filled by DeviceSearchIndexLoader at startup and kept up to date with the DeviceChangedEvents.
+ * A device matches a search when every term of the search is a prefix of one of its tokens.
+ * */
+
+@Component
+public class DeviceSearchIndex implements LoadableDeviceView {
+
+    static final int MAX_TERMS = 8;
+
+    // the weight of a term is the best of the tokens it matches, the score of a device is the sum over the terms
+    static final int NAME_EXACT = 4;
+
+    static final int NAME_PREFIX = 2;
+
+    static final int BRAND_EXACT = 2;
+
+    static final int BRAND_PREFIX = 1;
+
+    private static final int MAX_SCORE = MAX_TERMS * NAME_EXACT;
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final NavigableMap<String, Postings> nameTokens = new TreeMap<>();
+
+    private final NavigableMap<String, Postings> brandTokens = new TreeMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final LoadingState loading = new LoadingState();
+
+    /**
+     * The devices of one page of a search, best score first and by id for equal scores
+     * */
+    public record Hits(long total, long[] ids, int[] scores) {
+    }
+
+    /**
+     * The devices matching the terms so far in id order, with their score
+     * */
+    private record TermHits(long[] ids, int[] scores) {
+    }
+
+    private record Match(Postings postings, int weight) {
+    }
+
+    @Order(DeviceChangedEvent.VIEW_LISTENER_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+
+        lock.writeLock().lock();
+        try {
+            loading.changed(event.getDeviceId());
+            if (event.getPrevious() != null) {
+                remove(event.getPrevious());
+            }
+            if (event.getDevice() != null) {
+                add(event.getDevice());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+    }
+
+    @Override
+    public void startLoading() {
+
+        lock.writeLock().lock();
+        try {
+            loading.start();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+    }
+
+    @Override
+    public void load(List<Device> devices) {
+
+        lock.writeLock().lock();
+        try {
+            for (Device device : devices) {
+                if (!loading.changedSinceStart(device.getId())) {
+                    add(device);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+    }
+
+    @Override
+    public void finishLoading() {
+
+        lock.writeLock().lock();
+        try {
+            loading.finish();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+    }
+
+    /**
+     * @return true once every device of the DB has been added
+     */
+    @Override
+    public boolean isLoaded() {
+        return loading.isLoaded();
+    }
+
+    /**
+     * This method finds the devices matching every term of the text and ranks them
+     *
+     * @param text   the search text, at most MAX_TERMS terms are used
+     * @param offset the number of ranked devices to skip
+     * @param limit  the number of ranked devices wanted
+     * @return the ids and scores of the page together with the total number of matching devices
+     */
+    public Hits search(String text, int offset, int limit) {
+
+        List<String> terms = tokenize(text);
+        if (terms.size() > MAX_TERMS) {
+            terms = terms.subList(0, MAX_TERMS);
+        }
+        if (terms.isEmpty()) {
+            return new Hits(0, new long[0], new int[0]);
+        }
+
+        lock.readLock().lock();
+        try {
+
+            List<List<Match>> termMatches = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                List<Match> matches = new ArrayList<>();
+                collect(nameTokens, term, NAME_EXACT, NAME_PREFIX, matches);
+                collect(brandTokens, term, BRAND_EXACT, BRAND_PREFIX, matches);
+                if (matches.isEmpty()) {
+                    return new Hits(0, new long[0], new int[0]);
+                }
+                termMatches.add(matches);
+            }
+
+            // start from the most selective term, so the candidates only shrink from there
+            termMatches.sort((left, right) -> Long.compare(estimate(left), estimate(right)));
+
+            TermHits candidates = termHits(termMatches.get(0));
+            for (int i = 1; i < termMatches.size() && candidates.ids().length > 0; i++) {
+                candidates = intersect(candidates, termMatches.get(i));
+            }
+
+            return rank(candidates, offset, limit);
+
+        } finally {
+            lock.readLock().unlock();
+        }
+
+    }
+
+    static List<String> tokenize(String text) {
+
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text != null) {
+            for (String token : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+                if (!token.isEmpty()) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return new ArrayList<>(tokens);
+
+    }
+
+    private void add(Device device) {
+        for (String token : tokenize(device.getName())) {
+            nameTokens.computeIfAbsent(token, key -> new Postings()).add(device.getId());
+        }
+        for (String token : tokenize(device.getBrand())) {
+            brandTokens.computeIfAbsent(token, key -> new Postings()).add(device.getId());
+        }
+    }
+
+    private void remove(Device device) {
+        remove(nameTokens, tokenize(device.getName()), device.getId());
+        remove(brandTokens, tokenize(device.getBrand()), device.getId());
+    }
+
+    private static void remove(NavigableMap<String, Postings> index, List<String> tokens, long id) {
+        for (String token : tokens) {
+            Postings postings = index.get(token);
+            if (postings != null && postings.remove(id) && postings.size() == 0) {
+                index.remove(token);
+            }
+        }
+    }
+
+    private static void collect(NavigableMap<String, Postings> index, String term, int exactWeight, int prefixWeight, List<Match> matches) {
+        index.subMap(term, true, term + Character.MAX_VALUE, false).forEach((token, postings) ->
+                matches.add(new Match(postings, token.equals(term) ? exactWeight : prefixWeight)));
+    }
+
+    private static long estimate(List<Match> matches) {
+        long size = 0;
+        for (Match match : matches) {
+            size += match.postings().size();
+        }
+        return size;
+    }
+
+    /**
+     * Collects the devices of all the tokens a term matches, each with the best weight it has for the term.
+     * The postings are already sorted, so they are merged pairwise instead of being sorted together
+     */
+    private static TermHits termHits(List<Match> matches) {
+
+        List<TermHits> merged = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            Postings postings = match.postings();
+            long[] ids = new long[postings.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = postings.get(i);
+            }
+            int[] weights = new int[ids.length];
+            Arrays.fill(weights, match.weight());
+            merged.add(new TermHits(ids, weights));
+        }
+
+        while (merged.size() > 1) {
+            List<TermHits> next = new ArrayList<>((merged.size() + 1) / 2);
+            for (int i = 0; i < merged.size(); i += 2) {
+                next.add(i + 1 < merged.size() ? union(merged.get(i), merged.get(i + 1)) : merged.get(i));
+            }
+            merged = next;
+        }
+        return merged.get(0);
+
+    }
+
+    private static TermHits union(TermHits left, TermHits right) {
+
+        long[] ids = new long[left.ids().length + right.ids().length];
+        int[] weights = new int[ids.length];
+        int count = 0;
+
+        int l = 0;
+        int r = 0;
+        while (l < left.ids().length || r < right.ids().length) {
+            long leftId = l < left.ids().length ? left.ids()[l] : Long.MAX_VALUE;
+            long rightId = r < right.ids().length ? right.ids()[r] : Long.MAX_VALUE;
+            if (leftId < rightId) {
+                ids[count] = leftId;
+                weights[count++] = left.scores()[l++];
+            } else if (leftId > rightId) {
+                ids[count] = rightId;
+                weights[count++] = right.scores()[r++];
+            } else {
+                ids[count] = leftId;
+                weights[count++] = Math.max(left.scores()[l++], right.scores()[r++]);
+            }
+        }
+        return count == ids.length ? new TermHits(ids, weights) : new TermHits(Arrays.copyOf(ids, count), Arrays.copyOf(weights, count));
+
+    }
+
+    /**
+     * Keeps the candidates having one of the tokens a term matches and adds the best weight of the term to their score.
+     * Each token is walked against the candidates from the smaller of the two, seeking in the larger one
+     */
+    private static TermHits intersect(TermHits candidates, List<Match> matches) {
+
+        long[] candidateIds = candidates.ids();
+        int[] weights = new int[candidateIds.length];
+
+        for (Match match : matches) {
+            Postings postings = match.postings();
+            if (postings.size() <= candidateIds.length) {
+                int candidate = 0;
+                for (int i = 0; i < postings.size() && candidate < candidateIds.length; i++) {
+                    candidate = Postings.seek(candidateIds, candidate, candidateIds.length, postings.get(i));
+                    if (candidate < candidateIds.length && candidateIds[candidate] == postings.get(i)) {
+                        weights[candidate] = Math.max(weights[candidate], match.weight());
+                    }
+                }
+            } else {
+                int posting = 0;
+                for (int i = 0; i < candidateIds.length && posting < postings.size(); i++) {
+                    posting = postings.seek(posting, candidateIds[i]);
+                    if (posting < postings.size() && postings.get(posting) == candidateIds[i]) {
+                        weights[i] = Math.max(weights[i], match.weight());
+                    }
+                }
+            }
+        }
+
+        int count = 0;
+        long[] ids = new long[candidateIds.length];
+        int[] scores = new int[candidateIds.length];
+        for (int i = 0; i < candidateIds.length; i++) {
+            if (weights[i] > 0) {
+                ids[count] = candidateIds[i];
+                scores[count] = candidates.scores()[i] + weights[i];
+                count++;
+            }
+        }
+        return new TermHits(Arrays.copyOf(ids, count), Arrays.copyOf(scores, count));
+
+    }
+
+    /**
+     * Picks the page out of the candidates, best score first and by id for equal scores.
+     * The scores are small, so the candidates are counted per score instead of being sorted
+     */
+    private static Hits rank(TermHits candidates, int offset, int limit) {
+
+        long[] candidateIds = candidates.ids();
+        int[] candidateScores = candidates.scores();
+        int total = candidateIds.length;
+
+        int[] countByScore = new int[MAX_SCORE + 1];
+        for (int score : candidateScores) {
+            countByScore[score]++;
+        }
+
+        int from = Math.min(offset, total);
+        int to = (int) Math.min((long) from + limit, total);
+        long[] ids = new long[to - from];
+        int[] scores = new int[to - from];
+
+        // the candidates are in id order, so walking them once per score of the page keeps equal scores in id order
+        int seen = 0;
+        int filled = 0;
+        for (int score = MAX_SCORE; score > 0 && filled < ids.length; score--) {
+            if (countByScore[score] == 0) {
+                continue;
+            }
+            if (seen + countByScore[score] <= from) {
+                seen += countByScore[score];
+                continue;
+            }
+            for (int i = 0; i < total && filled < ids.length; i++) {
+                if (candidateScores[i] == score && seen++ >= from) {
+                    ids[filled] = candidateIds[i];
+                    scores[filled] = score;
+                    filled++;
+                }
+            }
+        }
+        return new Hits(total, ids, scores);
+
+    }
+}
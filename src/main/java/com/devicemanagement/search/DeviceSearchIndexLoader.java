@@ -0,0 +1,63 @@
+package com.devicemanagement.search;
+
+import com.devicemanagement.loading.DeviceViewLoader;
+import com.devicemanagement.repository.DeviceRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * This is the component which fills the DeviceSearchIndex with the devices of the DB once the application is ready.
+ * The devices are read page by page in id order on a background thread, so the application serves requests meanwhile
+ * and searches return what is indexed so far.
+ * The logging is done by @Slf4j
+ * */
+
+@Slf4j
+@Component
+public class DeviceSearchIndexLoader {
+
+    private final DeviceSearchIndex deviceSearchIndex;
+
+    private final DeviceViewLoader viewLoader;
+
+    private final boolean loadOnStartup;
+
+    private volatile boolean stopped;
+
+    public DeviceSearchIndexLoader(DeviceRepository deviceRepository,
+                                   DeviceSearchIndex deviceSearchIndex,
+                                   @Value("${device.search.load-on-startup:true}") boolean loadOnStartup,
+                                   @Value("${device.search.load-batch-size:1000}") int batchSize) {
+        this.deviceSearchIndex = deviceSearchIndex;
+        this.viewLoader = new DeviceViewLoader(deviceRepository, batchSize);
+        this.loadOnStartup = loadOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+
+        if (!loadOnStartup) {
+            log.info("Device search index is not loaded on startup, it only holds the devices changed from now on");
+            return;
+        }
+
+        Thread loader = new Thread(this::load, "device-search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+    }
+
+    void load() {
+        viewLoader.load("device search index", deviceSearchIndex, () -> stopped);
+    }
+}
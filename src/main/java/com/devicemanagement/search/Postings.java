@@ -0,0 +1,97 @@
+package com.devicemanagement.search;
+
+import java.util.Arrays;
+
+
+/**
+ * This is the sorted list of device ids having one token.
+ * The ids are kept in a growable long array, new devices get the highest ids so adding them is an append
+ * */
+
+final class Postings {
+
+    private long[] ids = new long[2];
+
+    private int size;
+
+    boolean add(long id) {
+
+        if (size == 0 || id > ids[size - 1]) {
+            ensureCapacity();
+            ids[size++] = id;
+            return true;
+        }
+
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            return false;
+        }
+
+        index = -index - 1;
+        ensureCapacity();
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        ids[index] = id;
+        size++;
+        return true;
+
+    }
+
+    boolean remove(long id) {
+
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return false;
+        }
+
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+        return true;
+
+    }
+
+    boolean contains(long id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    long get(int index) {
+        return ids[index];
+    }
+
+    /**
+     * @return the index of the first id at or after from which is not below the given id, or size when there is none
+     */
+    int seek(int from, long id) {
+        return seek(ids, from, size, id);
+    }
+
+    /**
+     * Finds the first index at or after from holding an id not below the given one.
+     * It gallops from the start position, so walking two sorted lists with it costs the size of the smaller one
+     * times the log of the ratio of their sizes
+     */
+    static int seek(long[] ids, int from, int to, long id) {
+
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < to && ids[high] < id) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+
+        int index = Arrays.binarySearch(ids, low, Math.min(high, to), id);
+        return index >= 0 ? index : -index - 1;
+
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void ensureCapacity() {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+        }
+    }
+}
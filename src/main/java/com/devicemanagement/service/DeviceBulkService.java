@@ -0,0 +1,29 @@
+package com.devicemanagement.service;
+
+import com.devicemanagement.dto.BulkChangeResultDto;
+import com.devicemanagement.dto.BulkIngestResultDto;
+import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.dto.DeviceFilterDto;
+
+import com.devicemanagement.entity.Device;
+
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ * Interface which defines the contract for bulk operations of the Device Management Service
+ * This interface provides methods for maintaining many devices in one request
+* */
+
+public interface DeviceBulkService {
+
+    BulkIngestResultDto addDevices(Iterator<CreateDeviceDto> createDeviceDtos);
+
+    List<Device> writeDevices(List<CreateDeviceDto> createDeviceDtos);
+
+    BulkChangeResultDto deleteDevices(DeviceFilterDto filter);
+
+    BulkChangeResultDto rebrandDevices(DeviceFilterDto filter, String newBrand);
+
+}
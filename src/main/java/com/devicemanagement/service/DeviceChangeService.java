@@ -0,0 +1,20 @@
+package com.devicemanagement.service;
+
+import com.devicemanagement.dto.DeviceChangePageDto;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * Interface which defines the contract for reading the change feed of the Device Management Service
+ * This interface provides methods for downstream consumers to follow the device changes from an offset
+* */
+
+public interface DeviceChangeService {
+
+    DeviceChangePageDto getChanges(Long since, int limit);
+
+    CompletableFuture<DeviceChangePageDto> pollChanges(Long since, int limit, Duration wait);
+
+}
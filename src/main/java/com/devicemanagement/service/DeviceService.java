@@ -1,11 +1,22 @@
 package com.devicemanagement.service;
 
+import com.devicemanagement.dto.BrandCountDto;
 import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.dto.CreationDayCountDto;
+import com.devicemanagement.dto.DeviceBatchGetResultDto;
+import com.devicemanagement.dto.DevicePageDto;
+import com.devicemanagement.dto.DeviceQueryDto;
+import com.devicemanagement.dto.DeviceSearchPageDto;
 import com.devicemanagement.dto.UpdateDeviceDto;
 import com.devicemanagement.entity.Device;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
 
 
 /**
@@ -19,12 +30,28 @@ public interface DeviceService {
 
     Optional<Device> getDeviceById(Long id);
 
+    DeviceBatchGetResultDto getDevicesByIds(List<Long> ids);
+
     List<Device> getAllDevices();
 
+    DevicePageDto getDevicesPage(String cursor, int size);
+
+    void streamAllDevices(Consumer<Device> consumer);
+
     Device updateDevice(Long id, UpdateDeviceDto updateDeviceDto);
 
     void deleteDevice(Long id);
 
     List<Device> searchDeviceByBrand(String brand);
 
+    Page<Device> queryDevices(DeviceQueryDto deviceQueryDto, Pageable pageable);
+
+    DeviceSearchPageDto searchDevicesByText(String text, int page, int size);
+
+    List<BrandCountDto> countDevicesByBrand();
+
+    List<CreationDayCountDto> countDevicesByCreationDay(LocalDate from, LocalDate to);
+
+    OptionalLong getDevicesVersion();
+
 }
@@ -0,0 +1,20 @@
+package com.devicemanagement.service;
+
+import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.dto.DeviceSubmissionDto;
+
+import java.util.Optional;
+
+
+/**
+ * Interface which defines the contract for the write-behind ingestion of the Device Management Service
+ * This interface provides methods for submitting a device to be persisted later and following its state
+* */
+
+public interface DeviceSubmissionService {
+
+    DeviceSubmissionDto submitDevice(CreateDeviceDto createDeviceDto);
+
+    Optional<DeviceSubmissionDto> getSubmission(String id);
+
+}
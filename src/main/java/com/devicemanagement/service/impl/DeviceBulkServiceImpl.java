@@ -0,0 +1,366 @@
+package com.devicemanagement.service.impl;
+
+import com.devicemanagement.changes.DeviceChangeLog;
+import com.devicemanagement.config.CacheConfig;
+import com.devicemanagement.dto.BulkChangeResultDto;
+import com.devicemanagement.dto.BulkIngestResultDto;
+import com.devicemanagement.dto.BulkItemResultDto;
+import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.dto.DeviceFilterDto;
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.event.DeviceChangedEvent;
+import com.devicemanagement.metrics.DeviceMetrics;
+import com.devicemanagement.repository.DeviceRepository;
+import com.devicemanagement.service.DeviceBulkService;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+
+/**
+ * This is the implementation class for Device Bulk Service Interface.
+ * It writes the devices in chunks, each chunk in its own transaction, so the JDBC driver receives batched statements
+ * and the persistence context is cleared between chunks.
+ * Deletes and rebrands are set based statements, each one touching at most a batch of rows in its own transaction.
+ * Every chunk appends its changes to the change feed in its own transaction, so the feed holds exactly the committed chunks.
+ * The events are published in that transaction as well, so the views apply them on its commit before the devices version moves.
+ * The logging is done by @Slf4j
+ */
+
+@Slf4j
+@Service
+public class DeviceBulkServiceImpl implements DeviceBulkService {
+
+    private final DeviceRepository deviceRepository;
+
+    private final EntityManager entityManager;
+
+    private final Validator validator;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final DeviceChangeLog deviceChangeLog;
+
+    private final Cache devicesCache;
+
+    private final int batchSize;
+
+    public DeviceBulkServiceImpl(DeviceRepository deviceRepository,
+                                 EntityManager entityManager,
+                                 Validator validator,
+                                 PlatformTransactionManager transactionManager,
+                                 ApplicationEventPublisher eventPublisher,
+                                 DeviceChangeLog deviceChangeLog,
+                                 CacheManager cacheManager,
+                                 @Value("${device.bulk.batch-size:500}") int batchSize) {
+        this.deviceRepository = deviceRepository;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.deviceChangeLog = deviceChangeLog;
+        this.devicesCache = cacheManager.getCache(CacheConfig.DEVICES_CACHE);
+        this.batchSize = batchSize;
+    }
+
+
+    /**
+     * This method validates and adds many devices to the DB.
+     * Invalid entries are reported and skipped, they do not stop the valid ones from being added.
+     * A batch which cannot be written is rolled back and its entries are reported as failed, the other batches are still written
+     *
+     * @param createDeviceDtos the devices to add, they are read one at a time
+     * @return the outcome of every entry together with the throughput achieved
+     */
+    @Override
+    @Timed(DeviceMetrics.SERVICE_TIMER)
+    public BulkIngestResultDto addDevices(Iterator<CreateDeviceDto> createDeviceDtos) {
+
+        long startTime = System.nanoTime();
+
+        List<BulkItemResultDto> results = new ArrayList<>();
+        List<Device> chunk = new ArrayList<>(batchSize);
+        List<BulkItemResultDto> chunkResults = new ArrayList<>(batchSize);
+        int created = 0;
+
+        while (createDeviceDtos.hasNext()) {
+
+            CreateDeviceDto createDeviceDto = createDeviceDtos.next();
+            List<String> errors = validate(createDeviceDto);
+
+            BulkItemResultDto result = BulkItemResultDto.builder()
+                    .index(results.size())
+                    .status(errors.isEmpty() ? BulkItemResultDto.Status.CREATED : BulkItemResultDto.Status.INVALID)
+                    .errors(errors.isEmpty() ? null : errors)
+                    .build();
+            results.add(result);
+
+            if (errors.isEmpty()) {
+
+                LocalDateTime now = LocalDateTime.now();
+                chunk.add(Device.builder()
+                        .name(createDeviceDto.getName())
+                        .brand(createDeviceDto.getBrand())
+                        .creationTime(now)
+                        .lastModified(now)
+                        .build());
+                chunkResults.add(result);
+
+                if (chunk.size() == batchSize) {
+                    created += writeChunk(chunk, chunkResults);
+                }
+
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            created += writeChunk(chunk, chunkResults);
+        }
+
+        long elapsedNanos = System.nanoTime() - startTime;
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+
+        log.info("Bulk added {} of {} devices in {} ms", created, results.size(), elapsedMillis);
+
+        return BulkIngestResultDto.builder()
+                .received(results.size())
+                .created(created)
+                .failed(results.size() - created)
+                .elapsedMillis(elapsedMillis)
+                .devicesPerSecond(elapsedNanos == 0 ? 0 : created * TimeUnit.SECONDS.toNanos(1) / elapsedNanos)
+                .results(results)
+                .build();
+
+    }
+
+    /**
+     * This method deletes every device matching the filter.
+     * The devices are deleted a batch at a time, so a big brand does not hold one long transaction
+     *
+     * @param filter the ids and/or brand of the devices to delete
+     * @return the number of devices deleted
+     */
+    @Override
+    @Timed(DeviceMetrics.SERVICE_TIMER)
+    public BulkChangeResultDto deleteDevices(DeviceFilterDto filter) {
+
+        long startTime = System.nanoTime();
+
+        BulkChangeResultDto result = changeInChunks(filter,
+                (ids, limit) -> deviceRepository.deleteMatching(ids, filter.getBrand(), limit),
+                DeviceChangedEvent::deleted);
+        result.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+
+        log.info("Bulk deleted {} devices with {} statements in {} ms", result.getAffected(), result.getStatements(), result.getElapsedMillis());
+
+        return result;
+
+    }
+
+
+    /**
+     * This method moves every device matching the filter to a new brand.
+     * Devices which already have the new brand are left untouched
+     *
+     * @param filter the ids and/or brand of the devices to rebrand
+     * @param newBrand the brand the devices are moved to
+     * @return the number of devices updated
+     */
+    @Override
+    @Timed(DeviceMetrics.SERVICE_TIMER)
+    public BulkChangeResultDto rebrandDevices(DeviceFilterDto filter, String newBrand) {
+
+        long startTime = System.nanoTime();
+
+        BulkChangeResultDto result = changeInChunks(filter,
+                (ids, limit) -> deviceRepository.rebrandMatching(ids, filter.getBrand(), newBrand, limit),
+                change -> DeviceChangedEvent.updated(change.previous(), change.current()));
+        result.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+
+        log.info("Bulk rebranded {} devices to {} with {} statements in {} ms", result.getAffected(), newBrand, result.getStatements(), result.getElapsedMillis());
+
+        return result;
+
+    }
+
+    /**
+     * Runs the statement once per chunk of ids, or until it touches no more rows when only a brand is given.
+     * Every statement runs in its own transaction together with the change feed entries and the events of the rows it touched,
+     * the touched devices are evicted from the cache once it has committed
+     */
+    private <T> BulkChangeResultDto changeInChunks(DeviceFilterDto filter, ChunkStatement<T> statement, Function<T, DeviceChangedEvent> toEvent) {
+
+        if (!filter.isSelective()) {
+            throw new IllegalArgumentException("Either ids or brand must be given");
+        }
+
+        int affected = 0;
+        int statements = 0;
+
+        if (filter.getIds() != null) {
+
+            List<Long> ids = new ArrayList<>(new LinkedHashSet<>(filter.getIds()));
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<Long> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                affected += runChunk(statement, chunk, toEvent);
+                statements++;
+            }
+
+        } else {
+
+            int touched;
+            do {
+                touched = runChunk(statement, null, toEvent);
+                affected += touched;
+                statements++;
+            } while (touched == batchSize);
+
+        }
+
+        return BulkChangeResultDto.builder()
+                .affected(affected)
+                .statements(statements)
+                .build();
+
+    }
+
+    private <T> int runChunk(ChunkStatement<T> statement, List<Long> ids, Function<T, DeviceChangedEvent> toEvent) {
+
+        Integer changed = transactionTemplate.execute(status -> {
+            List<DeviceChangedEvent> events = statement.run(ids, batchSize).stream().map(toEvent).toList();
+            deviceChangeLog.append(events);
+            events.forEach(eventPublisher::publishEvent);
+            evictAfterCommit(events);
+            return events.size();
+        });
+        return changed == null ? 0 : changed;
+
+    }
+
+    // evicted rather than refreshed, a single update committed meanwhile would otherwise be overwritten by the older row
+    private void evictAfterCommit(List<DeviceChangedEvent> events) {
+
+        if (devicesCache == null || events.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            events.forEach(event -> devicesCache.evict(event.getDeviceId()));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                events.forEach(event -> devicesCache.evict(event.getDeviceId()));
+            }
+        });
+
+    }
+
+    @FunctionalInterface
+    private interface ChunkStatement<T> {
+        List<T> run(List<Long> ids, int limit);
+    }
+
+    /**
+     * This method adds devices which are already validated, all of them in one transaction.
+     * It is the writer of the write-behind submissions, so it does not log each call at INFO
+     *
+     * @param createDeviceDtos the devices to add, at most a batch of them
+     * @return the added devices with their ids, in the given order
+     */
+    @Override
+    @Timed(DeviceMetrics.SERVICE_TIMER)
+    public List<Device> writeDevices(List<CreateDeviceDto> createDeviceDtos) {
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Device> devices = new ArrayList<>(createDeviceDtos.size());
+        for (CreateDeviceDto createDeviceDto : createDeviceDtos) {
+            devices.add(Device.builder()
+                    .name(createDeviceDto.getName())
+                    .brand(createDeviceDto.getBrand())
+                    .creationTime(now)
+                    .lastModified(now)
+                    .build());
+        }
+
+        write(devices);
+        return devices;
+
+    }
+
+    private int writeChunk(List<Device> chunk, List<BulkItemResultDto> chunkResults) {
+
+        int written = 0;
+        try {
+
+            write(chunk);
+            for (int i = 0; i < chunk.size(); i++) {
+                chunkResults.get(i).setId(chunk.get(i).getId());
+            }
+            written = chunk.size();
+
+        } catch (RuntimeException ex) {
+
+            log.warn("Writing a batch of {} devices failed, it is reported as failed", chunk.size(), ex);
+            List<String> errors = List.of(ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage());
+            for (BulkItemResultDto result : chunkResults) {
+                result.setStatus(BulkItemResultDto.Status.FAILED);
+                result.setErrors(errors);
+            }
+
+        }
+
+        chunk.clear();
+        chunkResults.clear();
+        return written;
+
+    }
+
+    private void write(List<Device> devices) {
+
+        transactionTemplate.executeWithoutResult(status -> {
+            deviceRepository.saveAll(devices);
+            List<DeviceChangedEvent> events = devices.stream().map(DeviceChangedEvent::created).toList();
+            deviceChangeLog.append(events);
+            events.forEach(eventPublisher::publishEvent);
+            entityManager.flush();
+            entityManager.clear();
+        });
+
+    }
+
+    private List<String> validate(CreateDeviceDto createDeviceDto) {
+
+        if (createDeviceDto == null) {
+            return List.of("Device entry cannot be null");
+        }
+
+        List<String> errors = new ArrayList<>();
+        for (ConstraintViolation<CreateDeviceDto> violation : validator.validate(createDeviceDto)) {
+            errors.add(violation.getMessage());
+        }
+        return errors;
+
+    }
+}
@@ -0,0 +1,113 @@
+package com.devicemanagement.service.impl;
+
+import com.devicemanagement.changes.DeviceChangeLog;
+import com.devicemanagement.dto.DeviceChangePageDto;
+import com.devicemanagement.entity.DeviceChange;
+import com.devicemanagement.metrics.DeviceMetrics;
+import com.devicemanagement.repository.DeviceChangeRepository;
+import com.devicemanagement.service.DeviceChangeService;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This is the implementation class for Device Change Service Interface.
+ * The changes are read from the device_changes table by seeking on the offset, never past the offsets of the open transactions.
+ * A poll which finds nothing waits for the next commit of changes without holding a thread, and reads again on the task executor.
+ * The logging is done by @Slf4j
+ */
+
+@Slf4j
+@Service
+public class DeviceChangeServiceImpl implements DeviceChangeService {
+
+    static final int DEFAULT_LIMIT = 100;
+
+    static final int MAX_LIMIT = 1000;
+
+    private final DeviceChangeRepository deviceChangeRepository;
+
+    private final DeviceChangeLog deviceChangeLog;
+
+    private final Executor executor;
+
+    public DeviceChangeServiceImpl(DeviceChangeRepository deviceChangeRepository,
+                                   DeviceChangeLog deviceChangeLog,
+                                   @Qualifier("applicationTaskExecutor") Executor executor) {
+        this.deviceChangeRepository = deviceChangeRepository;
+        this.deviceChangeLog = deviceChangeLog;
+        this.executor = executor;
+    }
+
+
+    /**
+     * This method reads the changes following an offset.
+     * Without an offset no change is returned, only the offset of the last change, so a new consumer starts from now
+     *
+     * @param since the last offset already seen, or null to get the current offset
+     * @param limit the number of changes wanted, it is capped to 1000
+     * @return the changes in offset order and the offset to read the next ones from
+     */
+    @Override
+    @Timed(DeviceMetrics.SERVICE_TIMER)
+    public DeviceChangePageDto getChanges(Long since, int limit) {
+
+        long readableBefore = deviceChangeLog.readableBefore();
+
+        if (since == null) {
+            Long lastOffset = deviceChangeRepository.findLastOffsetBefore(readableBefore);
+            return page(List.of(), lastOffset == null ? 0L : lastOffset);
+        }
+
+        int pageLimit = limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        log.debug("Fetching {} device changes after offset: {}", pageLimit, since);
+
+        List<DeviceChange> changes = deviceChangeRepository.findByOffsetGreaterThanAndOffsetLessThanOrderByOffsetAsc(since, readableBefore, Limit.of(pageLimit));
+        return page(changes, changes.isEmpty() ? since : changes.get(changes.size() - 1).getOffset());
+
+    }
+
+    /**
+     * This method reads the changes following an offset, and when there are none waits for the next ones.
+     * The wait ends at the first commit of changes or when it times out, the changes are then read again
+     *
+     * @param since the last offset already seen, or null to get the current offset without waiting
+     * @param limit the number of changes wanted, it is capped to 1000
+     * @param wait  the longest time to wait for a change
+     * @return a future of the changes, it holds an empty batch when none came in time
+     */
+    @Override
+    public CompletableFuture<DeviceChangePageDto> pollChanges(Long since, int limit, Duration wait) {
+
+        // taken before reading, so a commit made during the read still ends the wait
+        CompletableFuture<Void> nextCommit = deviceChangeLog.nextCommit();
+
+        DeviceChangePageDto page = getChanges(since, limit);
+        if (since == null || page.getSize() > 0 || wait.isZero() || wait.isNegative()) {
+            return CompletableFuture.completedFuture(page);
+        }
+
+        // copied, so the timeout of this poll does not complete the future shared with the other polls
+        return nextCommit.copy()
+                .completeOnTimeout(null, wait.toMillis(), TimeUnit.MILLISECONDS)
+                .thenApplyAsync(ignored -> getChanges(since, limit), executor);
+
+    }
+
+    private static DeviceChangePageDto page(List<DeviceChange> changes, long nextOffset) {
+        return DeviceChangePageDto.builder()
+                .changes(changes)
+                .size(changes.size())
+                .nextOffset(nextOffset)
+                .build();
+    }
+}
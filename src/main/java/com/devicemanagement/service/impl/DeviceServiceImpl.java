@@ -1,18 +1,68 @@
 package com.devicemanagement.service.impl;
 
+import com.devicemanagement.cache.BrandLookupCache;
+import com.devicemanagement.cache.DeviceCountsCache;
+import com.devicemanagement.changes.DeviceChangeLog;
+import com.devicemanagement.coalescing.DeviceReadCoalescer;
+import com.devicemanagement.config.CacheConfig;
+import com.devicemanagement.dto.BrandCountDto;
 import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.dto.CreationDayCountDto;
+import com.devicemanagement.dto.DeviceBatchGetResultDto;
+import com.devicemanagement.dto.DeviceBatchItemDto;
+import com.devicemanagement.dto.DevicePageDto;
+import com.devicemanagement.dto.DeviceQueryDto;
+import com.devicemanagement.dto.DeviceSearchHitDto;
+import com.devicemanagement.dto.DeviceSearchPageDto;
 import com.devicemanagement.dto.UpdateDeviceDto;
 import com.devicemanagement.entity.Device;
+import com.devicemanagement.event.DeviceChangedEvent;
 import com.devicemanagement.exception.DeviceNotFoundException;
+import com.devicemanagement.exception.DeviceVersionConflictException;
+import com.devicemanagement.exception.InvalidCursorException;
+import com.devicemanagement.exception.InvalidQueryException;
+import com.devicemanagement.logging.LogMarkers;
+import com.devicemanagement.metrics.DeviceMetrics;
 import com.devicemanagement.repository.DeviceRepository;
+import com.devicemanagement.repository.DeviceRepositoryCustom;
+import com.devicemanagement.repository.DeviceSpecifications;
+import com.devicemanagement.search.DeviceSearchIndex;
 import com.devicemanagement.service.DeviceService;
+import com.devicemanagement.store.DeviceStore;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 /**
@@ -30,137 +80,564 @@ import java.util.Optional;
 @AllArgsConstructor
 public class DeviceServiceImpl implements DeviceService {
 
+    static final int DEFAULT_PAGE_SIZE = 100;
+
+    static final int MAX_PAGE_SIZE = 1000;
+
+    static final Set<String> SORTABLE_PROPERTIES = Set.of("id", "name", "brand", "creationTime", "version");
+
     private final DeviceRepository deviceRepository;
 
+    private final EntityManager entityManager;
+
+    private final BrandLookupCache brandLookupCache;
+
+    private final DeviceSearchIndex deviceSearchIndex;
+
+    private final DeviceStore deviceStore;
+
+    private final DeviceCountsCache deviceCountsCache;
+
+    private final DeviceChangeLog deviceChangeLog;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final DeviceMetrics deviceMetrics;
+
+    private final CacheManager cacheManager;
+
+    private final DeviceReadCoalescer deviceReadCoalescer;
+
 
     /**
-     * This method adds a new device to the DB
+     * This method adds a new device to the DB, together with its entry in the change feed
      *
      * @param createDeviceDto contains the information of a new device
      * @return the newly created device object
      */
     @Override
+    @Timed(DeviceMetrics.SERVICE_TIMER)
+    @Transactional
     public Device addDevice(CreateDeviceDto createDeviceDto) {
 
+        LocalDateTime now = LocalDateTime.now();
         Device device = Device.builder()
                 .name(createDeviceDto.getName())
                 .brand(createDeviceDto.getBrand())
-                .creationTime(LocalDateTime.now())
+                .creationTime(now)
+                .lastModified(now)
                 .build();
 
-        log.info("New {} {} has been added", createDeviceDto.getBrand(), createDeviceDto.getName());
-        return deviceRepository.save(device);
+        Device newDevice = deviceRepository.save(device);
+        DeviceChangedEvent event = DeviceChangedEvent.created(newDevice);
+        deviceChangeLog.append(List.of(event));
+        eventPublisher.publishEvent(event);
+
+        if (log.isInfoEnabled(LogMarkers.ADD_DEVICE)) {
+            log.atInfo().addMarker(LogMarkers.ADD_DEVICE)
+                    .addKeyValue("id", newDevice.getId())
+                    .addKeyValue("brand", newDevice.getBrand())
+                    .log("New device has been added");
+        }
+        return newDevice;
 
     }
 
     /**
-     * This method retrieves a device by the id from DB
+     * This method retrieves a device by the id from the device store once it is loaded, else from DB.
+     * Found devices are kept in the devices cache, so the next reads of the same id do not hit the DB.
+     * The cache holds its own copy of each device and hands out copies, so a caller changing its device does not change the cache.
+     * The device is read as a projection in a read-only transaction, it is not tracked by Hibernate.
+     * Concurrent reads of the same id share one query
      *
      * @param id the unique identifier for the device
      * @return an Optional which contains the device if found or return empty.
      */
     @Override
+    @Timed(DeviceMetrics.SERVICE_TIMER)
     public Optional<Device> getDeviceById(Long id) {
 
-        log.info("Fetching device with id: {}", id);
-        return deviceRepository.findById(id);
+        log.debug(LogMarkers.GET_DEVICE_BY_ID, "Fetching device with id: {}", id);
+        Cache cache = cacheManager.getCache(CacheConfig.DEVICES_CACHE);
+        Device cached = cache == null ? null : cache.get(id, Device.class);
+        if (cached != null) {
+            return Optional.of(cached.copy());
+        }
+
+        Optional<Device> device = deviceStore.isLoaded()
+                ? deviceStore.findById(id)
+                : deviceReadCoalescer.deviceById(id, () -> deviceRepository.findProjectedById(id));
+        if (cache != null) {
+            device.ifPresent(found -> cache.put(id, found.copy()));
+        }
+        return device;
+
+    }
+
+    /**
+     * This method retrieves the devices of many ids at once, from the device store once it is loaded, else from the
+     * devices cache and then from DB. The ids missing from the cache are read with a single IN query and the
+     * devices found are kept in the cache, as getDeviceById does
+     *
+     * @param ids the unique identifiers of the devices, at most 1000, an id may be repeated
+     * @return one result per id in the order of the ids, a missing device is marked NOT_FOUND
+     * @throws InvalidQueryException if more than 1000 ids are given
+     */
+    @Override
+    @Timed(DeviceMetrics.SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public DeviceBatchGetResultDto getDevicesByIds(List<Long> ids) {
+
+        log.debug(LogMarkers.GET_DEVICE_BY_ID, "Fetching {} devices by id", ids.size());
+        if (ids.size() > MAX_PAGE_SIZE) {
+            throw new InvalidQueryException("At most " + MAX_PAGE_SIZE + " device ids can be read at once");
+        }
+
+        Map<Long, Device> devicesById = new HashMap<>();
+        if (deviceStore.isLoaded()) {
+            for (Long id : ids) {
+                deviceStore.findById(id).ifPresent(device -> devicesById.put(id, device));
+            }
+        } else {
+            readThroughCache(new LinkedHashSet<>(ids), devicesById);
+        }
+
+        List<DeviceBatchItemDto> results = new ArrayList<>(ids.size());
+        int found = 0;
+        for (Long id : ids) {
+            Device device = devicesById.get(id);
+            if (device != null) {
+                found++;
+            }
+            results.add(DeviceBatchItemDto.builder()
+                    .id(id)
+                    .status(device == null ? DeviceBatchItemDto.Status.NOT_FOUND : DeviceBatchItemDto.Status.FOUND)
+                    .device(device)
+                    .build());
+        }
+
+        deviceMetrics.recordResultSize("getDevicesByIds", found);
+
+        return DeviceBatchGetResultDto.builder()
+                .results(results)
+                .found(found)
+                .missing(ids.size() - found)
+                .build();
 
     }
 
     /**
-     * This method retrieves all the device details from DB
+     * This method retrieves all the device details from the device store once it is loaded, else from DB.
+     * The devices are read as projections, so no entity entry or snapshot is kept for any of them
      *
      * @return a list which contains all device details
      */
     @Override
+    @Timed(DeviceMetrics.SERVICE_TIMER)
+    @Transactional(readOnly = true)
     public List<Device> getAllDevices() {
 
-        log.info("Fetching all devices");
-        return deviceRepository.findAll();
+        log.debug(LogMarkers.GET_ALL_DEVICES, "Fetching all devices");
+
+        List<Device> devices = deviceStore.isLoaded() ? deviceStore.findAll() : deviceRepository.findAllProjected();
+        deviceMetrics.recordResultSize("getAllDevices", devices.size());
+
+        return devices;
 
     }
 
     /**
-     * This method updates an existing device fully and partially in the DB
+     * This method retrieves one page of devices from DB by seeking on the id
      *
-     * @param id              the unique identifier for the device
-     * @param updateDeviceDto contains the updated information for the device
-     * @return the device object which is updated
-     * @throws DeviceNotFoundException if there is no device found with the specific id
+     * @param cursor the token returned with the previous page, or null for the first page
+     * @param size   the number of devices wanted, it is capped to 1000
+     * @return a page which contains the devices and the cursor for the next page
+     * @throws InvalidCursorException if the cursor is not a token issued by this service
      */
-
     @Override
-    public Device updateDevice(Long id, UpdateDeviceDto updateDeviceDto) {
+    @Timed(DeviceMetrics.SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public DevicePageDto getDevicesPage(String cursor, int size) {
+
+        int pageSize = size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        long afterId = cursor == null || cursor.isBlank() ? 0L : decodeCursor(cursor);
 
-        log.info("Updating device with id: {}", id);
+        log.debug("Fetching {} devices after id: {}", pageSize, afterId);
 
-        Optional<Device> optionalDevice = deviceRepository.findById(id);
+        // one extra row tells whether another page exists without a count query
+        List<Device> devices = deviceRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize + 1));
 
-        if (optionalDevice.isPresent()) {
+        String nextCursor = null;
+        if (devices.size() > pageSize) {
+            devices = devices.subList(0, pageSize);
+            nextCursor = encodeCursor(devices.get(pageSize - 1).getId());
+        }
 
-            Device device = optionalDevice.get();
-            log.info("Found device: {}", device);
+        return DevicePageDto.builder()
+                .devices(devices)
+                .size(devices.size())
+                .nextCursor(nextCursor)
+                .build();
 
-            boolean isUpdated = false;
+    }
 
-            if (updateDeviceDto.getName() != null && !updateDeviceDto.getName().equals(device.getName())) {
+    /**
+     * This method hands every device of the DB to the consumer, one at a time and in id order.
+     * Each device is detached once consumed, so the memory used stays flat regardless of the table size
+     *
+     * @param consumer receives the devices
+     */
+    @Override
+    @Timed(DeviceMetrics.SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public void streamAllDevices(Consumer<Device> consumer) {
 
-                log.info("Updating device name from '{}' to '{}'", device.getName(), updateDeviceDto.getName());
-                device.setName(updateDeviceDto.getName());
-                isUpdated = true;
+        log.debug("Streaming all devices");
 
-            }
+        try (Stream<Device> devices = deviceRepository.streamAllByOrderByIdAsc()) {
+            devices.forEach(device -> {
+                consumer.accept(device);
+                entityManager.detach(device);
+            });
+        }
 
-            if (updateDeviceDto.getBrand() != null && !updateDeviceDto.getBrand().equals(device.getBrand())) {
+    }
 
-                log.info("Updating device brand from '{}' to '{}'", device.getBrand(), updateDeviceDto.getBrand());
-                device.setBrand(updateDeviceDto.getBrand());
-                isUpdated = true;
-            }
+    /**
+     * This method updates an existing device fully and partially in the DB.
+     * Only the changed columns are written, by a single statement which also returns the updated row.
+     * The DB is read again only when no row was updated, to tell the reason apart.
+     * The device is evicted from the devices cache once the update has committed
+     *
+     * @param id              the unique identifier for the device
+     * @param updateDeviceDto contains the updated information for the device
+     * @return the device object which is updated
+     * @throws DeviceNotFoundException        if there is no device found with the specific id
+     * @throws DeviceVersionConflictException if a version is given and the device is no longer at that version
+     */
 
-            if (isUpdated) {
+    @Override
+    @Timed(DeviceMetrics.SERVICE_TIMER)
+    @Transactional
+    public Device updateDevice(Long id, UpdateDeviceDto updateDeviceDto) {
 
-                Device updatedDevice = deviceRepository.save(device);
-                log.info("Device updated successfully: {}", updatedDevice);
-                return updatedDevice;
+        log.debug(LogMarkers.UPDATE_DEVICE, "Updating device with id: {}", id);
 
-            } else {
+        Optional<DeviceRepositoryCustom.Change> change = deviceRepository.updateChangedColumns(id,
+                updateDeviceDto.getName(), updateDeviceDto.getBrand(), updateDeviceDto.getVersion());
 
-                log.info("No updates were made to the device with id: {}", id);
-                return device;
+        if (change.isPresent()) {
 
+            Device device = change.get().current();
+            DeviceChangedEvent event = DeviceChangedEvent.updated(change.get().previous(), device);
+            deviceChangeLog.append(List.of(event));
+            eventPublisher.publishEvent(event);
+            evictAfterCommit(id);
+
+            if (log.isInfoEnabled(LogMarkers.UPDATE_DEVICE)) {
+                log.atInfo().addMarker(LogMarkers.UPDATE_DEVICE)
+                        .addKeyValue("id", device.getId())
+                        .addKeyValue("brand", device.getBrand())
+                        .addKeyValue("version", device.getVersion())
+                        .log("Device updated successfully");
             }
+            return device;
 
-        } else {
+        }
 
-            String errorMessage = "Device not found with Id: " + id;
-            log.error(errorMessage);
-            throw new DeviceNotFoundException(errorMessage);
+        // no row was updated: the device is missing, at another version, or already has the given values
+        Device device = deviceRepository.findProjectedById(id).orElseThrow(() -> {
+            log.debug(LogMarkers.UPDATE_DEVICE, "Device not found with Id: {}", id);
+            return new DeviceNotFoundException(id);
+        });
 
+        if (updateDeviceDto.getVersion() != null && !updateDeviceDto.getVersion().equals(device.getVersion())) {
+            throw new DeviceVersionConflictException(id, updateDeviceDto.getVersion(), device.getVersion());
         }
+
+        log.debug(LogMarkers.UPDATE_DEVICE, "No updates were made to the device with id: {}", id);
+        return device;
+
     }
 
     /**
-     * This method deletes a device by its by id in DB
+     * This method deletes a device by its by id in DB.
+     * The device is deleted with a single statement which also returns it, so it is not loaded first.
+     * The deletion is appended to the change feed in the same transaction, the device leaves the devices cache once it has committed
      *
      * @param id of the device which needs to be deleted
      */
     @Override
+    @Timed(DeviceMetrics.SERVICE_TIMER)
+    @Transactional
     public void deleteDevice(Long id) {
-        log.info("Deleting device with id: {}", id);
-        deviceRepository.deleteById(id);
+        if (log.isInfoEnabled(LogMarkers.DELETE_DEVICE)) {
+            log.atInfo().addMarker(LogMarkers.DELETE_DEVICE)
+                    .addKeyValue("id", id)
+                    .log("Deleting device");
+        }
+        List<DeviceChangedEvent> events = deviceRepository.deleteMatching(List.of(id), null, 1).stream()
+                .map(DeviceChangedEvent::deleted)
+                .toList();
+        deviceChangeLog.append(events);
+        events.forEach(eventPublisher::publishEvent);
+        evictAfterCommit(id);
     }
 
 
     /**
-     * This method searches for the devices under a specific brand
+     * This method searches for the devices under a specific brand.
+     * Once the device store is loaded it answers every brand. Until then, brands which were searched before are answered
+     * from the brand lookup cache, the others are read as projections in a read-only transaction.
+     * Concurrent searches of the same brand share one query
      *
      * @param brand the name to be searched
      * @return a list of devices associated with the particular brand
      */
     @Override
+    @Timed(DeviceMetrics.SERVICE_TIMER)
     public List<Device> searchDeviceByBrand(String brand) {
-        log.info("Searching device by brand: {}", brand);
-        return deviceRepository.findByBrand(brand);
+        log.debug(LogMarkers.SEARCH_DEVICE_BY_BRAND, "Searching device by brand: {}", brand);
+
+        if (deviceStore.isLoaded()) {
+            List<Device> devices = deviceStore.findByBrand(brand);
+            deviceMetrics.recordResultSize("searchDeviceByBrand", devices.size());
+            return devices;
+        }
+
+        Optional<List<Device>> cachedDevices = brandLookupCache.get(brand);
+        if (cachedDevices.isPresent()) {
+            deviceMetrics.recordResultSize("searchDeviceByBrand", cachedDevices.get().size());
+            return cachedDevices.get();
+        }
+
+        List<Device> devices = deviceReadCoalescer.devicesByBrand(brand, () -> {
+            long generation = brandLookupCache.generation();
+            List<Device> brandDevices = deviceRepository.findProjectedByBrand(brand);
+            brandLookupCache.put(brand, brandDevices, generation);
+            return brandDevices;
+        });
+
+        deviceMetrics.recordResultSize("searchDeviceByBrand", devices.size());
+        return devices;
+    }
+
+    /**
+     * This method retrieves one page of the devices matching every given criterion.
+     * Without a sort the devices are ordered by id, and id is always the last sort key so the pages are stable
+     *
+     * @param deviceQueryDto the criteria, the ones not given match every device
+     * @param pageable the page wanted and its sort
+     * @return the page of matching devices with the total number of matches
+     * @throws InvalidQueryException if the sort names something other than a device column
+     */
+    @Override
+    @Timed(DeviceMetrics.SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public Page<Device> queryDevices(DeviceQueryDto deviceQueryDto, Pageable pageable) {
+        log.debug(LogMarkers.QUERY_DEVICES, "Querying devices: {} {}", deviceQueryDto, pageable);
+
+        for (Sort.Order order : pageable.getSort()) {
+            if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+                throw new InvalidQueryException("Devices cannot be sorted by: " + order.getProperty());
+            }
+        }
+
+        Sort sort = pageable.getSort().getOrderFor("id") == null ? pageable.getSort().and(Sort.by("id")) : pageable.getSort();
+        int pageSize = Math.min(pageable.getPageSize(), MAX_PAGE_SIZE);
+
+        Specification<Device> specification = Specification
+                .where(DeviceSpecifications.nameStartsWith(deviceQueryDto.getNamePrefix()))
+                .and(DeviceSpecifications.brandIn(deviceQueryDto.getBrands()))
+                .and(DeviceSpecifications.createdFrom(deviceQueryDto.getCreatedFrom()))
+                .and(DeviceSpecifications.createdBefore(deviceQueryDto.getCreatedTo()));
+
+        Page<Device> devices = deviceRepository.findAll(specification, PageRequest.of(pageable.getPageNumber(), pageSize, sort));
+
+        deviceMetrics.recordResultSize("queryDevices", devices.getNumberOfElements());
+        return devices;
+    }
+
+    /**
+     * This method searches the devices whose name and brand hold every term of the text, as whole words or word prefixes.
+     * The matching ids are ranked by the search index, only the devices of the requested page are read from the DB
+     *
+     * @param text the words or word prefixes to search, as "ipad pro" or "gal"
+     * @param page the page number, starting at 0
+     * @param size the number of devices per page, it is capped to 1000
+     * @return the devices of the page, best match first, with the total number of matches
+     * @throws InvalidQueryException if the text holds no letter or digit
+     */
+    @Override
+    @Timed(DeviceMetrics.SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public DeviceSearchPageDto searchDevicesByText(String text, int page, int size) {
+        log.debug(LogMarkers.SEARCH_DEVICES_BY_TEXT, "Searching devices by text: {}", text);
+
+        if (text == null || text.chars().noneMatch(Character::isLetterOrDigit)) {
+            throw new InvalidQueryException("Search text must contain a letter or digit");
+        }
+
+        int pageSize = size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        int pageNumber = Math.max(page, 0);
+
+        DeviceSearchIndex.Hits hits = deviceSearchIndex.search(text, (int) Math.min((long) pageNumber * pageSize, Integer.MAX_VALUE), pageSize);
+
+        List<Long> ids = new ArrayList<>(hits.ids().length);
+        for (long id : hits.ids()) {
+            ids.add(id);
+        }
+        Map<Long, Device> devicesById = deviceRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Device::getId, Function.identity()));
+
+        List<DeviceSearchHitDto> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < hits.ids().length; i++) {
+            // a device deleted after the index was searched is left out
+            Device device = devicesById.get(hits.ids()[i]);
+            if (device != null) {
+                results.add(DeviceSearchHitDto.builder().device(device).score(hits.scores()[i]).build());
+            }
+        }
+
+        deviceMetrics.recordResultSize("searchDevicesByText", results.size());
+
+        return DeviceSearchPageDto.builder()
+                .hits(results)
+                .total(hits.total())
+                .page(pageNumber)
+                .size(results.size())
+                .complete(deviceSearchIndex.isLoaded())
+                .build();
+    }
+
+    /**
+     * This method counts the devices of every brand.
+     * The counts are read from the DB once and are then kept up to date in memory by every change
+     *
+     * @return the brands with their number of devices, the biggest first
+     */
+    @Override
+    @Timed(DeviceMetrics.SERVICE_TIMER)
+    public List<BrandCountDto> countDevicesByBrand() {
+        log.debug(LogMarkers.COUNT_DEVICES, "Counting devices by brand");
+
+        Optional<List<BrandCountDto>> cachedCounts = deviceCountsCache.brandCounts();
+        if (cachedCounts.isPresent()) {
+            return cachedCounts.get();
+        }
+
+        long generation = deviceCountsCache.generation();
+        List<BrandCountDto> counts = deviceRepository.countDevicesByBrand();
+        deviceCountsCache.putBrandCounts(counts, generation);
+
+        return counts;
+    }
+
+    /**
+     * This method counts the devices created on every day of a range, the days without devices are left out.
+     * The counts are read from the DB once and are then kept up to date in memory by every change
+     *
+     * @param from the first day, or null to start at the first day having devices
+     * @param to   the day after the last one, or null to end at the last day having devices
+     * @return the days having devices with their number of devices, in day order
+     * @throws InvalidQueryException if the range ends before it starts
+     */
+    @Override
+    @Timed(DeviceMetrics.SERVICE_TIMER)
+    public List<CreationDayCountDto> countDevicesByCreationDay(LocalDate from, LocalDate to) {
+        log.debug(LogMarkers.COUNT_DEVICES, "Counting devices by creation day from {} to {}", from, to);
+
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new InvalidQueryException("The day range ends before it starts: " + from + " to " + to);
+        }
+
+        Optional<List<CreationDayCountDto>> cachedCounts = deviceCountsCache.creationDayCounts(from, to);
+        if (cachedCounts.isPresent()) {
+            return cachedCounts.get();
+        }
+
+        long generation = deviceCountsCache.generation();
+        List<CreationDayCountDto> counts = deviceRepository.countDevicesByCreationDay();
+        deviceCountsCache.putCreationDayCounts(counts, generation);
+
+        return counts.stream()
+                .filter(count -> (from == null || !count.getDay().isBefore(from)) && (to == null || count.getDay().isBefore(to)))
+                .toList();
+    }
+
+    /**
+     * This method returns the version of the devices table, which changes with every committed change of a device.
+     * It is kept in memory, so an unchanged list can be recognised without reading the DB.
+     * There is none while the device store answers reads from a snapshot whose later changes are still being replayed,
+     * as the lists it returns may then be older than the current version
+     *
+     * @return the current version of the devices table, or empty while the lists may be older than it
+     */
+    @Override
+    public OptionalLong getDevicesVersion() {
+
+        if (deviceStore.isLoaded() && !deviceStore.isComplete()) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(deviceChangeLog.version());
+
+    }
+
+    // evicted only once the change has committed, so neither a rolled back change nor the value before the commit is left cached
+    private void evictAfterCommit(Long id) {
+
+        Cache cache = cacheManager.getCache(CacheConfig.DEVICES_CACHE);
+        if (cache == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.evict(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.evict(id);
+            }
+        });
+
+    }
+
+    // the ids are distinct, the devices found in the cache or the DB are put in devicesById, the cache keeps copies of its own
+    private void readThroughCache(Set<Long> ids, Map<Long, Device> devicesById) {
+
+        Cache cache = cacheManager.getCache(CacheConfig.DEVICES_CACHE);
+        List<Long> uncachedIds = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Device device = cache == null ? null : cache.get(id, Device.class);
+            if (device != null) {
+                devicesById.put(id, device.copy());
+            } else {
+                uncachedIds.add(id);
+            }
+        }
+
+        if (uncachedIds.isEmpty()) {
+            return;
+        }
+        for (Device device : deviceRepository.findProjectedByIdIn(uncachedIds)) {
+            devicesById.put(device.getId(), device);
+            if (cache != null) {
+                cache.put(device.getId(), device.copy());
+            }
+        }
+
+    }
+
+    private static String encodeCursor(long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(id).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static long decodeCursor(String cursor) {
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidCursorException("Invalid page cursor: " + cursor);
+        }
     }
 }
@@ -0,0 +1,282 @@
+package com.devicemanagement.service.impl;
+
+import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.dto.DeviceSubmissionDto;
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.exception.SubmissionQueueFullException;
+import com.devicemanagement.metrics.DeviceMetrics;
+import com.devicemanagement.service.DeviceBulkService;
+import com.devicemanagement.service.DeviceSubmissionService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This is the implementation class for Device Submission Service Interface.
+ * Submitted devices are put in a bounded queue and the request returns at once, a full queue rejects the submission.
+ * A single writer thread drains the queue and writes what it took in one transaction of at most a batch of devices,
+ * so a burst of submissions turns into a few batched transactions on one connection instead of a transaction and
+ * a connection per request. A batch which fails is written again one device per transaction, so a bad device only fails
+ * its own submission. The queued submissions are kept until they are written, and then for a while longer to be polled
+ * by the client.
+ * The queue is drained before the application stops, once the web server no longer takes requests.
+ * The logging is done by @Slf4j
+ */
+
+@Slf4j
+@Service
+public class DeviceSubmissionServiceImpl implements DeviceSubmissionService, SmartLifecycle {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final DeviceBulkService deviceBulkService;
+
+    private final DeviceMetrics deviceMetrics;
+
+    private final BlockingQueue<Submission> queue;
+
+    // queued or being written, never evicted: at most the queue and the batch in flight
+    private final Map<String, Submission> pending = new ConcurrentHashMap<>();
+
+    // persisted or failed, forgotten after the retention
+    private final Cache<String, Submission> done;
+
+    private final int capacity;
+
+    private final int batchSize;
+
+    private volatile boolean running;
+
+    private Thread writer;
+
+    /**
+     * A submitted device and its state, the state is written by the writer thread and read by the requests
+     */
+    private static final class Submission {
+
+        private final String id = UUID.randomUUID().toString();
+
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+
+        private final CreateDeviceDto createDeviceDto;
+
+        private volatile DeviceSubmissionDto.Status status = DeviceSubmissionDto.Status.QUEUED;
+
+        private volatile Long deviceId;
+
+        private volatile String error;
+
+        private Submission(CreateDeviceDto createDeviceDto) {
+            this.createDeviceDto = createDeviceDto;
+        }
+
+        private DeviceSubmissionDto toDto() {
+            return DeviceSubmissionDto.builder()
+                    .id(id)
+                    .status(status)
+                    .submittedAt(submittedAt)
+                    .deviceId(deviceId)
+                    .error(error)
+                    .build();
+        }
+    }
+
+    public DeviceSubmissionServiceImpl(DeviceBulkService deviceBulkService,
+                                       DeviceMetrics deviceMetrics,
+                                       @Value("${device.submissions.capacity:10000}") int capacity,
+                                       @Value("${device.bulk.batch-size:500}") int batchSize,
+                                       @Value("${device.submissions.retention:10m}") Duration retention) {
+        this.deviceBulkService = deviceBulkService;
+        this.deviceMetrics = deviceMetrics;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.done = Caffeine.newBuilder()
+                .maximumSize(Math.max(100_000L, capacity * 2L))
+                .expireAfterWrite(retention)
+                .build();
+        deviceMetrics.registerSubmissionQueue(queue);
+    }
+
+
+    /**
+     * This method puts a device in the write-behind queue, it is persisted later by the writer thread
+     *
+     * @param createDeviceDto contains the information of a new device, it must already be valid
+     * @return the submission, queued, with the id to follow it by
+     * @throws SubmissionQueueFullException if the queue holds as many devices as it can
+     */
+    @Override
+    public DeviceSubmissionDto submitDevice(CreateDeviceDto createDeviceDto) {
+
+        Submission submission = new Submission(createDeviceDto);
+        pending.put(submission.id, submission);
+
+        if (!running || !queue.offer(submission)) {
+            pending.remove(submission.id);
+            throw new SubmissionQueueFullException(capacity);
+        }
+
+        log.debug("Device submitted with id: {}", submission.id);
+        return submission.toDto();
+
+    }
+
+    /**
+     * This method returns the state of a submitted device
+     *
+     * @param id the id of the submission
+     * @return the submission if it is known, written submissions are forgotten after device.submissions.retention
+     */
+    @Override
+    public Optional<DeviceSubmissionDto> getSubmission(String id) {
+
+        // pending is read first, a submission is put in done before it leaves pending
+        Submission submission = pending.get(id);
+        if (submission == null) {
+            submission = done.getIfPresent(id);
+        }
+        return Optional.ofNullable(submission).map(Submission::toDto);
+
+    }
+
+    @Override
+    public void start() {
+
+        running = true;
+        writer = new Thread(this::drain, "device-submission-writer");
+        writer.start();
+
+    }
+
+    @Override
+    public void stop() {
+
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // stopped after the web server, so the submissions accepted until then are still written
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void drain() {
+
+        List<Submission> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                if (writeBatch(batch)) {
+                    batch.clear();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        log.info("Device submission writer stopped");
+
+    }
+
+    /**
+     * Waits a moment for a submission, then takes every submission queued meanwhile up to a batch and writes them together
+     */
+    private boolean writeBatch(List<Submission> batch) throws InterruptedException {
+
+        Submission first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return false;
+        }
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+
+        List<CreateDeviceDto> createDeviceDtos = new ArrayList<>(batch.size());
+        batch.forEach(submission -> createDeviceDtos.add(submission.createDeviceDto));
+
+        try {
+
+            List<Device> devices = deviceBulkService.writeDevices(createDeviceDtos);
+            for (int i = 0; i < batch.size(); i++) {
+                persisted(batch.get(i), devices.get(i));
+            }
+            deviceMetrics.submissionBatch(batch.size(), true);
+
+        } catch (RuntimeException ex) {
+
+            if (batch.size() == 1) {
+                log.warn("Writing a submitted device failed", ex);
+                failed(batch.get(0), ex);
+                return true;
+            }
+
+            log.warn("Writing {} submitted devices failed, they are written one at a time", batch.size(), ex);
+            long failed = batch.stream().filter(submission -> !writeAlone(submission)).count();
+            if (failed > 0) {
+                log.warn("{} of {} submitted devices could not be written", failed, batch.size());
+            }
+
+        }
+        return true;
+
+    }
+
+    private boolean writeAlone(Submission submission) {
+
+        try {
+            persisted(submission, deviceBulkService.writeDevices(List.of(submission.createDeviceDto)).get(0));
+            deviceMetrics.submissionBatch(1, true);
+            return true;
+        } catch (RuntimeException ex) {
+            log.debug("Writing the submitted device {} failed", submission.id, ex);
+            failed(submission, ex);
+            return false;
+        }
+
+    }
+
+    private void persisted(Submission submission, Device device) {
+        submission.deviceId = device.getId();
+        submission.status = DeviceSubmissionDto.Status.PERSISTED;
+        finish(submission);
+    }
+
+    private void failed(Submission submission, RuntimeException ex) {
+        submission.error = ex.getMessage();
+        submission.status = DeviceSubmissionDto.Status.FAILED;
+        deviceMetrics.submissionBatch(1, false);
+        finish(submission);
+    }
+
+    private void finish(Submission submission) {
+        done.put(submission.id, submission);
+        pending.remove(submission.id);
+    }
+}
@@ -0,0 +1,325 @@
+package com.devicemanagement.store;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * This is the binary snapshot of the DeviceStore, written to a file and mapped back read-only by a starting node.
+ * The file holds a header with the change feed offset the snapshot is complete up to and the brand dictionary,
+ * then the columns one after the other in id order: ids, creation times, last modified times, versions,
+ * brand codes, the end of every name in the name bytes, and the UTF-8 name bytes.
+ * Every column is mapped on its own, so the rows are read from the page cache without being copied to the heap first.
+ * A null name is marked by the bitwise complement of its end
+ * */
+
+final class DeviceSnapshot {
+
+    private static final int MAGIC = 0x44455653;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final long changeOffset;
+
+    private final List<String> brands;
+
+    private final int size;
+
+    private final LongBuffer ids;
+
+    private final LongBuffer creationTimes;
+
+    private final LongBuffer lastModifiedTimes;
+
+    private final LongBuffer versions;
+
+    private final IntBuffer brandCodes;
+
+    private final IntBuffer nameEnds;
+
+    private final ByteBuffer names;
+
+    /**
+     * The rows to write, in id order, with the brands as codes into the dictionary written with them
+     * */
+    interface Rows {
+
+        int size();
+
+        long id(int row);
+
+        String name(int row);
+
+        int brandCode(int row);
+
+        long creationTime(int row);
+
+        long lastModifiedTime(int row);
+
+        long version(int row);
+    }
+
+    private DeviceSnapshot(long changeOffset, List<String> brands, int size, LongBuffer ids, LongBuffer creationTimes,
+                           LongBuffer lastModifiedTimes, LongBuffer versions, IntBuffer brandCodes, IntBuffer nameEnds, ByteBuffer names) {
+        this.changeOffset = changeOffset;
+        this.brands = brands;
+        this.size = size;
+        this.ids = ids;
+        this.creationTimes = creationTimes;
+        this.lastModifiedTimes = lastModifiedTimes;
+        this.versions = versions;
+        this.brandCodes = brandCodes;
+        this.nameEnds = nameEnds;
+        this.names = names;
+    }
+
+    /**
+     * This method maps a snapshot file, only the header and the brand dictionary are read
+     *
+     * @param file the snapshot file
+     * @return the snapshot, its rows stay valid after the file is replaced by a newer snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot of this format
+     */
+    static DeviceSnapshot map(Path file) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            ByteBuffer header = ByteBuffer.allocate(24);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a device snapshot of format " + FORMAT_VERSION + ": " + file);
+            }
+            long changeOffset = header.getLong();
+            int size = header.getInt();
+            int brandCount = header.getInt();
+
+            long position = header.capacity();
+            List<String> brands = new ArrayList<>(brandCount);
+            for (int i = 0; i < brandCount; i++) {
+                ByteBuffer length = ByteBuffer.allocate(4);
+                readFully(channel, length, position);
+                ByteBuffer brand = ByteBuffer.allocate(length.flip().getInt());
+                readFully(channel, brand, position + 4);
+                brands.add(new String(brand.array(), StandardCharsets.UTF_8));
+                position += 4 + brand.capacity();
+            }
+            position = align(position);
+
+            LongBuffer ids = channel.map(FileChannel.MapMode.READ_ONLY, position, 8L * size).asLongBuffer();
+            position += 8L * size;
+            LongBuffer creationTimes = channel.map(FileChannel.MapMode.READ_ONLY, position, 8L * size).asLongBuffer();
+            position += 8L * size;
+            LongBuffer lastModifiedTimes = channel.map(FileChannel.MapMode.READ_ONLY, position, 8L * size).asLongBuffer();
+            position += 8L * size;
+            LongBuffer versions = channel.map(FileChannel.MapMode.READ_ONLY, position, 8L * size).asLongBuffer();
+            position += 8L * size;
+            IntBuffer brandCodes = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * size).asIntBuffer();
+            position += 4L * size;
+            IntBuffer nameEnds = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * size).asIntBuffer();
+            position += 4L * size;
+
+            int nameBytes = size == 0 ? 0 : decodeEnd(nameEnds.get(size - 1));
+            if (position + nameBytes != channel.size()) {
+                throw new IOException("Truncated device snapshot: " + file);
+            }
+            ByteBuffer names = channel.map(FileChannel.MapMode.READ_ONLY, position, nameBytes);
+
+            return new DeviceSnapshot(changeOffset, List.copyOf(brands), size, ids, creationTimes, lastModifiedTimes, versions, brandCodes, nameEnds, names);
+
+        }
+
+    }
+
+    /**
+     * This method writes a snapshot next to the file and then moves it over the file, so a reader never sees half of it.
+     * The written file is forced to the disk before the move, so a crash cannot leave the moved file without its content
+     *
+     * @param file         the snapshot file
+     * @param changeOffset the offset of the change feed every change up to which is in the rows
+     * @param brands       the brand dictionary of the brand codes
+     * @param rows         the rows in id order
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Path file, long changeOffset, List<String> brands, Rows rows) throws IOException {
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+        try {
+
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16))) {
+
+                int size = rows.size();
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(changeOffset);
+                out.writeInt(size);
+                out.writeInt(brands.size());
+                for (String brand : brands) {
+                    byte[] bytes = brand.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                while (out.size() % 8 != 0) {
+                    out.writeByte(0);
+                }
+
+                for (int row = 0; row < size; row++) {
+                    out.writeLong(rows.id(row));
+                }
+                for (int row = 0; row < size; row++) {
+                    out.writeLong(rows.creationTime(row));
+                }
+                for (int row = 0; row < size; row++) {
+                    out.writeLong(rows.lastModifiedTime(row));
+                }
+                for (int row = 0; row < size; row++) {
+                    out.writeLong(rows.version(row));
+                }
+                for (int row = 0; row < size; row++) {
+                    out.writeInt(rows.brandCode(row));
+                }
+
+                long end = 0;
+                for (int row = 0; row < size; row++) {
+                    String name = rows.name(row);
+                    end += name == null ? 0 : name.getBytes(StandardCharsets.UTF_8).length;
+                    if (end > Integer.MAX_VALUE) {
+                        throw new IOException("The device names take more than 2 GB, they do not fit in a snapshot");
+                    }
+                    out.writeInt(name == null ? ~(int) end : (int) end);
+                }
+                for (int row = 0; row < size; row++) {
+                    String name = rows.name(row);
+                    if (name != null) {
+                        out.write(name.getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+
+                out.flush();
+                channel.force(true);
+
+            }
+
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            forceDirectory(directory);
+
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+
+    }
+
+    // makes the move itself durable, not every platform can open a directory, the snapshot is then only as durable as the rename
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            // the file content is on the disk already, at worst the previous snapshot is found after a crash
+        }
+    }
+
+    long changeOffset() {
+        return changeOffset;
+    }
+
+    List<String> brands() {
+        return brands;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the row of the id found by a binary search over the id column, or -1 when the snapshot does not hold it
+     */
+    int rowOf(long id) {
+
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = ids.get(middle);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+
+    }
+
+    long id(int row) {
+        return ids.get(row);
+    }
+
+    String name(int row) {
+
+        int end = nameEnds.get(row);
+        if (end < 0) {
+            return null;
+        }
+        int start = row == 0 ? 0 : decodeEnd(nameEnds.get(row - 1));
+        byte[] bytes = new byte[end - start];
+        names.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+
+    }
+
+    int brandCode(int row) {
+        return brandCodes.get(row);
+    }
+
+    long creationTime(int row) {
+        return creationTimes.get(row);
+    }
+
+    long lastModifiedTime(int row) {
+        return lastModifiedTimes.get(row);
+    }
+
+    long version(int row) {
+        return versions.get(row);
+    }
+
+    private static int decodeEnd(int end) {
+        return end < 0 ? ~end : end;
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated device snapshot");
+            }
+        }
+    }
+}
@@ -0,0 +1,753 @@
+package com.devicemanagement.store;
+
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.event.DeviceChangedEvent;
+import com.devicemanagement.loading.LoadableDeviceView;
+import com.devicemanagement.loading.LoadingState;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ * This is the read-optimized in-memory copy of the devices table which serves the reads by id, by brand and of all devices.
+ * The devices are kept column by column in primitive arrays, one row per device, instead of as Device objects:
+ * the ids and versions are longs, the times are microseconds since the epoch in UTC, the precision of the timestamp
+ * columns, and the brands are codes into a dictionary of the distinct brands, which are few.
+ * A row costs the name string and about 60 bytes, where a Device costs about 300 bytes with its boxed longs,
+ * its LocalDateTimes and its own brand string.
+ * The id of a device finds its row through a primitive open-addressing map. Devices are handed out as new Device
+ * objects, so callers cannot change the store.
+ * The rows are appended in id order as the DB hands out the ids. A device committed after one with a higher id goes
+ * to a tail of rows which the reads sort on their own, so a read never reorganizes the store; a write compacts it
+ * once the tail has grown too long.
+ * It is filled by DeviceStoreLoader at startup and kept up to date with the DeviceChangedEvents, like DeviceSearchIndex.
+ * It can also be restored from a DeviceSnapshot file, whose rows stay off the heap in the mapped file: the devices
+ * changed since then shadow their snapshot row and are kept in the heap columns, the reads merge both in id order.
+ * */
+
+@Component
+public class DeviceStore implements LoadableDeviceView {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final long NULL_LONG = Long.MIN_VALUE;
+
+    private static final int NULL_BRAND = -1;
+
+    private static final int ANY_BRAND = Integer.MIN_VALUE;
+
+    private final Map<String, Integer> brandCodes = new HashMap<>();
+
+    private final List<String> brands = new ArrayList<>();
+
+    private final LongIntHashMap rowsById = new LongIntHashMap(INITIAL_CAPACITY);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // the columns, a row whose id is 0 belongs to a removed device
+    private long[] ids = new long[INITIAL_CAPACITY];
+
+    private String[] names = new String[INITIAL_CAPACITY];
+
+    private int[] brandColumn = new int[INITIAL_CAPACITY];
+
+    private long[] creationTimes = new long[INITIAL_CAPACITY];
+
+    private long[] lastModifiedTimes = new long[INITIAL_CAPACITY];
+
+    private long[] versions = new long[INITIAL_CAPACITY];
+
+    private int rows;
+
+    // the snapshot the store was restored from, null when it was loaded from the DB
+    private DeviceSnapshot snapshot;
+
+    private BitSet shadowedSnapshotRows = new BitSet();
+
+    private int shadowedSnapshotCount;
+
+    private int removedRows;
+
+    // the rows below are in id order, the rows from it on are the tail added out of id order
+    private int orderedRows;
+
+    private long lastOrderedId;
+
+    private final LoadingState loading = new LoadingState();
+
+    @Order(DeviceChangedEvent.VIEW_LISTENER_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+
+        lock.writeLock().lock();
+        try {
+            loading.changed(event.getDeviceId());
+            if (event.getDevice() != null) {
+                put(event.getDevice());
+            } else {
+                remove(event.getDeviceId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+    }
+
+    @Override
+    public void startLoading() {
+
+        lock.writeLock().lock();
+        try {
+            loading.start();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+    }
+
+    @Override
+    public void load(List<Device> devices) {
+
+        lock.writeLock().lock();
+        try {
+            for (Device device : devices) {
+                if (!loading.changedSinceStart(device.getId())) {
+                    put(device);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+    }
+
+    @Override
+    public void finishLoading() {
+
+        lock.writeLock().lock();
+        try {
+            loading.finish();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+    }
+
+    /**
+     * This method makes the devices of a snapshot the content of the empty store, so it answers reads right away.
+     * The store then counts as loaded, but not as complete: the changes made since the snapshot are replayed on it until finishLoading
+     *
+     * @param snapshot the mapped snapshot
+     * @throws IllegalStateException if the store already holds devices
+     */
+    void restore(DeviceSnapshot snapshot) {
+
+        lock.writeLock().lock();
+        try {
+
+            if (rows > 0 || this.snapshot != null || !brands.isEmpty()) {
+                throw new IllegalStateException("A snapshot can only be restored into an empty device store");
+            }
+
+            this.snapshot = snapshot;
+            shadowedSnapshotRows = new BitSet(snapshot.size());
+            shadowedSnapshotCount = 0;
+            snapshot.brands().forEach(this::brandCode);
+
+            loading.startCatchingUp();
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+    }
+
+    /**
+     * This method applies changes read from the change feed, leaving out the devices changed since loading started
+     *
+     * @param events the changes, in offset order
+     */
+    void replay(List<DeviceChangedEvent> events) {
+
+        lock.writeLock().lock();
+        try {
+            for (DeviceChangedEvent event : events) {
+                if (!loading.changedSinceStart(event.getDeviceId())) {
+                    if (event.getDevice() != null) {
+                        put(event.getDevice());
+                    } else {
+                        remove(event.getDeviceId());
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+    }
+
+    /**
+     * This method writes the devices to a snapshot file.
+     * The heap columns are copied under the read lock, the file is written after it is released,
+     * so the changes of the devices only wait for the copy
+     *
+     * @param file         the snapshot file, it is replaced as a whole
+     * @param changeOffset the offset of the change feed every change up to which has been applied to the store
+     * @return false when nothing was written, as the store is not loaded or still replays changes
+     * @throws IOException if the file cannot be written
+     */
+    boolean writeSnapshot(Path file, long changeOffset) throws IOException {
+
+        SnapshotRows snapshotRows;
+        List<String> brandDictionary;
+
+        lock.readLock().lock();
+        try {
+
+            if (!loading.isComplete()) {
+                return false;
+            }
+
+            snapshotRows = copyInIdOrder();
+            brandDictionary = List.copyOf(brands);
+
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        snapshotRows.merge();
+        DeviceSnapshot.write(file, changeOffset, brandDictionary, snapshotRows);
+        return true;
+
+    }
+
+    // the live heap rows copied in id order together with the snapshot rows which are not shadowed
+    private SnapshotRows copyInIdOrder() {
+
+        int live = rows - removedRows;
+        long[] copiedIds = new long[live];
+        String[] copiedNames = new String[live];
+        int[] copiedBrands = new int[live];
+        long[] copiedCreationTimes = new long[live];
+        long[] copiedLastModifiedTimes = new long[live];
+        long[] copiedVersions = new long[live];
+
+        HeapRows heapRows = new HeapRows(ANY_BRAND);
+        for (int copied = 0, row = heapRows.current(); row >= 0; copied++, row = heapRows.advance()) {
+            copiedIds[copied] = ids[row];
+            copiedNames[copied] = names[row];
+            copiedBrands[copied] = brandColumn[row];
+            copiedCreationTimes[copied] = creationTimes[row];
+            copiedLastModifiedTimes[copied] = lastModifiedTimes[row];
+            copiedVersions[copied] = versions[row];
+        }
+
+        return new SnapshotRows(copiedIds, copiedNames, copiedBrands, copiedCreationTimes, copiedLastModifiedTimes, copiedVersions,
+                snapshot, (BitSet) shadowedSnapshotRows.clone());
+
+    }
+
+    /**
+     * @return true once every device of the DB has been added, the store can then answer reads instead of the DB
+     */
+    @Override
+    public boolean isLoaded() {
+        return loading.isLoaded();
+    }
+
+    /**
+     * @return true once the store also holds every change made since it was restored from a snapshot,
+     * a restored store answers reads before, but with the devices as they were in the snapshot until their change is replayed
+     */
+    public boolean isComplete() {
+        return loading.isComplete();
+    }
+
+    /**
+     * @return the number of devices held
+     */
+    public int size() {
+
+        lock.readLock().lock();
+        try {
+            return count();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+    }
+
+    /**
+     * This method finds a device by its id
+     *
+     * @param id the unique identifier of the device
+     * @return an Optional which contains a copy of the device if held, always empty for an id below 1 as the DB never hands one out
+     */
+    public Optional<Device> findById(Long id) {
+
+        if (id == null || id <= 0) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            int row = rowsById.get(id);
+            if (row != LongIntHashMap.MISSING) {
+                return Optional.of(device(row));
+            }
+            int snapshotRow = snapshotRowOf(id);
+            return snapshotRow < 0 ? Optional.empty() : Optional.of(snapshotDevice(snapshotRow));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+    }
+
+    /**
+     * This method finds the devices of a brand by scanning the brand codes, without comparing any string
+     *
+     * @param brand the brand of the devices
+     * @return copies of the devices of the brand in id order
+     */
+    public List<Device> findByBrand(String brand) {
+
+        lock.readLock().lock();
+        try {
+
+            Integer brandCode = brand == null ? null : brandCodes.get(brand);
+            if (brandCode == null) {
+                return new ArrayList<>();
+            }
+
+            return collect(brandCode, new ArrayList<>());
+
+        } finally {
+            lock.readLock().unlock();
+        }
+
+    }
+
+    /**
+     * @return copies of all the devices in id order
+     */
+    public List<Device> findAll() {
+
+        lock.readLock().lock();
+        try {
+
+            return collect(ANY_BRAND, new ArrayList<>(count()));
+
+        } finally {
+            lock.readLock().unlock();
+        }
+
+    }
+
+    private int count() {
+        return rows - removedRows + (snapshot == null ? 0 : snapshot.size() - shadowedSnapshotCount);
+    }
+
+    // merges the heap rows and the rows of the snapshot which are not shadowed, both are in id order
+    private List<Device> collect(int code, List<Device> devices) {
+
+        int snapshotSize = snapshot == null ? 0 : snapshot.size();
+        HeapRows heapRows = new HeapRows(code);
+        int row = heapRows.current();
+        int snapshotRow = nextSnapshotRow(0, code);
+
+        while (row >= 0 || snapshotRow < snapshotSize) {
+            if (snapshotRow == snapshotSize || (row >= 0 && ids[row] < snapshot.id(snapshotRow))) {
+                devices.add(device(row));
+                row = heapRows.advance();
+            } else {
+                devices.add(snapshotDevice(snapshotRow));
+                snapshotRow = nextSnapshotRow(snapshotRow + 1, code);
+            }
+        }
+        return devices;
+
+    }
+
+    private boolean matches(int row, int code) {
+        return ids[row] != 0 && (code == ANY_BRAND || brandColumn[row] == code);
+    }
+
+    private int nextSnapshotRow(int from, int code) {
+
+        if (snapshot == null) {
+            return 0;
+        }
+        for (int row = shadowedSnapshotRows.nextClearBit(from); row < snapshot.size(); row = shadowedSnapshotRows.nextClearBit(row + 1)) {
+            if (code == ANY_BRAND || snapshot.brandCode(row) == code) {
+                return row;
+            }
+        }
+        return snapshot.size();
+
+    }
+
+    // the row of the id in the snapshot, or -1 when the snapshot does not hold it or it was changed since
+    private int snapshotRowOf(long id) {
+        if (snapshot == null) {
+            return -1;
+        }
+        int row = snapshot.rowOf(id);
+        return row < 0 || shadowedSnapshotRows.get(row) ? -1 : row;
+    }
+
+    private void shadowSnapshotRow(long id) {
+        int row = snapshotRowOf(id);
+        if (row >= 0) {
+            shadowedSnapshotRows.set(row);
+            shadowedSnapshotCount++;
+        }
+    }
+
+    private void put(Device device) {
+
+        long id = device.getId();
+        int row = rowsById.get(id);
+
+        boolean added = row == LongIntHashMap.MISSING;
+        if (added) {
+            shadowSnapshotRow(id);
+            ensureCapacity();
+            row = rows++;
+            if (orderedRows == row && id > lastOrderedId) {
+                orderedRows = rows;
+                lastOrderedId = id;
+            }
+            ids[row] = id;
+            rowsById.put(id, row);
+        }
+
+        names[row] = device.getName();
+        brandColumn[row] = brandCode(device.getBrand());
+        creationTimes[row] = toMicros(device.getCreationTime());
+        lastModifiedTimes[row] = toMicros(device.getLastModified());
+        versions[row] = device.getVersion() == null ? NULL_LONG : device.getVersion();
+
+        // every read sorts the tail, it is kept short against the number of rows
+        if (added && rows - orderedRows > Math.max(INITIAL_CAPACITY, rows >> 6)) {
+            compact();
+        }
+
+    }
+
+    private void remove(long id) {
+
+        shadowSnapshotRow(id);
+        int row = rowsById.remove(id);
+        if (row == LongIntHashMap.MISSING) {
+            return;
+        }
+
+        ids[row] = 0;
+        names[row] = null;
+        removedRows++;
+
+        if (removedRows > INITIAL_CAPACITY && removedRows > rows / 2) {
+            compact();
+        }
+
+    }
+
+    /**
+     * Drops the rows of removed devices and puts the others in id order, then maps the ids to their new rows.
+     * The live ids are sorted as primitives and each one finds its old row through the map, so no row object is made
+     */
+    private void compact() {
+
+        int live = rows - removedRows;
+        long[] sortedIds = new long[live];
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            if (ids[row] != 0) {
+                sortedIds[count++] = ids[row];
+            }
+        }
+        if (orderedRows < rows) {
+            Arrays.sort(sortedIds);
+        }
+
+        int capacity = Math.max(INITIAL_CAPACITY, live + (live >> 1));
+        String[] newNames = new String[capacity];
+        int[] newBrands = new int[capacity];
+        long[] newCreationTimes = new long[capacity];
+        long[] newLastModifiedTimes = new long[capacity];
+        long[] newVersions = new long[capacity];
+
+        for (int row = 0; row < live; row++) {
+            int oldRow = rowsById.get(sortedIds[row]);
+            newNames[row] = names[oldRow];
+            newBrands[row] = brandColumn[oldRow];
+            newCreationTimes[row] = creationTimes[oldRow];
+            newLastModifiedTimes[row] = lastModifiedTimes[oldRow];
+            newVersions[row] = versions[oldRow];
+        }
+
+        rowsById.clear(live);
+        for (int row = 0; row < live; row++) {
+            rowsById.put(sortedIds[row], row);
+        }
+
+        ids = Arrays.copyOf(sortedIds, capacity);
+        names = newNames;
+        brandColumn = newBrands;
+        creationTimes = newCreationTimes;
+        lastModifiedTimes = newLastModifiedTimes;
+        versions = newVersions;
+        rows = live;
+        removedRows = 0;
+        orderedRows = live;
+        lastOrderedId = live == 0 ? 0 : sortedIds[live - 1];
+
+    }
+
+    private void ensureCapacity() {
+
+        if (rows < ids.length) {
+            return;
+        }
+
+        int capacity = ids.length + (ids.length >> 1);
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        brandColumn = Arrays.copyOf(brandColumn, capacity);
+        creationTimes = Arrays.copyOf(creationTimes, capacity);
+        lastModifiedTimes = Arrays.copyOf(lastModifiedTimes, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+
+    }
+
+    private int brandCode(String brand) {
+
+        if (brand == null) {
+            return NULL_BRAND;
+        }
+
+        Integer code = brandCodes.get(brand);
+        if (code == null) {
+            code = brands.size();
+            brands.add(brand);
+            brandCodes.put(brand, code);
+        }
+        return code;
+
+    }
+
+    private Device device(int row) {
+        return device(ids[row], names[row], brandColumn[row], creationTimes[row], lastModifiedTimes[row], versions[row]);
+    }
+
+    private Device snapshotDevice(int row) {
+        return device(snapshot.id(row), snapshot.name(row), snapshot.brandCode(row), snapshot.creationTime(row),
+                snapshot.lastModifiedTime(row), snapshot.version(row));
+    }
+
+    private Device device(long id, String name, int brandCode, long creationTime, long lastModifiedTime, long version) {
+        return Device.builder()
+                .id(id)
+                .name(name)
+                .brand(brandCode == NULL_BRAND ? null : brands.get(brandCode))
+                .creationTime(fromMicros(creationTime))
+                .lastModified(fromMicros(lastModifiedTime))
+                .version(version == NULL_LONG ? null : version)
+                .build();
+    }
+
+    private static long toMicros(LocalDateTime time) {
+        return time == null ? NULL_LONG : time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return micros == NULL_LONG ? null
+                : LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000), (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Walks the heap rows of a brand in id order, under the read lock: the ordered rows as they are, merged with the
+     * tail rows, which are sorted by id for this walk only
+     */
+    private final class HeapRows {
+
+        private final int code;
+
+        private final int[] tail;
+
+        private int tailIndex;
+
+        private int orderedRow;
+
+        private HeapRows(int code) {
+
+            this.code = code;
+
+            long[] tailIds = new long[rows - orderedRows];
+            int count = 0;
+            for (int row = orderedRows; row < rows; row++) {
+                if (matches(row, code)) {
+                    tailIds[count++] = ids[row];
+                }
+            }
+            Arrays.sort(tailIds, 0, count);
+            tail = new int[count];
+            for (int i = 0; i < count; i++) {
+                tail[i] = rowsById.get(tailIds[i]);
+            }
+
+            orderedRow = nextOrderedRow(0);
+
+        }
+
+        /**
+         * @return the row with the lowest id not walked yet, or -1 when every row was walked
+         */
+        private int current() {
+
+            boolean ordered = orderedRow < orderedRows;
+            if (!ordered && tailIndex == tail.length) {
+                return -1;
+            }
+            return ordered && (tailIndex == tail.length || ids[orderedRow] < ids[tail[tailIndex]]) ? orderedRow : tail[tailIndex];
+
+        }
+
+        /**
+         * @return the next row, as current() after the current row was walked
+         */
+        private int advance() {
+
+            int row = current();
+            if (row == orderedRow) {
+                orderedRow = nextOrderedRow(orderedRow + 1);
+            } else {
+                tailIndex++;
+            }
+            return current();
+
+        }
+
+        private int nextOrderedRow(int from) {
+            for (int row = from; row < orderedRows; row++) {
+                if (matches(row, code)) {
+                    return row;
+                }
+            }
+            return orderedRows;
+        }
+    }
+
+    /**
+     * The copied heap rows and the snapshot rows which are not shadowed, merged in id order.
+     * A merged row holds the heap row, or the bitwise complement of the snapshot row
+     */
+    private static final class SnapshotRows implements DeviceSnapshot.Rows {
+
+        private final long[] ids;
+
+        private final String[] names;
+
+        private final int[] brandColumn;
+
+        private final long[] creationTimes;
+
+        private final long[] lastModifiedTimes;
+
+        private final long[] versions;
+
+        private final DeviceSnapshot snapshot;
+
+        private final BitSet shadowedSnapshotRows;
+
+        private int[] merged;
+
+        private SnapshotRows(long[] ids, String[] names, int[] brandColumn, long[] creationTimes, long[] lastModifiedTimes,
+                             long[] versions, DeviceSnapshot snapshot, BitSet shadowedSnapshotRows) {
+            this.ids = ids;
+            this.names = names;
+            this.brandColumn = brandColumn;
+            this.creationTimes = creationTimes;
+            this.lastModifiedTimes = lastModifiedTimes;
+            this.versions = versions;
+            this.snapshot = snapshot;
+            this.shadowedSnapshotRows = shadowedSnapshotRows;
+        }
+
+        private void merge() {
+
+            int snapshotSize = snapshot == null ? 0 : snapshot.size();
+            int[] order = new int[ids.length + snapshotSize - shadowedSnapshotRows.cardinality()];
+            int count = 0;
+
+            int row = 0;
+            int snapshotRow = shadowedSnapshotRows.nextClearBit(0);
+            while (true) {
+                while (row < ids.length && ids[row] == 0) {
+                    row++;
+                }
+                if (row == ids.length && snapshotRow >= snapshotSize) {
+                    break;
+                }
+                if (snapshotRow >= snapshotSize || (row < ids.length && ids[row] < snapshot.id(snapshotRow))) {
+                    order[count++] = row++;
+                } else {
+                    order[count++] = ~snapshotRow;
+                    snapshotRow = shadowedSnapshotRows.nextClearBit(snapshotRow + 1);
+                }
+            }
+            merged = Arrays.copyOf(order, count);
+
+        }
+
+        @Override
+        public int size() {
+            return merged.length;
+        }
+
+        @Override
+        public long id(int row) {
+            return merged[row] >= 0 ? ids[merged[row]] : snapshot.id(~merged[row]);
+        }
+
+        @Override
+        public String name(int row) {
+            return merged[row] >= 0 ? names[merged[row]] : snapshot.name(~merged[row]);
+        }
+
+        @Override
+        public int brandCode(int row) {
+            return merged[row] >= 0 ? brandColumn[merged[row]] : snapshot.brandCode(~merged[row]);
+        }
+
+        @Override
+        public long creationTime(int row) {
+            return merged[row] >= 0 ? creationTimes[merged[row]] : snapshot.creationTime(~merged[row]);
+        }
+
+        @Override
+        public long lastModifiedTime(int row) {
+            return merged[row] >= 0 ? lastModifiedTimes[merged[row]] : snapshot.lastModifiedTime(~merged[row]);
+        }
+
+        @Override
+        public long version(int row) {
+            return merged[row] >= 0 ? versions[merged[row]] : snapshot.version(~merged[row]);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.devicemanagement.store;
+
+import com.devicemanagement.dto.DeviceChangePageDto;
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.entity.DeviceChange;
+import com.devicemanagement.event.DeviceChangedEvent;
+import com.devicemanagement.loading.DeviceViewLoader;
+import com.devicemanagement.repository.DeviceRepository;
+import com.devicemanagement.service.DeviceChangeService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This is the component which fills the DeviceStore with the devices of the DB once the application is ready.
+ * The devices are read page by page in id order on a background thread, the reads are served by the DB until it is done.
+ * When device.store.snapshot-file holds a snapshot written by DeviceStoreSnapshotWriter, the store is restored from it
+ * instead and answers reads at once. The changes made since the snapshot are then replayed from the change feed.
+ * The logging is done by @Slf4j
+ * */
+
+@Slf4j
+@Component
+public class DeviceStoreLoader {
+
+    private final DeviceStore deviceStore;
+
+    private final DeviceViewLoader viewLoader;
+
+    private final DeviceChangeService deviceChangeService;
+
+    private final boolean loadOnStartup;
+
+    private final int batchSize;
+
+    private final String snapshotFile;
+
+    private volatile boolean stopped;
+
+    public DeviceStoreLoader(DeviceRepository deviceRepository,
+                             DeviceStore deviceStore,
+                             DeviceChangeService deviceChangeService,
+                             @Value("${device.store.load-on-startup:true}") boolean loadOnStartup,
+                             @Value("${device.store.load-batch-size:1000}") int batchSize,
+                             @Value("${device.store.snapshot-file:}") String snapshotFile) {
+        this.deviceStore = deviceStore;
+        this.viewLoader = new DeviceViewLoader(deviceRepository, batchSize);
+        this.deviceChangeService = deviceChangeService;
+        this.loadOnStartup = loadOnStartup;
+        this.batchSize = batchSize;
+        this.snapshotFile = snapshotFile;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+
+        if (!loadOnStartup) {
+            log.info("Device store is not loaded on startup, the reads are served by the DB");
+            return;
+        }
+
+        Long snapshotOffset = snapshotFile.isBlank() ? null : restore(Path.of(snapshotFile));
+
+        Thread loader = new Thread(snapshotOffset == null ? this::load : () -> replay(snapshotOffset), "device-store-loader");
+        loader.setDaemon(true);
+        loader.start();
+
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+    }
+
+    void load() {
+        viewLoader.load("device store", deviceStore, () -> stopped);
+    }
+
+    /**
+     * Maps the snapshot and makes it the content of the store.
+     * A snapshot past the end of the change feed was written for another DB, it is left unused
+     *
+     * @param file the snapshot file
+     * @return the change feed offset the snapshot is complete up to, or null when the store must be loaded from the DB
+     */
+    Long restore(Path file) {
+
+        if (!Files.exists(file)) {
+            log.info("There is no device store snapshot at {}, the store is loaded from the DB", file);
+            return null;
+        }
+
+        long startTime = System.nanoTime();
+        try {
+
+            DeviceSnapshot snapshot = DeviceSnapshot.map(file);
+            long lastOffset = deviceChangeService.getChanges(null, 0).getNextOffset();
+            if (snapshot.changeOffset() > lastOffset) {
+                log.warn("The device store snapshot {} is ahead of the change feed, it belongs to another DB and is not used", file);
+                return null;
+            }
+
+            deviceStore.restore(snapshot);
+            log.info("Device store restored {} devices from {} in {} ms", snapshot.size(), file, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            return snapshot.changeOffset();
+
+        } catch (IOException | RuntimeException ex) {
+            log.warn("The device store snapshot {} cannot be used, the store is loaded from the DB", file, ex);
+            return null;
+        }
+
+    }
+
+    void replay(long snapshotOffset) {
+
+        long startTime = System.nanoTime();
+        long offset = snapshotOffset;
+        long replayed = 0L;
+
+        try {
+
+            DeviceChangePageDto changes;
+            do {
+                changes = deviceChangeService.getChanges(offset, batchSize);
+                deviceStore.replay(changes.getChanges().stream().map(DeviceStoreLoader::toEvent).toList());
+                replayed += changes.getSize();
+                offset = changes.getNextOffset();
+            } while (changes.getSize() > 0 && !stopped);
+
+        } catch (RuntimeException ex) {
+            // the store misses changes, the reads go back to the DB
+            deviceStore.startLoading();
+            log.warn("Replaying the device changes since the snapshot failed after {} changes, the reads stay on the DB", replayed, ex);
+            return;
+        }
+
+        if (stopped) {
+            return;
+        }
+
+        deviceStore.finishLoading();
+        log.info("Device store replayed {} changes since the snapshot in {} ms", replayed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+
+    }
+
+    // the changes written before they kept the last modified time fall back to the time of the change
+    private static DeviceChangedEvent toEvent(DeviceChange change) {
+
+        if (change.getType() == DeviceChangedEvent.Type.DELETED) {
+            return DeviceChangedEvent.deleted(Device.builder().id(change.getDeviceId()).build());
+        }
+
+        Device device = Device.builder()
+                .id(change.getDeviceId())
+                .name(change.getName())
+                .brand(change.getBrand())
+                .creationTime(change.getCreationTime())
+                .lastModified(change.getLastModified() == null ? change.getChangedAt() : change.getLastModified())
+                .version(change.getVersion())
+                .build();
+        return change.getType() == DeviceChangedEvent.Type.CREATED ? DeviceChangedEvent.created(device) : DeviceChangedEvent.updated(null, device);
+
+    }
+}
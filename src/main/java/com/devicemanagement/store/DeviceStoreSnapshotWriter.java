@@ -0,0 +1,123 @@
+package com.devicemanagement.store;
+
+import com.devicemanagement.service.DeviceChangeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This is the component which writes the DeviceStore to device.store.snapshot-file, every device.store.snapshot-interval
+ * and once more when the application stops, so the next start restores the store from it instead of reading every device.
+ * The snapshot records the change feed offset read before the store is copied: every change up to it is committed,
+ * so it was applied to the store, and the changes after it are replayed on restore.
+ * The logging is done by @Slf4j
+ * */
+
+@Slf4j
+@Component
+public class DeviceStoreSnapshotWriter implements SmartLifecycle {
+
+    private final DeviceStore deviceStore;
+
+    private final DeviceChangeService deviceChangeService;
+
+    private final String snapshotFile;
+
+    private final Duration interval;
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile boolean running;
+
+    public DeviceStoreSnapshotWriter(DeviceStore deviceStore,
+                                     DeviceChangeService deviceChangeService,
+                                     @Value("${device.store.snapshot-file:}") String snapshotFile,
+                                     @Value("${device.store.snapshot-interval:10m}") Duration interval) {
+        this.deviceStore = deviceStore;
+        this.deviceChangeService = deviceChangeService;
+        this.snapshotFile = snapshotFile;
+        this.interval = interval;
+    }
+
+    @Override
+    public void start() {
+
+        running = true;
+        if (snapshotFile.isBlank() || interval.isZero()) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "device-store-snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::write, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+
+    }
+
+    @Override
+    public void stop() {
+
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!snapshotFile.isBlank()) {
+            write();
+        }
+
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // stopped after the submission writer, so the devices it still writes are in the snapshot
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 8192;
+    }
+
+    /**
+     * This method writes the store to the snapshot file, unless the store is not loaded yet
+     *
+     * @return true when the snapshot was written
+     */
+    boolean write() {
+
+        long startTime = System.nanoTime();
+        try {
+
+            long changeOffset = deviceChangeService.getChanges(null, 0).getNextOffset();
+            if (!deviceStore.writeSnapshot(Path.of(snapshotFile), changeOffset)) {
+                log.debug("Device store is not loaded, no snapshot was written");
+                return false;
+            }
+
+            log.info("Device store snapshot written to {} up to change {} in {} ms", snapshotFile, changeOffset,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            return true;
+
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Writing the device store snapshot to {} failed", snapshotFile, ex);
+            return false;
+        }
+
+    }
+}
@@ -0,0 +1,138 @@
+package com.devicemanagement.store;
+
+
+/**
+ * This is the open-addressing map from a device id to its row in the DeviceStore.
+ * The keys and values are kept in two primitive arrays probed linearly, so an entry costs no object.
+ * The ids are positive, 0 marks a free slot, so it is never a key: it is not found and cannot be put. Removal shifts the following entries back instead of leaving tombstones
+ * */
+
+final class LongIntHashMap {
+
+    static final int MISSING = -1;
+
+    private static final long FREE = 0L;
+
+    private long[] keys;
+
+    private int[] values;
+
+    private int mask;
+
+    private int size;
+
+    LongIntHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    int get(long key) {
+
+        if (key == FREE) {
+            return MISSING;
+        }
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            if (keys[slot] == FREE) {
+                return MISSING;
+            }
+        }
+
+    }
+
+    void put(long key, int value) {
+
+        if (key == FREE) {
+            throw new IllegalArgumentException("0 marks a free slot, it cannot be a key");
+        }
+        if ((size + 1) * 2L > keys.length) {
+            rehash(keys.length * 2);
+        }
+
+        int slot = slot(key);
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == FREE) {
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+
+    }
+
+    int remove(long key) {
+
+        if (key == FREE) {
+            return MISSING;
+        }
+        int slot = slot(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == FREE) {
+                return MISSING;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int value = values[slot];
+
+        // move back every following entry of the run which would no longer be found past the freed slot
+        int free = slot;
+        for (int next = (free + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+        keys[free] = FREE;
+        size--;
+        return value;
+
+    }
+
+    void clear(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        // the ids are mostly consecutive, the multiplication spreads them over the table
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void rehash(int capacity) {
+
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    // a power of two at least twice the expected size, so the table stays at most half full
+    private static int capacityFor(int expectedSize) {
+        return Math.max(16, Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1);
+    }
+}
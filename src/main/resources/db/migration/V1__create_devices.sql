@@ -0,0 +1,12 @@
+CREATE SEQUENCE devices_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE devices (
+    id            BIGINT NOT NULL,
+    name          VARCHAR(255),
+    brand         VARCHAR(255),
+    creation_time TIMESTAMP(6),
+    version       BIGINT DEFAULT 0 NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_devices_brand ON devices (brand);
@@ -0,0 +1,4 @@
+-- brand lookups use the leading column of the composite index, so the single column index is no longer needed
+CREATE INDEX idx_devices_brand_creation_time ON devices (brand, creation_time);
+CREATE INDEX idx_devices_name ON devices (name);
+DROP INDEX idx_devices_brand;
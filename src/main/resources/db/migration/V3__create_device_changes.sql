@@ -0,0 +1,14 @@
+-- the change feed: one row per device change, written in the transaction of the change, in offset order
+CREATE SEQUENCE device_changes_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE device_changes (
+    change_offset BIGINT NOT NULL,
+    change_type   VARCHAR(16) NOT NULL,
+    device_id     BIGINT NOT NULL,
+    name          VARCHAR(255),
+    brand         VARCHAR(255),
+    creation_time TIMESTAMP(6),
+    version       BIGINT,
+    changed_at    TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (change_offset)
+);
@@ -0,0 +1,3 @@
+-- the time of the last change of a device, served as Last-Modified; the existing devices were last changed when created
+ALTER TABLE devices ADD COLUMN last_modified TIMESTAMP(6);
+UPDATE devices SET last_modified = creation_time;
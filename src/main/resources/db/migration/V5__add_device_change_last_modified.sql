@@ -0,0 +1,2 @@
+-- the time of the change as written to the device, so a replay of the feed rebuilds the device exactly
+ALTER TABLE device_changes ADD COLUMN last_modified TIMESTAMP(6);
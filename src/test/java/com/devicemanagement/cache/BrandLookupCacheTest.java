@@ -0,0 +1,94 @@
+package com.devicemanagement.cache;
+
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.event.DeviceChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BrandLookupCacheTest {
+
+    private BrandLookupCache brandLookupCache;
+
+    private Device iphone;
+
+    @BeforeEach
+    void setUp() {
+        brandLookupCache = new BrandLookupCache(2, 3);
+        iphone = Device.builder().id(1L).name("IPhone").brand("Apple").build();
+    }
+
+    @Test
+    void TestPutAndGet() {
+
+        assertTrue(brandLookupCache.get("Apple").isEmpty());
+
+        brandLookupCache.put("Apple", List.of(iphone), brandLookupCache.generation());
+
+        assertEquals(List.of(iphone), brandLookupCache.get("Apple").orElseThrow());
+
+    }
+
+    @Test
+    void TestGet_ChangedDevicesLeaveTheLookup() {
+
+        brandLookupCache.put("Apple", List.of(iphone), brandLookupCache.generation());
+        Device ipad = Device.builder().id(2L).name("IPad").brand("Apple").build();
+        brandLookupCache.onDeviceChanged(DeviceChangedEvent.created(ipad));
+
+        iphone.setName("IPhone 16");
+        ipad.setName("IPad Pro");
+        brandLookupCache.get("Apple").orElseThrow().forEach(device -> device.setBrand("Samsung"));
+
+        List<Device> devices = brandLookupCache.get("Apple").orElseThrow();
+        assertEquals(List.of("IPhone", "IPad"), devices.stream().map(Device::getName).toList());
+        assertEquals(List.of("Apple", "Apple"), devices.stream().map(Device::getBrand).toList());
+
+    }
+
+    @Test
+    void TestPut_SkippedWhenChangedSinceRead() {
+
+        long generation = brandLookupCache.generation();
+        brandLookupCache.onDeviceChanged(DeviceChangedEvent.deleted(Device.builder().id(9L).brand("Apple").build()));
+
+        brandLookupCache.put("Apple", List.of(iphone), generation);
+
+        assertTrue(brandLookupCache.get("Apple").isEmpty());
+
+    }
+
+    @Test
+    void TestOnDeviceChanged_KeepsLoadedBrandsUpToDate() {
+
+        brandLookupCache.put("Apple", List.of(iphone), brandLookupCache.generation());
+        brandLookupCache.put("Samsung", List.of(), brandLookupCache.generation());
+
+        Device ipad = Device.builder().id(2L).name("IPad").brand("Apple").build();
+        brandLookupCache.onDeviceChanged(DeviceChangedEvent.created(ipad));
+        assertEquals(List.of(iphone, ipad), brandLookupCache.get("Apple").orElseThrow());
+
+        Device galaxy = Device.builder().id(1L).name("Galaxy").brand("Samsung").build();
+        brandLookupCache.onDeviceChanged(DeviceChangedEvent.updated(iphone, galaxy));
+        assertEquals(List.of(ipad), brandLookupCache.get("Apple").orElseThrow());
+        assertEquals(List.of(galaxy), brandLookupCache.get("Samsung").orElseThrow());
+
+        brandLookupCache.onDeviceChanged(DeviceChangedEvent.deleted(ipad));
+        assertTrue(brandLookupCache.get("Apple").orElseThrow().isEmpty());
+
+    }
+
+    @Test
+    void TestPut_BoundedBrands() {
+
+        brandLookupCache.put("Apple", List.of(iphone), brandLookupCache.generation());
+        brandLookupCache.put("Samsung", List.of(), brandLookupCache.generation());
+        brandLookupCache.put("Google", List.of(), brandLookupCache.generation());
+
+        assertTrue(brandLookupCache.get("Google").isEmpty());
+
+    }
+}
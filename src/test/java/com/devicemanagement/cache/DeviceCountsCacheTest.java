@@ -0,0 +1,91 @@
+package com.devicemanagement.cache;
+
+import com.devicemanagement.dto.BrandCountDto;
+import com.devicemanagement.dto.CreationDayCountDto;
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.event.DeviceChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeviceCountsCacheTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 1);
+
+    private DeviceCountsCache deviceCountsCache;
+
+    private Device iphone;
+
+    @BeforeEach
+    void setUp() {
+        deviceCountsCache = new DeviceCountsCache();
+        iphone = Device.builder().id(1L).name("IPhone").brand("Apple").creationTime(DAY.atTime(10, 0)).build();
+    }
+
+    @Test
+    void TestPutAndGet() {
+
+        assertTrue(deviceCountsCache.brandCounts().isEmpty());
+        assertTrue(deviceCountsCache.creationDayCounts(null, null).isEmpty());
+
+        deviceCountsCache.putBrandCounts(List.of(new BrandCountDto("Google", 1L), new BrandCountDto("Apple", 2L)), deviceCountsCache.generation());
+        deviceCountsCache.putCreationDayCounts(List.of(new CreationDayCountDto(DAY, 3L)), deviceCountsCache.generation());
+
+        assertEquals(List.of(new BrandCountDto("Apple", 2L), new BrandCountDto("Google", 1L)), deviceCountsCache.brandCounts().orElseThrow());
+        assertEquals(List.of(new CreationDayCountDto(DAY, 3L)), deviceCountsCache.creationDayCounts(null, null).orElseThrow());
+
+    }
+
+    @Test
+    void TestPut_SkippedWhenChangedSinceRead() {
+
+        long generation = deviceCountsCache.generation();
+        deviceCountsCache.onDeviceChanged(DeviceChangedEvent.created(iphone));
+
+        deviceCountsCache.putBrandCounts(List.of(new BrandCountDto("Apple", 1L)), generation);
+
+        assertTrue(deviceCountsCache.brandCounts().isEmpty());
+
+    }
+
+    @Test
+    void TestOnDeviceChanged_KeepsCountsUpToDate() {
+
+        deviceCountsCache.putBrandCounts(List.of(new BrandCountDto("Apple", 1L)), deviceCountsCache.generation());
+        deviceCountsCache.putCreationDayCounts(List.of(new CreationDayCountDto(DAY, 1L)), deviceCountsCache.generation());
+
+        Device galaxy = Device.builder().id(2L).name("Galaxy").brand("Samsung").creationTime(DAY.plusDays(1).atStartOfDay()).build();
+        deviceCountsCache.onDeviceChanged(DeviceChangedEvent.created(galaxy));
+        Device rebranded = Device.builder().id(1L).name("IPhone").brand("Samsung").creationTime(iphone.getCreationTime()).build();
+        deviceCountsCache.onDeviceChanged(DeviceChangedEvent.updated(iphone, rebranded));
+
+        assertEquals(List.of(new BrandCountDto("Samsung", 2L)), deviceCountsCache.brandCounts().orElseThrow());
+        assertEquals(List.of(new CreationDayCountDto(DAY, 1L), new CreationDayCountDto(DAY.plusDays(1), 1L)),
+                deviceCountsCache.creationDayCounts(null, null).orElseThrow());
+
+        deviceCountsCache.onDeviceChanged(DeviceChangedEvent.deleted(galaxy));
+
+        assertEquals(List.of(new BrandCountDto("Samsung", 1L)), deviceCountsCache.brandCounts().orElseThrow());
+        assertEquals(List.of(new CreationDayCountDto(DAY, 1L)), deviceCountsCache.creationDayCounts(null, null).orElseThrow());
+
+    }
+
+    @Test
+    void TestCreationDayCounts_Range() {
+
+        deviceCountsCache.putCreationDayCounts(List.of(
+                new CreationDayCountDto(DAY, 1L),
+                new CreationDayCountDto(DAY.plusDays(1), 2L),
+                new CreationDayCountDto(DAY.plusDays(2), 3L)), deviceCountsCache.generation());
+
+        assertEquals(List.of(new CreationDayCountDto(DAY.plusDays(1), 2L)),
+                deviceCountsCache.creationDayCounts(DAY.plusDays(1), DAY.plusDays(2)).orElseThrow());
+        assertEquals(2, deviceCountsCache.creationDayCounts(DAY.plusDays(1), null).orElseThrow().size());
+        assertEquals(1, deviceCountsCache.creationDayCounts(null, DAY.plusDays(1)).orElseThrow().size());
+
+    }
+}
@@ -0,0 +1,106 @@
+package com.devicemanagement.changes;
+
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.entity.DeviceChange;
+import com.devicemanagement.event.DeviceChangedEvent;
+import com.devicemanagement.repository.DeviceChangeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(DeviceChangeLog.class)
+public class DeviceChangeLogTest {
+
+    @Autowired
+    private DeviceChangeLog deviceChangeLog;
+
+    @Autowired
+    private DeviceChangeRepository deviceChangeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private static Device device(long id, String brand) {
+        return Device.builder().id(id).name("Pixel 8").brand(brand).creationTime(LocalDateTime.now()).version(0L).build();
+    }
+
+    @Test
+    void TestAppend_HoldsReadersBelowOpenTransaction() {
+
+        Device device = device(1L, "Google");
+        deviceChangeLog.append(List.of(DeviceChangedEvent.created(device), DeviceChangedEvent.deleted(device)));
+
+        List<DeviceChange> changes = deviceChangeRepository.findByOffsetGreaterThanAndOffsetLessThanOrderByOffsetAsc(0L, Long.MAX_VALUE, Limit.of(10));
+
+        assertEquals(2, changes.size());
+        assertEquals(DeviceChangedEvent.Type.CREATED, changes.get(0).getType());
+        assertEquals("Google", changes.get(0).getBrand());
+        assertEquals(DeviceChangedEvent.Type.DELETED, changes.get(1).getType());
+        assertNull(changes.get(1).getBrand());
+        assertTrue(changes.get(0).getOffset() < changes.get(1).getOffset());
+        assertEquals(changes.get(0).getOffset(), deviceChangeLog.readableBefore());
+
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void TestAppend_OutsideTransaction() {
+
+        List<DeviceChangedEvent> events = List.of(DeviceChangedEvent.created(device(1L, "Google")));
+
+        assertThrows(IllegalStateException.class, () -> deviceChangeLog.append(events));
+
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void TestCommit_CompletesNextCommit() {
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        CompletableFuture<Void> nextCommit = deviceChangeLog.nextCommit();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            deviceChangeLog.append(List.of(DeviceChangedEvent.created(device(1L, "Google"))));
+            assertFalse(nextCommit.isDone());
+        });
+
+        assertTrue(nextCommit.isDone());
+        assertNotSame(nextCommit, deviceChangeLog.nextCommit());
+        assertEquals(Long.MAX_VALUE, deviceChangeLog.readableBefore());
+
+        transactionTemplate.executeWithoutResult(status -> deviceChangeRepository.deleteAll());
+
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void TestRollback_ReleasesOffsets() {
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        CompletableFuture<Void> nextCommit = deviceChangeLog.nextCommit();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            deviceChangeLog.append(List.of(DeviceChangedEvent.created(device(1L, "Google"))));
+            status.setRollbackOnly();
+        });
+
+        assertFalse(nextCommit.isDone());
+        assertEquals(Long.MAX_VALUE, deviceChangeLog.readableBefore());
+        assertEquals(0, deviceChangeRepository.count());
+
+    }
+
+}
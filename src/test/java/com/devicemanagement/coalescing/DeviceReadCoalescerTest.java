@@ -0,0 +1,147 @@
+package com.devicemanagement.coalescing;
+
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.metrics.DeviceMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class DeviceReadCoalescerTest {
+
+    private static final int CALLERS = 8;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private DeviceReadCoalescer deviceReadCoalescer;
+
+    private ExecutorService executor;
+
+    private Device iphone;
+
+    @BeforeEach
+    void setUp() {
+        deviceReadCoalescer = new DeviceReadCoalescer(mock(PlatformTransactionManager.class), new DeviceMetrics(meterRegistry), true);
+        executor = Executors.newFixedThreadPool(CALLERS);
+        iphone = Device.builder().id(1L).name("IPhone").brand("Apple").build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void TestDeviceById_ConcurrentReadsShareOneQuery() throws Exception {
+
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Optional<Device>> leader = executor.submit(() -> deviceReadCoalescer.deviceById(1L, () -> {
+            queries.incrementAndGet();
+            leaderStarted.countDown();
+            await(release);
+            return Optional.of(iphone);
+        }));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+        List<Future<Optional<Device>>> followers = new ArrayList<>();
+        for (int i = 1; i < CALLERS; i++) {
+            followers.add(executor.submit(() -> deviceReadCoalescer.deviceById(1L, () -> {
+                queries.incrementAndGet();
+                return Optional.empty();
+            })));
+        }
+        while (coalesced("getDeviceById") < CALLERS - 1) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        Set<Device> returned = Collections.newSetFromMap(new IdentityHashMap<>());
+        returned.add(leader.get(5, TimeUnit.SECONDS).orElseThrow());
+        for (Future<Optional<Device>> follower : followers) {
+            returned.add(follower.get(5, TimeUnit.SECONDS).orElseThrow());
+        }
+        assertEquals(1, queries.get());
+
+        // every caller has its own copy, so none can change the device of another
+        assertEquals(CALLERS, returned.size());
+        assertFalse(returned.contains(iphone));
+        returned.forEach(device -> assertEquals(iphone, device));
+
+    }
+
+    @Test
+    void TestDeviceById_ReadsAgainOnceDone() {
+
+        AtomicInteger queries = new AtomicInteger();
+
+        deviceReadCoalescer.deviceById(1L, () -> Optional.of(iphone));
+        deviceReadCoalescer.deviceById(1L, () -> Optional.of(iphone));
+        deviceReadCoalescer.devicesByBrand(null, () -> {
+            queries.incrementAndGet();
+            return List.of();
+        });
+
+        assertEquals(1, queries.get());
+        assertEquals(0, coalesced("getDeviceById"));
+
+    }
+
+    @Test
+    void TestDevicesByBrand_FailureReachesEveryCaller() throws Exception {
+
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<List<Device>> leader = executor.submit(() -> deviceReadCoalescer.devicesByBrand("Apple", () -> {
+            leaderStarted.countDown();
+            await(release);
+            throw new IllegalStateException("DB is down");
+        }));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+        Future<List<Device>> follower = executor.submit(() -> deviceReadCoalescer.devicesByBrand("Apple", List::of));
+        while (coalesced("searchDeviceByBrand") < 1) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertInstanceOf(IllegalStateException.class, assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+        assertInstanceOf(IllegalStateException.class, assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS)).getCause());
+        assertEquals(List.of(iphone), deviceReadCoalescer.devicesByBrand("Apple", () -> List.of(iphone)));
+
+    }
+
+    private double coalesced(String method) {
+        Counter counter = meterRegistry.find(DeviceMetrics.COALESCED_READS).tag("method", method).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
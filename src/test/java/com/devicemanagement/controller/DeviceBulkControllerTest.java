@@ -0,0 +1,123 @@
+package com.devicemanagement.controller;
+
+import com.devicemanagement.dto.BulkChangeResultDto;
+import com.devicemanagement.dto.BulkIngestResultDto;
+import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.dto.DeviceFilterDto;
+import com.devicemanagement.metrics.DeviceMetrics;
+import com.devicemanagement.service.DeviceBulkService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(DeviceBulkController.class)
+@Import(SimpleMeterRegistry.class)
+public class DeviceBulkControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private DeviceBulkService deviceBulkService;
+
+    @MockBean
+    private DeviceMetrics deviceMetrics;
+
+    private final List<CreateDeviceDto> received = new ArrayList<>();
+
+    @SuppressWarnings("unchecked")
+    private void captureAddDevices() {
+        Mockito.when(deviceBulkService.addDevices(any())).thenAnswer(invocation -> {
+            ((Iterator<CreateDeviceDto>) invocation.getArgument(0)).forEachRemaining(received::add);
+            return BulkIngestResultDto.builder().received(received.size()).created(received.size()).build();
+        });
+    }
+
+    @Test
+    void TestAddDevices_JsonArray() throws Exception {
+
+        captureAddDevices();
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/api/devices/bulk/add-devices")
+                        .content("[{\"name\":\"IPhone\",\"brand\":\"Apple\"},{\"name\":\"Surface\",\"brand\":\"Microsoft\"}]")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2));
+
+        assertEquals("Surface", received.get(1).getName());
+    }
+
+    @Test
+    void TestAddDevices_Ndjson() throws Exception {
+
+        captureAddDevices();
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/api/devices/bulk/add-devices")
+                        .content("{\"name\":\"IPhone\",\"brand\":\"Apple\"}\n{\"name\":\"Surface\",\"brand\":\"Microsoft\"}\n")
+                        .contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(2));
+
+        assertEquals("Microsoft", received.get(1).getBrand());
+    }
+
+    @Test
+    void TestDeleteDevices() throws Exception {
+
+        Mockito.when(deviceBulkService.deleteDevices(DeviceFilterDto.builder().ids(List.of(1L, 2L)).build()))
+                .thenReturn(BulkChangeResultDto.builder().affected(2).statements(1).build());
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/api/devices/bulk/delete-devices")
+                        .content("{\"ids\":[1,2]}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(2));
+    }
+
+    @Test
+    void TestDeleteDevices_WithoutFilter() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/api/devices/bulk/delete-devices")
+                        .content("{}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(deviceBulkService);
+    }
+
+    @Test
+    void TestRebrandDevices() throws Exception {
+
+        Mockito.when(deviceBulkService.rebrandDevices(eq(DeviceFilterDto.builder().brand("Google").build()), eq("Alphabet")))
+                .thenReturn(BulkChangeResultDto.builder().affected(5).statements(1).build());
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/api/devices/bulk/rebrand-devices")
+                        .content("{\"filter\":{\"brand\":\"Google\"},\"newBrand\":\"Alphabet\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(5));
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.devicemanagement.controller;
+
+import com.devicemanagement.dto.DeviceChangePageDto;
+import com.devicemanagement.entity.DeviceChange;
+import com.devicemanagement.event.DeviceChangedEvent;
+import com.devicemanagement.metrics.DeviceMetrics;
+import com.devicemanagement.service.DeviceChangeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(DeviceChangeController.class)
+@Import(SimpleMeterRegistry.class)
+public class DeviceChangeControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private DeviceChangeService deviceChangeService;
+
+    @MockBean
+    private DeviceMetrics deviceMetrics;
+
+    @Test
+    void TestGetChanges_LongPoll() throws Exception {
+
+        DeviceChange change = DeviceChange.builder().offset(7L).type(DeviceChangedEvent.Type.DELETED).deviceId(3L).build();
+        DeviceChangePageDto page = DeviceChangePageDto.builder().changes(List.of(change)).size(1).nextOffset(7L).build();
+
+        // the wait is capped
+        Mockito.when(deviceChangeService.pollChanges(eq(5L), eq(10), eq(Duration.ofSeconds(DeviceChangeController.MAX_WAIT_SECONDS))))
+                .thenReturn(CompletableFuture.completedFuture(page));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/changes")
+                        .param("since", "5")
+                        .param("limit", "10")
+                        .param("waitSeconds", "600"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextOffset").value(7))
+                .andExpect(jsonPath("$.changes[0].type").value("DELETED"))
+                .andExpect(jsonPath("$.changes[0].deviceId").value(3));
+
+    }
+
+}
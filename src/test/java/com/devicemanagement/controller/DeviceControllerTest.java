@@ -1,30 +1,61 @@
 package com.devicemanagement.controller;
 
+import com.devicemanagement.dto.BrandCountDto;
 import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.dto.CreationDayCountDto;
+import com.devicemanagement.dto.DeviceBatchGetResultDto;
+import com.devicemanagement.dto.DeviceBatchItemDto;
+import com.devicemanagement.dto.DevicePageDto;
+import com.devicemanagement.dto.DeviceQueryDto;
+import com.devicemanagement.dto.DeviceSearchHitDto;
+import com.devicemanagement.dto.DeviceSearchPageDto;
 import com.devicemanagement.dto.UpdateDeviceDto;
+import com.devicemanagement.encoding.DeviceColumns;
 import com.devicemanagement.entity.Device;
+import com.devicemanagement.exception.DeviceNotFoundException;
+import com.devicemanagement.exception.InvalidQueryException;
+import com.devicemanagement.metrics.DeviceMetrics;
 import com.devicemanagement.service.DeviceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.ByteArrayInputStream;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(DeviceController.class)
+@Import(SimpleMeterRegistry.class)
 public class DeviceControllerTest {
 
 
@@ -34,6 +65,9 @@ public class DeviceControllerTest {
     @MockBean
     private DeviceService deviceService;
 
+    @MockBean
+    private DeviceMetrics deviceMetrics;
+
     private Device device;
 
 
@@ -80,6 +114,102 @@ public class DeviceControllerTest {
                 .andExpect(jsonPath("$.brand").value(device.getBrand()));
     }
 
+    @Test
+    void TestGetDeviceById_NotModified() throws Exception {
+
+        device.setVersion(3L);
+        device.setLastModified(LocalDateTime.of(2024, 5, 1, 10, 0));
+        Mockito.when(deviceService.getDeviceById(1L)).thenReturn(Optional.of(device));
+
+        String etag = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertEquals("W/\"1-3\"", etag);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/1")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        device.setVersion(4L);
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/1")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"1-4\""));
+    }
+
+    @Test
+    void TestGetDevicesByIds() throws Exception {
+
+        Mockito.when(deviceService.getDevicesByIds(List.of(2L, 1L))).thenReturn(DeviceBatchGetResultDto.builder()
+                .results(List.of(
+                        DeviceBatchItemDto.builder().id(2L).status(DeviceBatchItemDto.Status.NOT_FOUND).build(),
+                        DeviceBatchItemDto.builder().id(1L).status(DeviceBatchItemDto.Status.FOUND).device(device).build()))
+                .found(1)
+                .missing(1)
+                .build());
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/api/devices/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[2,1]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].id").value(2))
+                .andExpect(jsonPath("$.results[0].status").value("NOT_FOUND"))
+                .andExpect(jsonPath("$.results[1].device.name").value(device.getName()))
+                .andExpect(jsonPath("$.missing").value(1));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/api/devices/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void TestGetAllDevices_NotModifiedSkipsRead() throws Exception {
+
+        Mockito.when(deviceService.getDevicesVersion()).thenReturn(OptionalLong.of(42L));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/all-devices")
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"devices-42\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"devices-42\""))
+                .andExpect(content().string(""));
+
+        Mockito.verify(deviceService, Mockito.never()).getAllDevices();
+
+        Mockito.when(deviceService.getDevicesVersion()).thenReturn(OptionalLong.of(43L));
+        Mockito.when(deviceService.getAllDevices()).thenReturn(List.of(device));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/all-devices")
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"devices-42\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"devices-43\""))
+                .andExpect(jsonPath("$[0].name").value(device.getName()));
+    }
+
+    @Test
+    void TestGetAllDevices_NoETagWithoutVersion() throws Exception {
+
+        Mockito.when(deviceService.getDevicesVersion()).thenReturn(OptionalLong.empty());
+        Mockito.when(deviceService.getAllDevices()).thenReturn(List.of(device));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/all-devices")
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"devices-42\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$[0].name").value(device.getName()));
+    }
+
     @Test
     void TestGetAllDevices() throws Exception {
 
@@ -127,6 +257,25 @@ public class DeviceControllerTest {
     }
 
 
+    @Test
+    void TestUpdateDevice_NotFound() throws Exception {
+
+        Mockito.when(deviceService.updateDevice(anyLong(), any(UpdateDeviceDto.class)))
+                .thenThrow(new DeviceNotFoundException("Device not found with Id: 1"));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .put("/api/devices/1")
+                        .content("{\"name\":\"S 24 Ultra\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.status").value(404))
+                .andExpect(jsonPath("$.title").value("Not Found"));
+
+        Mockito.verify(deviceMetrics).notFound();
+    }
+
+
     @Test
     void TestDeleteDevice() throws Exception {
 
@@ -161,4 +310,214 @@ public class DeviceControllerTest {
     }
 
 
+    @Test
+    void TestGetDevicesPage() throws Exception {
+
+        DevicePageDto page = DevicePageDto.builder()
+                .devices(List.of(device))
+                .size(1)
+                .nextCursor("MQ")
+                .build();
+
+        Mockito.when(deviceService.getDevicesPage("MA", 1)).thenReturn(page);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/page")
+                        .param("cursor", "MA")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.devices[0].id").value(device.getId()))
+                .andExpect(jsonPath("$.nextCursor").value("MQ"));
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void TestStreamAllDevices() throws Exception {
+
+        Mockito.doAnswer(invocation -> {
+            ((Consumer<Device>) invocation.getArgument(0)).accept(device);
+            return null;
+        }).when(deviceService).streamAllDevices(any());
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].id").value(device.getId()))
+                .andExpect(jsonPath("$[0].brand").value(device.getBrand()));
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void TestStreamAllDevices_Ndjson() throws Exception {
+
+        Device other = Device.builder().id(2L).name("Pixel").brand("Google").build();
+        Mockito.doAnswer(invocation -> {
+            ((Consumer<Device>) invocation.getArgument(0)).accept(device);
+            ((Consumer<Device>) invocation.getArgument(0)).accept(other);
+            return null;
+        }).when(deviceService).streamAllDevices(any());
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/stream")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,"));
+        assertTrue(lines[1].startsWith("{\"id\":2,"));
+    }
+
+
+    @Test
+    void TestGetAllDevices_Columns() throws Exception {
+
+        Mockito.when(deviceService.getAllDevices()).thenReturn(List.of(device));
+
+        byte[] body = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/all-devices")
+                        .accept(DeviceColumns.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(DeviceColumns.MEDIA_TYPE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(List.of(device), DeviceColumns.read(new ByteArrayInputStream(body)));
+    }
+
+
+    @Test
+    void TestGetAllDevices_Cbor() throws Exception {
+
+        Mockito.when(deviceService.getAllDevices()).thenReturn(List.of(device));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/all-devices")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR));
+    }
+
+
+    @Test
+    void TestGetDeviceById_ColumnsNotAcceptable() throws Exception {
+
+        Mockito.when(deviceService.getDeviceById(1L)).thenReturn(Optional.of(device));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/1")
+                        .accept(DeviceColumns.MEDIA_TYPE))
+                .andExpect(status().isNotAcceptable());
+
+        Mockito.verify(deviceMetrics).notAcceptable();
+    }
+
+
+    @Test
+    void TestQueryDevices() throws Exception {
+
+        DeviceQueryDto deviceQueryDto = DeviceQueryDto.builder()
+                .namePrefix("IP")
+                .brands(List.of("Apple", "Google"))
+                .createdFrom(LocalDateTime.of(2024, 1, 1, 0, 0))
+                .build();
+        PageRequest pageRequest = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "creationTime"));
+
+        Mockito.when(deviceService.queryDevices(eq(deviceQueryDto), eq(pageRequest)))
+                .thenReturn(new PageImpl<>(List.of(device), pageRequest, 11));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/query")
+                        .param("namePrefix", "IP")
+                        .param("brand", "Apple", "Google")
+                        .param("createdFrom", "2024-01-01T00:00:00")
+                        .param("size", "10")
+                        .param("sort", "creationTime,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(device.getId()))
+                .andExpect(jsonPath("$.page.totalElements").value(11))
+                .andExpect(jsonPath("$.page.totalPages").value(2));
+    }
+
+
+    @Test
+    void TestQueryDevices_InvalidSort() throws Exception {
+
+        Mockito.when(deviceService.queryDevices(any(DeviceQueryDto.class), any()))
+                .thenThrow(new InvalidQueryException("Devices cannot be sorted by: colour"));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/query")
+                        .param("sort", "colour"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.detail").value("Devices cannot be sorted by: colour"))
+                .andExpect(jsonPath("$.instance").value("/api/devices/query"));
+
+        Mockito.verify(deviceMetrics).validationFailed();
+    }
+
+
+    @Test
+    void TestSearchDevicesByText() throws Exception {
+
+        DeviceSearchPageDto page = DeviceSearchPageDto.builder()
+                .hits(List.of(DeviceSearchHitDto.builder().device(device).score(4).build()))
+                .total(1)
+                .size(1)
+                .complete(true)
+                .build();
+
+        Mockito.when(deviceService.searchDevicesByText("iph", 0, 20)).thenReturn(page);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/search/text")
+                        .param("q", "iph"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hits[0].device.id").value(device.getId()))
+                .andExpect(jsonPath("$.hits[0].score").value(4))
+                .andExpect(jsonPath("$.total").value(1));
+    }
+
+
+    @Test
+    void TestCountDevicesByBrand() throws Exception {
+
+        Mockito.when(deviceService.countDevicesByBrand()).thenReturn(List.of(new BrandCountDto("Apple", 2L)));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/stats/brands"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].brand").value("Apple"))
+                .andExpect(jsonPath("$[0].count").value(2));
+    }
+
+
+    @Test
+    void TestCountDevicesByCreationDay() throws Exception {
+
+        LocalDate day = LocalDate.of(2024, 5, 1);
+        Mockito.when(deviceService.countDevicesByCreationDay(day, day.plusDays(7))).thenReturn(List.of(new CreationDayCountDto(day, 3L)));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/devices/stats/creation-days")
+                        .param("from", "2024-05-01")
+                        .param("to", "2024-05-08"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].day").value("2024-05-01"))
+                .andExpect(jsonPath("$[0].count").value(3));
+    }
+
 }
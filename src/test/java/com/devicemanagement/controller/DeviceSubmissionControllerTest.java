@@ -0,0 +1,103 @@
+package com.devicemanagement.controller;
+
+import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.dto.DeviceSubmissionDto;
+import com.devicemanagement.exception.SubmissionQueueFullException;
+import com.devicemanagement.metrics.DeviceMetrics;
+import com.devicemanagement.service.DeviceSubmissionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(DeviceSubmissionController.class)
+@Import(SimpleMeterRegistry.class)
+public class DeviceSubmissionControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private DeviceSubmissionService deviceSubmissionService;
+
+    @MockBean
+    private DeviceMetrics deviceMetrics;
+
+    @Test
+    void TestSubmitDevice_Accepted() throws Exception {
+
+        Mockito.when(deviceSubmissionService.submitDevice(any(CreateDeviceDto.class)))
+                .thenReturn(DeviceSubmissionDto.builder().id("abc").status(DeviceSubmissionDto.Status.QUEUED).build());
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/api/devices/submissions")
+                        .content("{\"name\":\"IPhone\",\"brand\":\"Apple\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/api/devices/submissions/abc"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    void TestSubmitDevice_QueueFull() throws Exception {
+
+        Mockito.when(deviceSubmissionService.submitDevice(any(CreateDeviceDto.class))).thenThrow(new SubmissionQueueFullException(10));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/api/devices/submissions")
+                        .content("{\"name\":\"IPhone\",\"brand\":\"Apple\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("$.status").value(429));
+
+        Mockito.verify(deviceMetrics).queueFull();
+    }
+
+    @Test
+    void TestSubmitDevice_Invalid() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/api/devices/submissions")
+                        .content("{\"brand\":\"Apple\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/api/devices/submissions")
+                        .content("{\"name\":\"" + "I".repeat(256) + "\",\"brand\":\"Apple\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(deviceSubmissionService);
+    }
+
+    @Test
+    void TestGetSubmission() throws Exception {
+
+        Mockito.when(deviceSubmissionService.getSubmission("abc"))
+                .thenReturn(Optional.of(DeviceSubmissionDto.builder().id("abc").status(DeviceSubmissionDto.Status.PERSISTED).deviceId(7L).build()));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/devices/submissions/abc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deviceId").value(7));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/devices/submissions/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+}
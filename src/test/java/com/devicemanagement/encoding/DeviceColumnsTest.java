@@ -0,0 +1,62 @@
+package com.devicemanagement.encoding;
+
+import com.devicemanagement.entity.Device;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeviceColumnsTest {
+
+    @Test
+    void TestWriteAndRead() throws IOException {
+
+        List<Device> devices = List.of(
+                Device.builder().id(7L).name("Galaxy Tab").brand("Samsung").creationTime(LocalDateTime.of(2024, 5, 1, 10, 0, 0, 123_456_000)).lastModified(LocalDateTime.of(2024, 6, 2, 8, 30, 0, 5)).version(3L).build(),
+                Device.builder().id(3L).name("Ünïcödé 📱").brand("Apple").creationTime(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 1)).version(0L).build(),
+                Device.builder().id(9L).name(null).brand(null).creationTime(null).version(null).build(),
+                Device.builder().id(10L).name("").brand("Samsung").creationTime(LocalDateTime.of(2024, 5, 1, 10, 0)).version(Long.MAX_VALUE).build());
+
+        assertEquals(devices, roundTrip(devices));
+        assertEquals(List.of(), roundTrip(List.of()));
+
+    }
+
+    @Test
+    void TestWriteAndRead_ManyDevices() throws IOException {
+
+        SplittableRandom random = new SplittableRandom(7);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            devices.add(Device.builder()
+                    .id((long) i * 3 + random.nextInt(3))
+                    .name("Device " + random.nextInt(1_000_000))
+                    .brand("Brand" + random.nextInt(50))
+                    .creationTime(start.plusNanos(random.nextLong(1_000_000_000_000_000L) / 1000 * 1000))
+                    .version((long) random.nextInt(5))
+                    .build());
+        }
+
+        assertEquals(devices, roundTrip(devices));
+
+    }
+
+    @Test
+    void TestRead_RejectsOtherContent() {
+        assertThrows(IOException.class, () -> DeviceColumns.read(new ByteArrayInputStream("[{}]".getBytes())));
+    }
+
+    private static List<Device> roundTrip(List<Device> devices) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DeviceColumns.write(devices, output);
+        return DeviceColumns.read(new ByteArrayInputStream(output.toByteArray()));
+    }
+}
@@ -0,0 +1,64 @@
+package com.devicemanagement.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OperationSamplingTurboFilterTest {
+
+    private Logger logger;
+
+    private OperationSamplingTurboFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        logger = new LoggerContext().getLogger("device");
+        logger.setLevel(Level.INFO);
+
+        filter = new OperationSamplingTurboFilter();
+        filter.setSampling("getDeviceById:3, addDevice:1");
+        filter.start();
+    }
+
+    @Test
+    void TestDecide_KeepsOneEventOutOfN() {
+
+        int kept = 0;
+        for (int i = 0; i < 9; i++) {
+            if (filter.decide(LogMarkers.GET_DEVICE_BY_ID, logger, Level.INFO, "message", null, null) == FilterReply.NEUTRAL) {
+                kept++;
+            }
+        }
+
+        assertEquals(3, kept);
+
+    }
+
+    @Test
+    void TestDecide_OtherEventsAreNotSampled() {
+
+        assertEquals(FilterReply.NEUTRAL, filter.decide(LogMarkers.ADD_DEVICE, logger, Level.INFO, "message", null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(LogMarkers.ADD_DEVICE, logger, Level.INFO, "message", null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(LogMarkers.DELETE_DEVICE, logger, Level.INFO, "message", null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.INFO, "message", null, null));
+
+    }
+
+    @Test
+    void TestDecide_DisabledLevelIsNotCounted() {
+
+        filter.decide(LogMarkers.GET_DEVICE_BY_ID, logger, Level.INFO, "message", null, null);
+        filter.decide(LogMarkers.GET_DEVICE_BY_ID, logger, Level.DEBUG, "message", null, null);
+        filter.decide(LogMarkers.GET_DEVICE_BY_ID, logger, Level.INFO, "message", null, null);
+        filter.decide(LogMarkers.GET_DEVICE_BY_ID, logger, Level.INFO, "message", null, null);
+
+        assertEquals(FilterReply.NEUTRAL, filter.decide(LogMarkers.GET_DEVICE_BY_ID, logger, Level.INFO, "message", null, null));
+
+    }
+
+}
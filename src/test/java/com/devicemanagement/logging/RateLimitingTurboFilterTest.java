@@ -0,0 +1,77 @@
+package com.devicemanagement.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RateLimitingTurboFilterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private Logger logger;
+
+    private RateLimitingTurboFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        logger = new LoggerContext().getLogger("device");
+        logger.setLevel(Level.INFO);
+
+        filter = new RateLimitingTurboFilter();
+        filter.setRateLimit("unexpectedError:3, clientError:0");
+        filter.setClock(now::get);
+        filter.start();
+    }
+
+    @Test
+    void TestDecide_KeepsFirstNEventsOfEverySecond() {
+
+        assertEquals(3, kept(10));
+
+        now.addAndGet(999);
+        assertEquals(0, kept(10));
+
+        now.addAndGet(1);
+        assertEquals(3, kept(10));
+
+    }
+
+    @Test
+    void TestDecide_OtherEventsAreNotLimited() {
+
+        assertEquals(FilterReply.DENY, filter.decide(LogMarkers.CLIENT_ERROR, logger, Level.WARN, "message", null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(LogMarkers.ADD_DEVICE, logger, Level.INFO, "message", null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.ERROR, "message", null, null));
+
+    }
+
+    @Test
+    void TestDecide_DisabledLevelIsNotCounted() {
+
+        filter.decide(LogMarkers.UNEXPECTED_ERROR, logger, Level.DEBUG, "message", null, null);
+        filter.decide(LogMarkers.UNEXPECTED_ERROR, logger, Level.DEBUG, "message", null, null);
+
+        assertEquals(3, kept(5));
+
+    }
+
+    private int kept(int events) {
+
+        int kept = 0;
+        for (int i = 0; i < events; i++) {
+            if (filter.decide(LogMarkers.UNEXPECTED_ERROR, logger, Level.ERROR, "message", null, null) == FilterReply.NEUTRAL) {
+                kept++;
+            }
+        }
+        return kept;
+
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.devicemanagement.repository;
+
+import com.devicemanagement.dto.BrandCountDto;
+import com.devicemanagement.dto.CreationDayCountDto;
+import com.devicemanagement.entity.Device;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+public class DeviceRepositoryTest {
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private Device device;
+
+    @BeforeEach
+    void setUp() {
+        device = deviceRepository.saveAndFlush(Device.builder()
+                .name("Pixel 8")
+                .brand("Google")
+                .creationTime(LocalDateTime.now())
+                .build());
+    }
+
+    @Test
+    void TestFindProjected_NotManaged() {
+
+        testEntityManager.clear();
+
+        Optional<Device> byId = deviceRepository.findProjectedById(device.getId());
+        List<Device> all = deviceRepository.findAllProjected();
+        List<Device> byBrand = deviceRepository.findProjectedByBrand("Google");
+
+        assertTrue(byId.isPresent());
+        assertEquals(device.getId(), byId.get().getId());
+        assertEquals("Pixel 8", byId.get().getName());
+        assertEquals("Google", byId.get().getBrand());
+        assertEquals(device.getVersion(), byId.get().getVersion());
+        assertEquals(List.of(device.getId()), all.stream().map(Device::getId).toList());
+        assertEquals(List.of(device.getId()), byBrand.stream().map(Device::getId).toList());
+        assertFalse(testEntityManager.getEntityManager().contains(byId.get()));
+        assertFalse(testEntityManager.getEntityManager().contains(all.get(0)));
+        assertTrue(deviceRepository.findProjectedById(device.getId() + 1000).isEmpty());
+        assertTrue(deviceRepository.findProjectedByBrand("Apple").isEmpty());
+
+    }
+
+    @Test
+    void TestUpdateChangedColumns_BumpsVersion() {
+
+        Optional<DeviceRepositoryCustom.Change> updated = deviceRepository.updateChangedColumns(device.getId(), "Pixel 9", null, device.getVersion());
+
+        assertTrue(updated.isPresent());
+        assertEquals("Pixel 8", updated.get().previous().getName());
+        assertEquals("Pixel 9", updated.get().current().getName());
+        assertEquals("Google", updated.get().current().getBrand());
+        assertEquals(device.getVersion() + 1, updated.get().current().getVersion());
+        assertEquals(updated.get().current().getVersion(),
+                jdbcTemplate.queryForObject("SELECT version FROM devices WHERE id = ?", Long.class, device.getId()));
+        assertNotNull(updated.get().current().getLastModified());
+        assertEquals(updated.get().current().getLastModified(),
+                jdbcTemplate.queryForObject("SELECT last_modified FROM devices WHERE id = ?", LocalDateTime.class, device.getId()));
+
+    }
+
+    @Test
+    void TestUpdateChangedColumns_StaleVersion() {
+
+        Optional<DeviceRepositoryCustom.Change> updated = deviceRepository.updateChangedColumns(device.getId(), "Pixel 9", null, device.getVersion() + 1);
+
+        assertTrue(updated.isEmpty());
+
+    }
+
+    @Test
+    void TestUpdateChangedColumns_NoChange() {
+
+        Optional<DeviceRepositoryCustom.Change> updated = deviceRepository.updateChangedColumns(device.getId(), "Pixel 8", "Google", null);
+
+        assertTrue(updated.isEmpty());
+
+    }
+
+    @Test
+    void TestUpdateChangedColumns_DeviceNotFound() {
+
+        Optional<DeviceRepositoryCustom.Change> updated = deviceRepository.updateChangedColumns(device.getId() + 1000, "Pixel 9", null, null);
+
+        assertTrue(updated.isEmpty());
+
+    }
+
+    @Test
+    void TestDeleteMatching_ByBrandWithLimit() {
+
+        Device other = deviceRepository.saveAndFlush(Device.builder().name("Pixel 9").brand("Google").creationTime(LocalDateTime.now()).build());
+        Device iphone = deviceRepository.saveAndFlush(Device.builder().name("IPhone").brand("Apple").creationTime(LocalDateTime.now()).build());
+
+        List<Device> deleted = deviceRepository.deleteMatching(null, "Google", 1);
+        List<Device> rest = deviceRepository.deleteMatching(List.of(device.getId(), other.getId(), iphone.getId()), "Google", 10);
+
+        assertEquals(1, deleted.size());
+        assertEquals("Google", deleted.get(0).getBrand());
+        assertEquals(1, rest.size());
+        assertTrue(deviceRepository.findById(iphone.getId()).isPresent());
+        assertEquals(1, deviceRepository.count());
+
+    }
+
+    @Test
+    void TestRebrandMatching_SkipsDevicesAlreadyMoved() {
+
+        List<DeviceRepositoryCustom.Change> rebranded = deviceRepository.rebrandMatching(List.of(device.getId()), null, "Alphabet", 10);
+        List<DeviceRepositoryCustom.Change> again = deviceRepository.rebrandMatching(null, "Google", "Alphabet", 10);
+
+        assertEquals(1, rebranded.size());
+        assertEquals("Google", rebranded.get(0).previous().getBrand());
+        assertEquals("Alphabet", rebranded.get(0).current().getBrand());
+        assertEquals(device.getVersion() + 1, rebranded.get(0).current().getVersion());
+        assertTrue(again.isEmpty());
+
+    }
+
+    @Test
+    void TestFindAll_BySpecifications() {
+
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        deviceRepository.saveAndFlush(Device.builder().name("Pixel_9").brand("Google").creationTime(start.plusDays(1)).build());
+        deviceRepository.saveAndFlush(Device.builder().name("Pixel 9a").brand("Google").creationTime(start.plusDays(2)).build());
+        deviceRepository.saveAndFlush(Device.builder().name("Pixel 9 Pro").brand("Other").creationTime(start.plusDays(2)).build());
+        deviceRepository.saveAndFlush(Device.builder().name("Pixel 9 XL").brand("Google").creationTime(start.plusDays(3)).build());
+
+        Specification<Device> specification = Specification
+                .where(DeviceSpecifications.nameStartsWith("Pixel 9"))
+                .and(DeviceSpecifications.brandIn(List.of("Google", "Alphabet")))
+                .and(DeviceSpecifications.createdFrom(start))
+                .and(DeviceSpecifications.createdBefore(start.plusDays(3)));
+
+        Page<Device> devices = deviceRepository.findAll(specification, PageRequest.of(0, 10, Sort.by("creationTime")));
+
+        assertEquals(List.of("Pixel 9a"), devices.map(Device::getName).getContent());
+
+    }
+
+    @Test
+    void TestBrandAndCreationTimeQuery_UsesCompositeIndex() {
+
+        String plan = jdbcTemplate.queryForObject(
+                "EXPLAIN SELECT * FROM devices WHERE brand IN ('Google', 'Apple') AND creation_time >= TIMESTAMP '2024-01-01 00:00:00'",
+                String.class);
+
+        assertTrue(plan.contains("IDX_DEVICES_BRAND_CREATION_TIME"), plan);
+
+    }
+
+    @Test
+    void TestCountDevicesByBrandAndCreationDay() {
+
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 23, 0);
+        deviceRepository.deleteAll();
+        deviceRepository.saveAndFlush(Device.builder().name("Pixel 9").brand("Google").creationTime(start).build());
+        deviceRepository.saveAndFlush(Device.builder().name("Pixel 9a").brand("Google").creationTime(start.plusHours(2)).build());
+        deviceRepository.saveAndFlush(Device.builder().name("IPhone").brand("Apple").creationTime(start.plusHours(3)).build());
+
+        assertEquals(List.of(new BrandCountDto("Google", 2L), new BrandCountDto("Apple", 1L)), deviceRepository.countDevicesByBrand());
+        assertEquals(List.of(
+                        new CreationDayCountDto(start.toLocalDate(), 1L),
+                        new CreationDayCountDto(start.toLocalDate().plusDays(1), 2L)),
+                deviceRepository.countDevicesByCreationDay());
+
+    }
+}
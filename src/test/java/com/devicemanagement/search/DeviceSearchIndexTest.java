@@ -0,0 +1,169 @@
+package com.devicemanagement.search;
+
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.event.DeviceChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeviceSearchIndexTest {
+
+    private DeviceSearchIndex deviceSearchIndex;
+
+    private Device ipadPro;
+
+    private Device ipadAir;
+
+    private Device galaxy;
+
+    @BeforeEach
+    void setUp() {
+        deviceSearchIndex = new DeviceSearchIndex();
+        ipadPro = Device.builder().id(1L).name("iPad Pro 11").brand("Apple").build();
+        ipadAir = Device.builder().id(2L).name("iPad Air").brand("Apple").build();
+        galaxy = Device.builder().id(3L).name("Galaxy Tab S9 Pro").brand("Samsung").build();
+        List.of(ipadPro, ipadAir, galaxy).forEach(device -> deviceSearchIndex.onDeviceChanged(DeviceChangedEvent.created(device)));
+    }
+
+    @Test
+    void TestSearch_EveryTermMustMatch() {
+
+        DeviceSearchIndex.Hits hits = deviceSearchIndex.search("iPad Pro", 0, 10);
+
+        assertEquals(1, hits.total());
+        assertArrayEquals(new long[]{1L}, hits.ids());
+
+    }
+
+    @Test
+    void TestSearch_ByPrefix() {
+
+        assertArrayEquals(new long[]{3L}, deviceSearchIndex.search("gal", 0, 10).ids());
+        assertArrayEquals(new long[]{3L}, deviceSearchIndex.search("sams tab", 0, 10).ids());
+
+    }
+
+    @Test
+    void TestSearch_RanksExactNameMatchesFirst() {
+
+        // "pro" is a whole word of both names, "air" is a prefix of "air" only
+        DeviceSearchIndex.Hits hits = deviceSearchIndex.search("pro", 0, 10);
+        assertArrayEquals(new long[]{1L, 3L}, hits.ids());
+
+        Device apple = Device.builder().id(4L).name("Apple Pencil").brand("Apple").build();
+        deviceSearchIndex.onDeviceChanged(DeviceChangedEvent.created(apple));
+
+        // the word in the name scores higher than the same word in the brand
+        hits = deviceSearchIndex.search("apple", 0, 10);
+        assertArrayEquals(new long[]{4L, 1L, 2L}, hits.ids());
+        assertTrue(hits.scores()[0] > hits.scores()[1]);
+
+    }
+
+    @Test
+    void TestSearch_Pages() {
+
+        DeviceSearchIndex.Hits hits = deviceSearchIndex.search("apple", 1, 1);
+
+        assertEquals(2, hits.total());
+        assertArrayEquals(new long[]{2L}, hits.ids());
+
+    }
+
+    @Test
+    void TestOnDeviceChanged_UpdatesAndDeletes() {
+
+        Device renamed = Device.builder().id(2L).name("iPad Mini").brand("Apple").build();
+        deviceSearchIndex.onDeviceChanged(DeviceChangedEvent.updated(ipadAir, renamed));
+
+        assertEquals(0, deviceSearchIndex.search("air", 0, 10).total());
+        assertArrayEquals(new long[]{2L}, deviceSearchIndex.search("mini", 0, 10).ids());
+
+        deviceSearchIndex.onDeviceChanged(DeviceChangedEvent.deleted(galaxy));
+
+        assertEquals(0, deviceSearchIndex.search("galaxy", 0, 10).total());
+
+    }
+
+    @Test
+    void TestLoad_SkipsDevicesChangedWhileLoading() {
+
+        deviceSearchIndex = new DeviceSearchIndex();
+        deviceSearchIndex.startLoading();
+
+        Device renamed = Device.builder().id(2L).name("iPad Mini").brand("Apple").build();
+        deviceSearchIndex.onDeviceChanged(DeviceChangedEvent.updated(ipadAir, renamed));
+        deviceSearchIndex.load(List.of(ipadPro, ipadAir));
+        deviceSearchIndex.finishLoading();
+
+        assertTrue(deviceSearchIndex.isLoaded());
+        assertEquals(0, deviceSearchIndex.search("air", 0, 10).total());
+        assertArrayEquals(new long[]{1L, 2L}, deviceSearchIndex.search("ipad", 0, 10).ids());
+
+    }
+
+    @Test
+    void TestSearch_MatchesFullScan() {
+
+        String[] words = {"galaxy", "gala", "tab", "pro", "pixel", "pix", "7", "70", "s", "ultra"};
+        String[] brands = {"Samsung", "Google", "Sams"};
+        Random random = new Random(7);
+
+        deviceSearchIndex = new DeviceSearchIndex();
+        List<Device> devices = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            Device device = Device.builder()
+                    .id(id)
+                    .name(words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)])
+                    .brand(brands[random.nextInt(brands.length)])
+                    .build();
+            devices.add(device);
+            deviceSearchIndex.onDeviceChanged(DeviceChangedEvent.created(device));
+        }
+
+        for (String text : List.of("gal", "galaxy tab", "pix 7", "sams pro", "s", "7 s ultra")) {
+
+            List<String> terms = DeviceSearchIndex.tokenize(text);
+            List<long[]> expected = new ArrayList<>();
+            for (Device device : devices) {
+                int score = 0;
+                for (String term : terms) {
+                    int weight = Math.max(weight(device.getName(), term, DeviceSearchIndex.NAME_EXACT, DeviceSearchIndex.NAME_PREFIX),
+                            weight(device.getBrand(), term, DeviceSearchIndex.BRAND_EXACT, DeviceSearchIndex.BRAND_PREFIX));
+                    score = weight == 0 ? -1 : score < 0 ? -1 : score + weight;
+                }
+                if (score > 0) {
+                    expected.add(new long[]{device.getId(), score});
+                }
+            }
+            expected.sort(Comparator.<long[]>comparingLong(hit -> -hit[1]).thenComparingLong(hit -> hit[0]));
+
+            DeviceSearchIndex.Hits hits = deviceSearchIndex.search(text, 5, 50);
+
+            assertEquals(expected.size(), hits.total(), text);
+            for (int i = 0; i < hits.ids().length; i++) {
+                assertEquals(expected.get(i + 5)[0], hits.ids()[i], text);
+                assertEquals(expected.get(i + 5)[1], hits.scores()[i], text);
+            }
+        }
+
+    }
+
+    private static int weight(String field, String term, int exactWeight, int prefixWeight) {
+        int weight = 0;
+        for (String token : DeviceSearchIndex.tokenize(field)) {
+            if (token.equals(term)) {
+                weight = Math.max(weight, exactWeight);
+            } else if (token.startsWith(term)) {
+                weight = Math.max(weight, prefixWeight);
+            }
+        }
+        return weight;
+    }
+}
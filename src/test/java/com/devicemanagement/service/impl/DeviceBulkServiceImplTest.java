@@ -0,0 +1,217 @@
+package com.devicemanagement.service.impl;
+
+import com.devicemanagement.changes.DeviceChangeLog;
+import com.devicemanagement.config.CacheConfig;
+import com.devicemanagement.dto.BulkChangeResultDto;
+import com.devicemanagement.dto.BulkIngestResultDto;
+import com.devicemanagement.dto.BulkItemResultDto;
+import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.dto.DeviceFilterDto;
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.event.DeviceChangedEvent;
+import com.devicemanagement.repository.DeviceRepository;
+import com.devicemanagement.repository.DeviceRepositoryCustom;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+public class DeviceBulkServiceImplTest {
+
+    @Mock
+    private DeviceRepository deviceRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private DeviceChangeLog deviceChangeLog;
+
+    private CacheManager cacheManager;
+
+    private DeviceBulkServiceImpl deviceBulkService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        cacheManager = new ConcurrentMapCacheManager(CacheConfig.DEVICES_CACHE);
+        deviceBulkService = new DeviceBulkServiceImpl(deviceRepository, entityManager,
+                Validation.buildDefaultValidatorFactory().getValidator(), transactionManager, eventPublisher, deviceChangeLog, cacheManager, 2);
+
+        AtomicLong sequence = new AtomicLong();
+        when(deviceRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Device> devices = invocation.getArgument(0);
+            devices.forEach(device -> device.setId(sequence.incrementAndGet()));
+            return devices;
+        });
+    }
+
+    @Test
+    void TestAddDevices_WritesInBatches() {
+
+        List<CreateDeviceDto> createDeviceDtos = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            createDeviceDtos.add(CreateDeviceDto.builder().name("Pixel " + i).brand("Google").build());
+        }
+
+        BulkIngestResultDto result = deviceBulkService.addDevices(createDeviceDtos.iterator());
+
+        assertEquals(5, result.getReceived());
+        assertEquals(5, result.getCreated());
+        assertEquals(0, result.getFailed());
+        assertEquals(5L, result.getResults().get(4).getId());
+        verify(deviceRepository, times(3)).saveAll(anyList());
+        verify(entityManager, times(3)).clear();
+        verify(deviceChangeLog, times(3)).append(anyList());
+        verify(eventPublisher, times(5)).publishEvent(any(DeviceChangedEvent.class));
+
+    }
+
+    @Test
+    void TestAddDevices_ReportsInvalidEntries() {
+
+        List<CreateDeviceDto> createDeviceDtos = Arrays.asList(
+                CreateDeviceDto.builder().name("Pixel 8 Pro").brand("Google").build(),
+                CreateDeviceDto.builder().name("").brand("Google").build(),
+                null,
+                CreateDeviceDto.builder().name("Galaxy S 24").brand("Samsung").build());
+
+        BulkIngestResultDto result = deviceBulkService.addDevices(createDeviceDtos.iterator());
+
+        assertEquals(4, result.getReceived());
+        assertEquals(2, result.getCreated());
+        assertEquals(2, result.getFailed());
+
+        BulkItemResultDto invalid = result.getResults().get(1);
+        assertEquals(BulkItemResultDto.Status.INVALID, invalid.getStatus());
+        assertNull(invalid.getId());
+        assertEquals(List.of("Device name is mandatory and cannot be empty or null"), invalid.getErrors());
+
+        assertEquals(BulkItemResultDto.Status.CREATED, result.getResults().get(3).getStatus());
+        assertEquals(2L, result.getResults().get(3).getId());
+
+    }
+
+    @Test
+    void TestAddDevices_ReportsFailedBatch() {
+
+        AtomicLong sequence = new AtomicLong();
+        when(deviceRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Device> devices = invocation.getArgument(0);
+            if (devices.stream().anyMatch(device -> device.getName().equals("Pixel 2"))) {
+                throw new IllegalStateException("Deadlock detected");
+            }
+            devices.forEach(device -> device.setId(sequence.incrementAndGet()));
+            return devices;
+        });
+
+        List<CreateDeviceDto> createDeviceDtos = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            createDeviceDtos.add(CreateDeviceDto.builder().name("Pixel " + i).brand("Google").build());
+        }
+        createDeviceDtos.add(CreateDeviceDto.builder().name("P".repeat(256)).brand("Google").build());
+
+        BulkIngestResultDto result = deviceBulkService.addDevices(createDeviceDtos.iterator());
+
+        assertEquals(6, result.getReceived());
+        assertEquals(3, result.getCreated());
+        assertEquals(3, result.getFailed());
+        assertEquals(BulkItemResultDto.Status.CREATED, result.getResults().get(1).getStatus());
+        assertEquals(BulkItemResultDto.Status.FAILED, result.getResults().get(2).getStatus());
+        assertEquals(BulkItemResultDto.Status.FAILED, result.getResults().get(3).getStatus());
+        assertEquals(List.of("Deadlock detected"), result.getResults().get(3).getErrors());
+        assertNull(result.getResults().get(3).getId());
+        assertEquals(3L, result.getResults().get(4).getId());
+        assertEquals(BulkItemResultDto.Status.INVALID, result.getResults().get(5).getStatus());
+        assertEquals(List.of("Device name cannot be longer than 255 characters"), result.getResults().get(5).getErrors());
+        verify(deviceRepository, times(3)).saveAll(anyList());
+
+    }
+
+    @Test
+    void TestDeleteDevices_ByIdsInChunks() {
+
+        cacheManager.getCache(CacheConfig.DEVICES_CACHE).put(1L, Device.builder().id(1L).build());
+        when(deviceRepository.deleteMatching(List.of(1L, 2L), null, 2)).thenReturn(List.of(device(1L), device(2L)));
+        when(deviceRepository.deleteMatching(List.of(3L), null, 2)).thenReturn(List.of());
+
+        BulkChangeResultDto result = deviceBulkService.deleteDevices(DeviceFilterDto.builder().ids(List.of(1L, 2L, 2L, 3L)).build());
+
+        assertEquals(2, result.getAffected());
+        assertEquals(2, result.getStatements());
+        assertNull(cacheManager.getCache(CacheConfig.DEVICES_CACHE).get(1L));
+        verify(deviceChangeLog).append(argThat(events -> events.size() == 2));
+        verify(eventPublisher, times(2)).publishEvent(any(DeviceChangedEvent.class));
+
+    }
+
+    @Test
+    void TestDeleteDevices_ByBrandUntilDone() {
+
+        when(deviceRepository.deleteMatching(isNull(), eq("Google"), eq(2)))
+                .thenReturn(List.of(device(1L), device(2L)))
+                .thenReturn(List.of(device(3L)));
+
+        BulkChangeResultDto result = deviceBulkService.deleteDevices(DeviceFilterDto.builder().brand("Google").build());
+
+        assertEquals(3, result.getAffected());
+        assertEquals(2, result.getStatements());
+
+    }
+
+    @Test
+    void TestRebrandDevices_EvictsCache() {
+
+        cacheManager.getCache(CacheConfig.DEVICES_CACHE).put(1L, device(1L));
+        Device device = Device.builder().id(1L).name("Pixel 8").brand("Alphabet").version(1L).build();
+        when(deviceRepository.rebrandMatching(isNull(), eq("Google"), eq("Alphabet"), anyInt()))
+                .thenReturn(List.of(new DeviceRepositoryCustom.Change(device(1L), device)));
+
+        BulkChangeResultDto result = deviceBulkService.rebrandDevices(DeviceFilterDto.builder().brand("Google").build(), "Alphabet");
+
+        assertEquals(1, result.getAffected());
+        assertNull(cacheManager.getCache(CacheConfig.DEVICES_CACHE).get(1L));
+        verify(eventPublisher).publishEvent(any(DeviceChangedEvent.class));
+
+    }
+
+    @Test
+    void TestDeleteDevices_WithoutFilter() {
+
+        assertThrows(IllegalArgumentException.class, () -> deviceBulkService.deleteDevices(DeviceFilterDto.builder().build()));
+        verify(deviceRepository, never()).deleteMatching(any(), any(), anyInt());
+
+    }
+
+    private static Device device(long id) {
+        return Device.builder().id(id).name("Pixel " + id).brand("Google").version(0L).build();
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.devicemanagement.service.impl;
+
+import com.devicemanagement.changes.DeviceChangeLog;
+import com.devicemanagement.dto.DeviceChangePageDto;
+import com.devicemanagement.entity.DeviceChange;
+import com.devicemanagement.event.DeviceChangedEvent;
+import com.devicemanagement.repository.DeviceChangeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class DeviceChangeServiceImplTest {
+
+    @Mock
+    private DeviceChangeRepository deviceChangeRepository;
+
+    @Mock
+    private DeviceChangeLog deviceChangeLog;
+
+    private DeviceChangeServiceImpl deviceChangeService;
+
+    private final CompletableFuture<Void> nextCommit = new CompletableFuture<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        deviceChangeService = new DeviceChangeServiceImpl(deviceChangeRepository, deviceChangeLog, Runnable::run);
+        when(deviceChangeLog.readableBefore()).thenReturn(Long.MAX_VALUE);
+        when(deviceChangeLog.nextCommit()).thenReturn(nextCommit);
+    }
+
+    private static DeviceChange change(long offset) {
+        return DeviceChange.builder().offset(offset).type(DeviceChangedEvent.Type.CREATED).deviceId(offset).build();
+    }
+
+    @Test
+    void TestGetChanges_WithoutSinceReturnsHead() {
+
+        when(deviceChangeLog.readableBefore()).thenReturn(40L);
+        when(deviceChangeRepository.findLastOffsetBefore(40L)).thenReturn(39L);
+
+        DeviceChangePageDto page = deviceChangeService.getChanges(null, 10);
+
+        assertEquals(0, page.getSize());
+        assertEquals(39L, page.getNextOffset());
+        verify(deviceChangeRepository, never()).findByOffsetGreaterThanAndOffsetLessThanOrderByOffsetAsc(any(), any(), any());
+
+    }
+
+    @Test
+    void TestGetChanges_SeeksPastSinceBelowOpenOffsets() {
+
+        when(deviceChangeLog.readableBefore()).thenReturn(9L);
+        when(deviceChangeRepository.findByOffsetGreaterThanAndOffsetLessThanOrderByOffsetAsc(5L, 9L, Limit.of(1000)))
+                .thenReturn(List.of(change(6L), change(8L)));
+
+        DeviceChangePageDto page = deviceChangeService.getChanges(5L, 5000);
+
+        assertEquals(2, page.getSize());
+        assertEquals(8L, page.getNextOffset());
+
+    }
+
+    @Test
+    void TestPollChanges_WaitsForNextCommit() {
+
+        when(deviceChangeRepository.findByOffsetGreaterThanAndOffsetLessThanOrderByOffsetAsc(5L, Long.MAX_VALUE, Limit.of(100)))
+                .thenReturn(List.of())
+                .thenReturn(List.of(change(6L)));
+
+        CompletableFuture<DeviceChangePageDto> poll = deviceChangeService.pollChanges(5L, 0, Duration.ofSeconds(30));
+
+        assertFalse(poll.isDone());
+        nextCommit.complete(null);
+        assertEquals(6L, poll.join().getNextOffset());
+
+    }
+
+    @Test
+    void TestPollChanges_TimesOutEmpty() {
+
+        when(deviceChangeRepository.findByOffsetGreaterThanAndOffsetLessThanOrderByOffsetAsc(5L, Long.MAX_VALUE, Limit.of(100)))
+                .thenReturn(List.of());
+
+        DeviceChangePageDto page = deviceChangeService.pollChanges(5L, 0, Duration.ofMillis(50)).join();
+
+        assertEquals(0, page.getSize());
+        assertEquals(5L, page.getNextOffset());
+        assertFalse(nextCommit.isDone());
+
+    }
+
+}
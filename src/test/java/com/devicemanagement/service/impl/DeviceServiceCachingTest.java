@@ -0,0 +1,165 @@
+package com.devicemanagement.service.impl;
+
+import com.devicemanagement.config.CacheConfig;
+import com.devicemanagement.dto.DeviceBatchGetResultDto;
+import com.devicemanagement.dto.DeviceBatchItemDto;
+import com.devicemanagement.dto.UpdateDeviceDto;
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.repository.DeviceRepository;
+import com.devicemanagement.repository.DeviceRepositoryCustom;
+import com.devicemanagement.service.DeviceService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {"device.search.load-on-startup=false", "device.store.load-on-startup=false"})
+public class DeviceServiceCachingTest {
+
+    @Autowired
+    private DeviceService deviceService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private DeviceRepository deviceRepository;
+
+    private Device device;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(CacheConfig.DEVICES_CACHE).clear();
+        device = Device.builder()
+                .id(1L)
+                .name("IPhone")
+                .brand("Apple")
+                .creationTime(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    void TestGetDeviceById_ReadThrough() {
+
+        when(deviceRepository.findProjectedById(1L)).thenReturn(Optional.of(device));
+
+        assertEquals(device, deviceService.getDeviceById(1L).orElseThrow());
+        assertEquals(device, deviceService.getDeviceById(1L).orElseThrow());
+
+        verify(deviceRepository, times(1)).findProjectedById(1L);
+
+    }
+
+    @Test
+    void TestGetDeviceById_ChangedDeviceLeavesTheCache() {
+
+        when(deviceRepository.findProjectedById(1L)).thenReturn(Optional.of(device));
+
+        deviceService.getDeviceById(1L).orElseThrow().setName("IPhone 16");
+        deviceService.getDeviceById(1L).orElseThrow().setName("IPhone 17");
+        deviceService.getDevicesByIds(List.of(1L)).getResults().get(0).getDevice().setName("IPhone 18");
+
+        assertEquals("IPhone", deviceService.getDeviceById(1L).orElseThrow().getName());
+        assertEquals("IPhone", deviceService.getDevicesByIds(List.of(1L)).getResults().get(0).getDevice().getName());
+        verify(deviceRepository, times(1)).findProjectedById(1L);
+
+    }
+
+    @Test
+    void TestGetDeviceById_MissesAreNotCached() {
+
+        when(deviceRepository.findProjectedById(2L)).thenReturn(Optional.empty());
+
+        assertTrue(deviceService.getDeviceById(2L).isEmpty());
+        assertTrue(deviceService.getDeviceById(2L).isEmpty());
+
+        verify(deviceRepository, times(2)).findProjectedById(2L);
+
+    }
+
+    @Test
+    void TestGetDevicesByIds_SharesCacheWithGetDeviceById() {
+
+        when(deviceRepository.findProjectedById(1L)).thenReturn(Optional.of(device));
+
+        deviceService.getDeviceById(1L);
+        DeviceBatchGetResultDto result = deviceService.getDevicesByIds(List.of(1L, 2L));
+
+        assertEquals(device, result.getResults().get(0).getDevice());
+        assertEquals(DeviceBatchItemDto.Status.NOT_FOUND, result.getResults().get(1).getStatus());
+        verify(deviceRepository, times(1)).findProjectedByIdIn(List.of(2L));
+
+    }
+
+    @Test
+    void TestUpdateDevice_EvictsCache() {
+
+        Device renamedDevice = Device.builder()
+                .id(1L)
+                .name("IPhone 16")
+                .brand("Apple")
+                .build();
+
+        when(deviceRepository.findProjectedById(1L)).thenReturn(Optional.of(device), Optional.of(renamedDevice));
+        when(deviceRepository.updateChangedColumns(1L, "IPhone 16", null, null)).thenReturn(Optional.of(new DeviceRepositoryCustom.Change(device, renamedDevice)));
+
+        deviceService.getDeviceById(1L);
+        deviceService.updateDevice(1L, UpdateDeviceDto.builder().name("IPhone 16").build());
+
+        assertNull(cacheManager.getCache(CacheConfig.DEVICES_CACHE).get(1L));
+        assertEquals("IPhone 16", deviceService.getDeviceById(1L).orElseThrow().getName());
+
+    }
+
+    @Test
+    void TestUpdateDevice_RolledBackKeepsCache() {
+
+        Device renamedDevice = Device.builder()
+                .id(1L)
+                .name("IPhone 16")
+                .brand("Apple")
+                .build();
+
+        when(deviceRepository.findProjectedById(1L)).thenReturn(Optional.of(device));
+        when(deviceRepository.updateChangedColumns(1L, "IPhone 16", null, null)).thenReturn(Optional.of(new DeviceRepositoryCustom.Change(device, renamedDevice)));
+
+        deviceService.getDeviceById(1L);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            deviceService.updateDevice(1L, UpdateDeviceDto.builder().name("IPhone 16").build());
+            status.setRollbackOnly();
+        });
+
+        assertEquals(device, cacheManager.getCache(CacheConfig.DEVICES_CACHE).get(1L, Device.class));
+        assertEquals("IPhone", deviceService.getDeviceById(1L).orElseThrow().getName());
+        verify(deviceRepository, times(1)).findProjectedById(1L);
+
+    }
+
+    @Test
+    void TestDeleteDevice_EvictsCache() {
+
+        when(deviceRepository.findProjectedById(1L)).thenReturn(Optional.of(device));
+
+        deviceService.getDeviceById(1L);
+        deviceService.deleteDevice(1L);
+        deviceService.getDeviceById(1L);
+
+        verify(deviceRepository, times(2)).findProjectedById(1L);
+
+    }
+
+}
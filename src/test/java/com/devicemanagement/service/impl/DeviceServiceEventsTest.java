@@ -0,0 +1,136 @@
+package com.devicemanagement.service.impl;
+
+import com.devicemanagement.cache.BrandLookupCache;
+import com.devicemanagement.cache.DeviceCountsCache;
+import com.devicemanagement.changes.DeviceChangeLog;
+import com.devicemanagement.dto.BrandCountDto;
+import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.dto.UpdateDeviceDto;
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.repository.DeviceRepository;
+import com.devicemanagement.search.DeviceSearchIndex;
+import com.devicemanagement.service.DeviceBulkService;
+import com.devicemanagement.service.DeviceService;
+import com.devicemanagement.store.DeviceStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:device-events")
+public class DeviceServiceEventsTest {
+
+    @Autowired
+    private DeviceService deviceService;
+
+    @Autowired
+    private DeviceBulkService deviceBulkService;
+
+    @Autowired
+    private DeviceChangeLog deviceChangeLog;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private DeviceStore deviceStore;
+
+    @Autowired
+    private DeviceSearchIndex deviceSearchIndex;
+
+    @Autowired
+    private BrandLookupCache brandLookupCache;
+
+    @Autowired
+    private DeviceCountsCache deviceCountsCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Device pixel;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!(deviceStore.isLoaded() && deviceSearchIndex.isLoaded()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(deviceStore.isLoaded() && deviceSearchIndex.isLoaded());
+
+        pixel = deviceService.addDevice(CreateDeviceDto.builder().name("Pixel 8").brand("Google").build());
+        brandLookupCache.put("Google", deviceRepository.findProjectedByBrand("Google"), brandLookupCache.generation());
+
+    }
+
+    @Test
+    void TestUpdateDevice_RolledBackLeavesViewsUnchanged() {
+
+        List<BrandCountDto> counts = deviceService.countDevicesByBrand();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            deviceService.updateDevice(pixel.getId(), UpdateDeviceDto.builder().name("Galaxy S24").brand("Samsung").build());
+            status.setRollbackOnly();
+        });
+
+        assertEquals("Google", deviceRepository.findProjectedById(pixel.getId()).orElseThrow().getBrand());
+        assertEquals("Pixel 8", deviceStore.findById(pixel.getId()).orElseThrow().getName());
+        assertEquals(0, deviceSearchIndex.search("galaxy", 0, 10).total());
+        assertTrue(deviceSearchIndex.search("pixel", 0, 10).total() > 0);
+        assertTrue(brandLookupCache.get("Google").orElseThrow().stream().anyMatch(device -> device.getId().equals(pixel.getId())));
+        assertTrue(brandLookupCache.get("Samsung").isEmpty());
+        assertEquals(counts, deviceCountsCache.brandCounts().orElseThrow());
+
+    }
+
+    @Test
+    void TestUpdateDevice_CommittedReachesViews() {
+
+        deviceService.countDevicesByBrand();
+
+        deviceService.updateDevice(pixel.getId(), UpdateDeviceDto.builder().brand("Alphabet").build());
+
+        assertEquals("Alphabet", deviceStore.findById(pixel.getId()).orElseThrow().getBrand());
+        assertTrue(brandLookupCache.get("Google").orElseThrow().stream().noneMatch(device -> device.getId().equals(pixel.getId())));
+        assertTrue(deviceCountsCache.brandCounts().orElseThrow().stream().anyMatch(count -> "Alphabet".equals(count.getBrand())));
+
+    }
+
+    @Test
+    void TestAddDevice_ViewsHoldChangeWhenVersionMoves() {
+
+        AtomicLong storedWhenVersionMoved = new AtomicLong(-1);
+        AtomicLong indexedWhenVersionMoved = new AtomicLong(-1);
+        deviceChangeLog.nextCommit().thenRun(() -> {
+            storedWhenVersionMoved.set(deviceStore.findByBrand("Nothing").size());
+            indexedWhenVersionMoved.set(deviceSearchIndex.search("nothing", 0, 10).total());
+        });
+
+        deviceService.addDevice(CreateDeviceDto.builder().name("Phone 2").brand("Nothing").build());
+
+        assertEquals(1, storedWhenVersionMoved.get());
+        assertEquals(1, indexedWhenVersionMoved.get());
+
+    }
+
+    @Test
+    void TestAddDevices_ViewsHoldChunkWhenVersionMoves() {
+
+        AtomicLong storedWhenVersionMoved = new AtomicLong(-1);
+        deviceChangeLog.nextCommit().thenRun(() -> storedWhenVersionMoved.set(deviceStore.findByBrand("Fairphone").size()));
+
+        deviceBulkService.addDevices(List.of(
+                CreateDeviceDto.builder().name("Fairphone 4").brand("Fairphone").build(),
+                CreateDeviceDto.builder().name("Fairphone 5").brand("Fairphone").build()).iterator());
+
+        assertEquals(2, storedWhenVersionMoved.get());
+
+    }
+}
@@ -1,20 +1,58 @@
 package com.devicemanagement.service.impl;
 
+import com.devicemanagement.cache.BrandLookupCache;
+import com.devicemanagement.cache.DeviceCountsCache;
+import com.devicemanagement.changes.DeviceChangeLog;
+import com.devicemanagement.dto.BrandCountDto;
 import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.coalescing.DeviceReadCoalescer;
+import com.devicemanagement.config.CacheConfig;
+import com.devicemanagement.dto.CreationDayCountDto;
+import com.devicemanagement.dto.DeviceBatchGetResultDto;
+import com.devicemanagement.dto.DeviceBatchItemDto;
+import com.devicemanagement.dto.DevicePageDto;
+import com.devicemanagement.dto.DeviceQueryDto;
+import com.devicemanagement.dto.DeviceSearchPageDto;
 import com.devicemanagement.dto.UpdateDeviceDto;
 import com.devicemanagement.entity.Device;
+import com.devicemanagement.event.DeviceChangedEvent;
 import com.devicemanagement.exception.DeviceNotFoundException;
+import com.devicemanagement.exception.DeviceVersionConflictException;
+import com.devicemanagement.exception.InvalidCursorException;
+import com.devicemanagement.exception.InvalidQueryException;
+import com.devicemanagement.metrics.DeviceMetrics;
 import com.devicemanagement.repository.DeviceRepository;
+import com.devicemanagement.repository.DeviceRepositoryCustom;
+import com.devicemanagement.search.DeviceSearchIndex;
+import com.devicemanagement.store.DeviceStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-
+import org.mockito.Spy;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -24,6 +62,38 @@ public class DeviceServiceImplTest {
     @Mock
     private DeviceRepository deviceRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private DeviceChangeLog deviceChangeLog;
+
+    @Spy
+    private BrandLookupCache brandLookupCache = new BrandLookupCache(64, 50_000);
+
+    @Spy
+    private DeviceSearchIndex deviceSearchIndex = new DeviceSearchIndex();
+
+    @Spy
+    private DeviceStore deviceStore = new DeviceStore();
+
+    @Spy
+    private DeviceCountsCache deviceCountsCache = new DeviceCountsCache();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private DeviceMetrics deviceMetrics = new DeviceMetrics(meterRegistry);
+
+    @Spy
+    private CacheManager cacheManager = new ConcurrentMapCacheManager(CacheConfig.DEVICES_CACHE);
+
+    @Spy
+    private DeviceReadCoalescer deviceReadCoalescer = new DeviceReadCoalescer(mock(PlatformTransactionManager.class), deviceMetrics, true);
+
     @InjectMocks
     private DeviceServiceImpl deviceService;
 
@@ -53,6 +123,8 @@ public class DeviceServiceImplTest {
         assertNotNull(newDevice);
         assertEquals(createDeviceDto.getName(), newDevice.getName());
         assertEquals(createDeviceDto.getBrand(), newDevice.getBrand());
+        verify(deviceChangeLog, times(1)).append(anyList());
+        verify(eventPublisher, times(1)).publishEvent(any(DeviceChangedEvent.class));
 
     }
 
@@ -72,7 +144,7 @@ public class DeviceServiceImplTest {
                 .creationTime(LocalDateTime.now())
                 .build();
 
-        when(deviceRepository.findById(1L)).thenReturn(Optional.of(device));
+        when(deviceRepository.findProjectedById(1L)).thenReturn(Optional.of(device));
 
         Optional<Device> presentDevice = deviceService.getDeviceById(1L);
         assertTrue(presentDevice.isPresent());
@@ -80,6 +152,39 @@ public class DeviceServiceImplTest {
 
     }
 
+    @Test
+    void TestGetDevicesByIds_KeepsOrderAndMisses() {
+
+        Device pixel = Device.builder().id(1L).name("Pixel 8 Pro").brand("Google").build();
+        Device galaxy = Device.builder().id(3L).name("Galaxy S24").brand("Samsung").build();
+        cacheManager.getCache(CacheConfig.DEVICES_CACHE).put(3L, galaxy);
+
+        when(deviceRepository.findProjectedByIdIn(List.of(1L, 2L))).thenReturn(List.of(pixel));
+
+        DeviceBatchGetResultDto result = deviceService.getDevicesByIds(List.of(3L, 1L, 2L, 1L));
+
+        assertEquals(List.of(3L, 1L, 2L, 1L), result.getResults().stream().map(DeviceBatchItemDto::getId).toList());
+        assertEquals(List.of(DeviceBatchItemDto.Status.FOUND, DeviceBatchItemDto.Status.FOUND, DeviceBatchItemDto.Status.NOT_FOUND, DeviceBatchItemDto.Status.FOUND),
+                result.getResults().stream().map(DeviceBatchItemDto::getStatus).toList());
+        assertEquals(galaxy, result.getResults().get(0).getDevice());
+        assertNull(result.getResults().get(2).getDevice());
+        assertEquals(3, result.getFound());
+        assertEquals(1, result.getMissing());
+        assertEquals(pixel, cacheManager.getCache(CacheConfig.DEVICES_CACHE).get(1L, Device.class));
+        verify(deviceRepository, times(1)).findProjectedByIdIn(anyCollection());
+
+    }
+
+    @Test
+    void TestGetDevicesByIds_TooMany() {
+
+        List<Long> ids = LongStream.rangeClosed(1, 1001).boxed().toList();
+
+        assertThrows(InvalidQueryException.class, () -> deviceService.getDevicesByIds(ids));
+        verifyNoInteractions(deviceRepository);
+
+    }
+
     @Test
     void TestGetAllDevices() {
 
@@ -113,12 +218,13 @@ public class DeviceServiceImplTest {
         allDevices.add(deviceOne);
         allDevices.add(deviceTwo);
 
-        when(deviceRepository.findAll()).thenReturn(allDevices);
+        when(deviceRepository.findAllProjected()).thenReturn(allDevices);
 
         List<Device> devices = deviceService.getAllDevices();
 
         assertNotNull(devices);
         assertEquals(2, devices.size());
+        assertEquals(2.0, meterRegistry.get(DeviceMetrics.RESULT_SIZE).tag("method", "getAllDevices").summary().totalAmount());
 
 
     }
@@ -145,8 +251,9 @@ public class DeviceServiceImplTest {
                 .build();
 
 
-        when(deviceRepository.findById(1L)).thenReturn(Optional.of(device));
-        when(deviceRepository.save(any(Device.class))).thenReturn(device);
+        device.setName(updateDeviceDto.getName());
+        device.setBrand(updateDeviceDto.getBrand());
+        when(deviceRepository.updateChangedColumns(1L, "Iphone 16 Pro", "Apple", null)).thenReturn(Optional.of(new DeviceRepositoryCustom.Change(device, device)));
 
 
         Device updatedDevice = deviceService.updateDevice(1L, updateDeviceDto);
@@ -154,6 +261,8 @@ public class DeviceServiceImplTest {
         assertNotNull(updatedDevice);
         assertEquals(updateDeviceDto.getName(), updatedDevice.getName());
         assertEquals(updateDeviceDto.getBrand(), updatedDevice.getBrand());
+        verify(deviceRepository, never()).findProjectedById(anyLong());
+        verify(eventPublisher, times(1)).publishEvent(any(DeviceChangedEvent.class));
 
     }
 
@@ -178,15 +287,16 @@ public class DeviceServiceImplTest {
                 .build();
 
 
-        when(deviceRepository.findById(1L)).thenReturn(Optional.of(device));
-        when(deviceRepository.save(any(Device.class))).thenReturn(device);
+        device.setName(updateDeviceDto.getName());
+        when(deviceRepository.updateChangedColumns(1L, "Pixel 6", null, null)).thenReturn(Optional.of(new DeviceRepositoryCustom.Change(device, device)));
 
 
         Device updatedDevice = deviceService.updateDevice(1L, updateDeviceDto);
 
 
         assertEquals(updateDeviceDto.getName(), updatedDevice.getName());
-        verify(deviceRepository, times(1)).save(device);
+        verify(deviceRepository, times(1)).updateChangedColumns(1L, "Pixel 6", null, null);
+        verify(deviceRepository, never()).save(any(Device.class));
 
     }
 
@@ -211,14 +321,15 @@ public class DeviceServiceImplTest {
                 .build();
 
 
-        when(deviceRepository.findById(1L)).thenReturn(Optional.of(device));
-        when(deviceRepository.save(any(Device.class))).thenReturn(device);
+        device.setBrand(updateDeviceDto.getBrand());
+        when(deviceRepository.updateChangedColumns(1L, null, "Apple", null)).thenReturn(Optional.of(new DeviceRepositoryCustom.Change(device, device)));
 
 
         Device updatedDevice = deviceService.updateDevice(1L, updateDeviceDto);
 
         assertEquals(updateDeviceDto.getBrand(), updatedDevice.getBrand());
-        verify(deviceRepository, times(1)).save(device);
+        verify(deviceRepository, times(1)).updateChangedColumns(1L, null, "Apple", null);
+        verify(deviceRepository, never()).save(any(Device.class));
 
     }
 
@@ -231,9 +342,12 @@ public class DeviceServiceImplTest {
                 .brand("Apple")
                 .build();
 
-        when(deviceRepository.findById(1L)).thenReturn(Optional.empty());
+        when(deviceRepository.updateChangedColumns(1L, "Iphone 16 Pro Max", "Apple", null)).thenReturn(Optional.empty());
+        when(deviceRepository.findProjectedById(1L)).thenReturn(Optional.empty());
 
-        assertThrows(DeviceNotFoundException.class, () -> deviceService.updateDevice(1L, updateDeviceDto));
+        DeviceNotFoundException exception = assertThrows(DeviceNotFoundException.class, () -> deviceService.updateDevice(1L, updateDeviceDto));
+        assertEquals(0, exception.getStackTrace().length);
+        assertEquals("Device not found with Id: 1", exception.getMessage());
 
     }
 
@@ -259,22 +373,50 @@ public class DeviceServiceImplTest {
                 .build();
 
 
-        when(deviceRepository.findById(1L)).thenReturn(Optional.of(device));
+        when(deviceRepository.updateChangedColumns(1L, "Pixel 8 Pro", "Google", null)).thenReturn(Optional.empty());
+        when(deviceRepository.findProjectedById(1L)).thenReturn(Optional.of(device));
 
         Device updatedDevice = deviceService.updateDevice(1L, updateDeviceDto);
 
         assertEquals(device.getName(), updatedDevice.getName());
         assertEquals(device.getBrand(), updatedDevice.getBrand());
         verify(deviceRepository, never()).save(any(Device.class));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+
+    }
+
+
+    @Test
+    void TestUpdateDevice_VersionConflict() {
+
+        Device device = Device.builder()
+                .id(1L)
+                .name("Pixel 8 Pro")
+                .brand("Google")
+                .version(3L)
+                .build();
+
+        UpdateDeviceDto updateDeviceDto = UpdateDeviceDto.builder()
+                .name("Pixel 9")
+                .version(2L)
+                .build();
+
+        when(deviceRepository.updateChangedColumns(1L, "Pixel 9", null, 2L)).thenReturn(Optional.empty());
+        when(deviceRepository.findProjectedById(1L)).thenReturn(Optional.of(device));
+
+        assertThrows(DeviceVersionConflictException.class, () -> deviceService.updateDevice(1L, updateDeviceDto));
 
     }
 
 
     @Test
     void TestDeleteDevice() {
-        doNothing().when(deviceRepository).deleteById(1L);
+        Device device = Device.builder().id(1L).name("Pixel 8").brand("Google").build();
+        when(deviceRepository.deleteMatching(List.of(1L), null, 1)).thenReturn(List.of(device));
         deviceService.deleteDevice(1L);
-        verify(deviceRepository, times(1)).deleteById(1L);
+        verify(deviceRepository, never()).findProjectedById(anyLong());
+        verify(deviceChangeLog).append(argThat(events -> events.size() == 1 && events.get(0).getType() == DeviceChangedEvent.Type.DELETED));
+        verify(eventPublisher, times(1)).publishEvent(any(DeviceChangedEvent.class));
     }
 
 
@@ -309,7 +451,7 @@ public class DeviceServiceImplTest {
         allDevices.add(deviceOne);
         allDevices.add(deviceTwo);
 
-        when(deviceRepository.findByBrand("Samsung")).thenReturn(allDevices);
+        when(deviceRepository.findProjectedByBrand("Samsung")).thenReturn(allDevices);
 
         List<Device> existingDevices = deviceService.searchDeviceByBrand("Samsung");
 
@@ -318,5 +460,202 @@ public class DeviceServiceImplTest {
 
     }
 
+    @Test
+    void TestSearchDeviceByBrand_AnsweredFromLookupCache() {
+
+        Device device = Device.builder()
+                .id(1L)
+                .name("Galaxy S 24")
+                .brand("Samsung")
+                .creationTime(LocalDateTime.now())
+                .build();
+
+        when(deviceRepository.findProjectedByBrand("Samsung")).thenReturn(List.of(device));
+
+        deviceService.searchDeviceByBrand("Samsung");
+        List<Device> cachedDevices = deviceService.searchDeviceByBrand("Samsung");
+
+        assertEquals(List.of(device), cachedDevices);
+        verify(deviceRepository, times(1)).findProjectedByBrand("Samsung");
+
+    }
+
+    @Test
+    void TestReads_AnsweredFromLoadedDeviceStore() {
+
+        Device galaxy = Device.builder().id(1L).name("Galaxy S 24").brand("Samsung").creationTime(LocalDateTime.of(2024, 5, 1, 10, 0)).version(0L).build();
+        Device pixel = Device.builder().id(2L).name("Pixel 8").brand("Google").creationTime(LocalDateTime.of(2024, 5, 2, 10, 0)).version(0L).build();
+
+        deviceStore.startLoading();
+        deviceStore.load(List.of(galaxy, pixel));
+        deviceStore.finishLoading();
+
+        assertEquals(Optional.of(galaxy), deviceService.getDeviceById(1L));
+        assertEquals(List.of(galaxy, pixel), deviceService.getAllDevices());
+        assertEquals(List.of(pixel), deviceService.searchDeviceByBrand("Google"));
+        verifyNoInteractions(deviceRepository);
+
+    }
+
+    @Test
+    void TestGetDevicesVersion_NoneWhileStoreReplaysSnapshot() {
+
+        when(deviceChangeLog.version()).thenReturn(7L);
+        assertEquals(OptionalLong.of(7L), deviceService.getDevicesVersion());
+
+        doReturn(true).when(deviceStore).isLoaded();
+        doReturn(false).when(deviceStore).isComplete();
+        assertEquals(OptionalLong.empty(), deviceService.getDevicesVersion());
+
+        doReturn(true).when(deviceStore).isComplete();
+        assertEquals(OptionalLong.of(7L), deviceService.getDevicesVersion());
+
+    }
 
+
+    @Test
+    void TestGetDevicesPage_FollowsCursor() {
+
+        List<Device> firstRows = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            firstRows.add(Device.builder().id(id).name("Pixel " + id).brand("Google").build());
+        }
+
+        when(deviceRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(3))).thenReturn(firstRows);
+
+        DevicePageDto firstPage = deviceService.getDevicesPage(null, 2);
+
+        assertEquals(2, firstPage.getSize());
+        assertNotNull(firstPage.getNextCursor());
+
+        when(deviceRepository.findByIdGreaterThanOrderByIdAsc(2L, Limit.of(3))).thenReturn(firstRows.subList(2, 3));
+
+        DevicePageDto secondPage = deviceService.getDevicesPage(firstPage.getNextCursor(), 2);
+
+        assertEquals(1, secondPage.getSize());
+        assertEquals(3L, secondPage.getDevices().get(0).getId());
+        assertNull(secondPage.getNextCursor());
+
+    }
+
+    @Test
+    void TestGetDevicesPage_InvalidCursor() {
+
+        assertThrows(InvalidCursorException.class, () -> deviceService.getDevicesPage("not-a-cursor", 10));
+
+    }
+
+    @Test
+    void TestStreamAllDevices() {
+
+        Device deviceOne = Device.builder().id(1L).name("Pixel 8 Pro").brand("Google").build();
+        Device deviceTwo = Device.builder().id(2L).name("Galaxy S 24").brand("Samsung").build();
+
+        when(deviceRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(deviceOne, deviceTwo));
+
+        List<Device> streamed = new ArrayList<>();
+        deviceService.streamAllDevices(streamed::add);
+
+        assertEquals(List.of(deviceOne, deviceTwo), streamed);
+        verify(entityManager, times(1)).detach(deviceOne);
+        verify(entityManager, times(1)).detach(deviceTwo);
+
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void TestQueryDevices_SortsByIdLast() {
+
+        Device device = Device.builder().id(1L).name("Pixel 8").brand("Google").build();
+        PageRequest expected = PageRequest.of(2, DeviceServiceImpl.MAX_PAGE_SIZE, Sort.by(Sort.Direction.DESC, "creationTime").and(Sort.by("id")));
+        when(deviceRepository.findAll(any(Specification.class), eq(expected))).thenReturn(new PageImpl<>(List.of(device), expected, 2001));
+
+        Page<Device> devices = deviceService.queryDevices(DeviceQueryDto.builder().brands(List.of("Google")).build(),
+                PageRequest.of(2, 5000, Sort.by(Sort.Direction.DESC, "creationTime")));
+
+        assertEquals(List.of(device), devices.getContent());
+        assertEquals(2001, devices.getTotalElements());
+
+    }
+
+
+    @Test
+    void TestQueryDevices_InvalidSort() {
+
+        Pageable pageable = PageRequest.of(0, 10, Sort.by("colour"));
+
+        assertThrows(InvalidQueryException.class, () -> deviceService.queryDevices(DeviceQueryDto.builder().build(), pageable));
+        verifyNoInteractions(deviceRepository);
+
+    }
+
+
+    @Test
+    void TestSearchDevicesByText() {
+
+        Device ipadPro = Device.builder().id(1L).name("iPad Pro 11").brand("Apple").build();
+        Device ipad = Device.builder().id(2L).name("iPad Air").brand("Apple").build();
+        Device galaxy = Device.builder().id(3L).name("Galaxy Tab S9").brand("Samsung").build();
+        List.of(ipadPro, ipad, galaxy).forEach(device -> deviceSearchIndex.onDeviceChanged(DeviceChangedEvent.created(device)));
+
+        when(deviceRepository.findAllById(List.of(1L))).thenReturn(List.of(ipadPro));
+        when(deviceRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(ipad, ipadPro));
+
+        DeviceSearchPageDto page = deviceService.searchDevicesByText("ipad pro", 0, 10);
+
+        assertEquals(1, page.getTotal());
+        assertEquals(ipadPro, page.getHits().get(0).getDevice());
+
+        page = deviceService.searchDevicesByText("apple ipad", 0, 10);
+
+        assertEquals(2, page.getTotal());
+        assertEquals(List.of(ipadPro, ipad), page.getHits().stream().map(hit -> hit.getDevice()).toList());
+
+    }
+
+
+    @Test
+    void TestSearchDevicesByText_NoWords() {
+
+        assertThrows(InvalidQueryException.class, () -> deviceService.searchDevicesByText(" -- ", 0, 10));
+
+    }
+
+    @Test
+    void TestCountDevicesByBrand_ReadOnceThenKeptInMemory() {
+
+        when(deviceRepository.countDevicesByBrand()).thenReturn(List.of(new BrandCountDto("Apple", 2L)));
+
+        assertEquals(List.of(new BrandCountDto("Apple", 2L)), deviceService.countDevicesByBrand());
+
+        deviceCountsCache.onDeviceChanged(DeviceChangedEvent.created(Device.builder().id(3L).brand("Apple").build()));
+
+        assertEquals(List.of(new BrandCountDto("Apple", 3L)), deviceService.countDevicesByBrand());
+        verify(deviceRepository, times(1)).countDevicesByBrand();
+
+    }
+
+    @Test
+    void TestCountDevicesByCreationDay() {
+
+        LocalDate day = LocalDate.of(2024, 5, 1);
+        when(deviceRepository.countDevicesByCreationDay()).thenReturn(List.of(
+                new CreationDayCountDto(day, 1L),
+                new CreationDayCountDto(day.plusDays(1), 2L)));
+
+        assertEquals(List.of(new CreationDayCountDto(day.plusDays(1), 2L)), deviceService.countDevicesByCreationDay(day.plusDays(1), null));
+        assertEquals(List.of(new CreationDayCountDto(day, 1L)), deviceService.countDevicesByCreationDay(null, day.plusDays(1)));
+        verify(deviceRepository, times(1)).countDevicesByCreationDay();
+
+    }
+
+    @Test
+    void TestCountDevicesByCreationDay_InvalidRange() {
+
+        LocalDate day = LocalDate.of(2024, 5, 1);
+
+        assertThrows(InvalidQueryException.class, () -> deviceService.countDevicesByCreationDay(day, day.minusDays(1)));
+
+    }
 }
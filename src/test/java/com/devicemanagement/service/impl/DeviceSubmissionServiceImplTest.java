@@ -0,0 +1,212 @@
+package com.devicemanagement.service.impl;
+
+import com.devicemanagement.dto.CreateDeviceDto;
+import com.devicemanagement.dto.DeviceSubmissionDto;
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.exception.SubmissionQueueFullException;
+import com.devicemanagement.metrics.DeviceMetrics;
+import com.devicemanagement.service.DeviceBulkService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class DeviceSubmissionServiceImplTest {
+
+    @Mock
+    private DeviceBulkService deviceBulkService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CountDownLatch writing = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final List<Integer> batchSizes = new ArrayList<>();
+
+    private DeviceSubmissionServiceImpl deviceSubmissionService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        // the first write waits for the test, so the next submissions pile up in the queue meanwhile
+        AtomicLong sequence = new AtomicLong();
+        when(deviceBulkService.writeDevices(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            List<CreateDeviceDto> createDeviceDtos = invocation.getArgument(0);
+            synchronized (batchSizes) {
+                batchSizes.add(createDeviceDtos.size());
+            }
+            return createDeviceDtos.stream().map(dto -> Device.builder().id(sequence.incrementAndGet()).name(dto.getName()).build()).toList();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (deviceSubmissionService.isRunning()) {
+            deviceSubmissionService.stop();
+        }
+    }
+
+    private void start(int capacity) {
+        start(capacity, Duration.ofMinutes(1));
+    }
+
+    private void start(int capacity, Duration retention) {
+        deviceSubmissionService = new DeviceSubmissionServiceImpl(deviceBulkService, new DeviceMetrics(meterRegistry), capacity, 500, retention);
+        deviceSubmissionService.start();
+    }
+
+    private static CreateDeviceDto device(String name) {
+        return CreateDeviceDto.builder().name(name).brand("Google").build();
+    }
+
+    private DeviceSubmissionDto awaitDone(String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        DeviceSubmissionDto submission = deviceSubmissionService.getSubmission(id).orElseThrow();
+        while (submission.getStatus() == DeviceSubmissionDto.Status.QUEUED && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            submission = deviceSubmissionService.getSubmission(id).orElseThrow();
+        }
+        return submission;
+    }
+
+    @Test
+    void TestSubmitDevice_CoalescesQueuedDevices() throws Exception {
+
+        start(100);
+
+        DeviceSubmissionDto first = deviceSubmissionService.submitDevice(device("Pixel 1"));
+        assertEquals(DeviceSubmissionDto.Status.QUEUED, first.getStatus());
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        DeviceSubmissionDto second = deviceSubmissionService.submitDevice(device("Pixel 2"));
+        DeviceSubmissionDto third = deviceSubmissionService.submitDevice(device("Pixel 3"));
+        assertEquals(2.0, meterRegistry.get(DeviceMetrics.SUBMISSION_QUEUE_DEPTH).gauge().value());
+        release.countDown();
+
+        assertEquals(1L, awaitDone(first.getId()).getDeviceId());
+        assertEquals(DeviceSubmissionDto.Status.PERSISTED, awaitDone(third.getId()).getStatus());
+        assertEquals(3L, awaitDone(third.getId()).getDeviceId());
+        assertEquals(2L, awaitDone(second.getId()).getDeviceId());
+        assertEquals(List.of(1, 2), batchSizes);
+        assertEquals(3.0, meterRegistry.get(DeviceMetrics.SUBMISSIONS).tag("result", "persisted").counter().count());
+
+    }
+
+    @Test
+    void TestGetSubmission_QueuedOutlivesRetention() throws Exception {
+
+        start(10, Duration.ofMillis(1));
+
+        DeviceSubmissionDto first = deviceSubmissionService.submitDevice(device("Pixel 1"));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        DeviceSubmissionDto queued = deviceSubmissionService.submitDevice(device("Pixel 2"));
+        Thread.sleep(50);
+
+        assertEquals(DeviceSubmissionDto.Status.QUEUED, deviceSubmissionService.getSubmission(first.getId()).orElseThrow().getStatus());
+        assertEquals(DeviceSubmissionDto.Status.QUEUED, deviceSubmissionService.getSubmission(queued.getId()).orElseThrow().getStatus());
+        release.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (deviceSubmissionService.getSubmission(queued.getId()).isPresent() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(deviceSubmissionService.getSubmission(queued.getId()).isEmpty());
+
+    }
+
+    @Test
+    void TestSubmitDevice_QueueFull() throws Exception {
+
+        start(1);
+
+        deviceSubmissionService.submitDevice(device("Pixel 1"));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        deviceSubmissionService.submitDevice(device("Pixel 2"));
+
+        assertThrows(SubmissionQueueFullException.class, () -> deviceSubmissionService.submitDevice(device("Pixel 3")));
+
+    }
+
+    @Test
+    void TestSubmitDevice_WriteFailed() throws Exception {
+
+        reset(deviceBulkService);
+        when(deviceBulkService.writeDevices(anyList())).thenThrow(new IllegalStateException("DB down"));
+        start(10);
+
+        DeviceSubmissionDto submission = awaitDone(deviceSubmissionService.submitDevice(device("Pixel 1")).getId());
+
+        assertEquals(DeviceSubmissionDto.Status.FAILED, submission.getStatus());
+        assertEquals("DB down", submission.getError());
+        assertNull(submission.getDeviceId());
+
+    }
+
+    @Test
+    void TestSubmitDevice_BadDeviceFailsAlone() throws Exception {
+
+        reset(deviceBulkService);
+        AtomicLong sequence = new AtomicLong();
+        when(deviceBulkService.writeDevices(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            List<CreateDeviceDto> createDeviceDtos = invocation.getArgument(0);
+            if (createDeviceDtos.stream().anyMatch(dto -> dto.getName().equals("Bad"))) {
+                throw new IllegalStateException("Value too long for column NAME");
+            }
+            return createDeviceDtos.stream().map(dto -> Device.builder().id(sequence.incrementAndGet()).name(dto.getName()).build()).toList();
+        });
+        start(10);
+
+        deviceSubmissionService.submitDevice(device("Pixel 1"));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        DeviceSubmissionDto before = deviceSubmissionService.submitDevice(device("Pixel 2"));
+        DeviceSubmissionDto bad = deviceSubmissionService.submitDevice(device("Bad"));
+        DeviceSubmissionDto after = deviceSubmissionService.submitDevice(device("Pixel 3"));
+        release.countDown();
+
+        assertEquals(DeviceSubmissionDto.Status.FAILED, awaitDone(bad.getId()).getStatus());
+        assertEquals("Value too long for column NAME", awaitDone(bad.getId()).getError());
+        assertEquals(DeviceSubmissionDto.Status.PERSISTED, awaitDone(before.getId()).getStatus());
+        assertEquals(DeviceSubmissionDto.Status.PERSISTED, awaitDone(after.getId()).getStatus());
+        assertEquals(3.0, meterRegistry.get(DeviceMetrics.SUBMISSIONS).tag("result", "persisted").counter().count());
+        assertEquals(1.0, meterRegistry.get(DeviceMetrics.SUBMISSIONS).tag("result", "failed").counter().count());
+
+    }
+
+    @Test
+    void TestStop_WritesQueuedDevices() throws Exception {
+
+        start(10);
+
+        deviceSubmissionService.submitDevice(device("Pixel 1"));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        DeviceSubmissionDto queued = deviceSubmissionService.submitDevice(device("Pixel 2"));
+
+        release.countDown();
+        deviceSubmissionService.stop();
+
+        assertEquals(DeviceSubmissionDto.Status.PERSISTED, deviceSubmissionService.getSubmission(queued.getId()).orElseThrow().getStatus());
+        assertThrows(SubmissionQueueFullException.class, () -> deviceSubmissionService.submitDevice(device("Pixel 3")));
+
+    }
+
+}
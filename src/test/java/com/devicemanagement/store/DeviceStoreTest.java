@@ -0,0 +1,229 @@
+package com.devicemanagement.store;
+
+import com.devicemanagement.entity.Device;
+import com.devicemanagement.event.DeviceChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeviceStoreTest {
+
+    @TempDir
+    private Path directory;
+
+    private DeviceStore deviceStore;
+
+    private Device ipad;
+
+    private Device iphone;
+
+    private Device galaxy;
+
+    @BeforeEach
+    void setUp() {
+        deviceStore = new DeviceStore();
+        ipad = Device.builder().id(1L).name("iPad Pro").brand("Apple")
+                .creationTime(LocalDateTime.of(2024, 1, 2, 3, 4, 5, 123_456_000))
+                .lastModified(LocalDateTime.of(2024, 2, 3, 4, 5, 6, 654_321_000))
+                .version(3L)
+                .build();
+        iphone = Device.builder().id(2L).name("iPhone 15").brand("Apple").build();
+        galaxy = Device.builder().id(3L).name("Galaxy S24").brand("Samsung").version(0L).build();
+        List.of(ipad, iphone, galaxy).forEach(device -> deviceStore.onDeviceChanged(DeviceChangedEvent.created(device)));
+    }
+
+    @Test
+    void TestFindById_KeepsEveryColumn() {
+
+        assertEquals(ipad, deviceStore.findById(1L).orElseThrow());
+        assertEquals(iphone, deviceStore.findById(2L).orElseThrow());
+        assertTrue(deviceStore.findById(4L).isEmpty());
+        assertNotSame(ipad, deviceStore.findById(1L).orElseThrow());
+
+    }
+
+    @Test
+    void TestFindById_ZeroAndNegativeIdsAreNotFound() {
+
+        assertTrue(deviceStore.findById(0L).isEmpty());
+        assertTrue(deviceStore.findById(-1L).isEmpty());
+
+        deviceStore.onDeviceChanged(DeviceChangedEvent.deleted(Device.builder().id(0L).build()));
+
+        assertEquals(3, deviceStore.size());
+        assertEquals(List.of(ipad, iphone, galaxy), deviceStore.findAll());
+
+    }
+
+    @Test
+    void TestFindByBrand() {
+
+        assertEquals(List.of(ipad, iphone), deviceStore.findByBrand("Apple"));
+        assertEquals(List.of(galaxy), deviceStore.findByBrand("Samsung"));
+        assertTrue(deviceStore.findByBrand("Google").isEmpty());
+        assertTrue(deviceStore.findByBrand(null).isEmpty());
+
+    }
+
+    @Test
+    void TestOnDeviceChanged_UpdatesAndDeletes() {
+
+        Device rebranded = Device.builder().id(2L).name("iPhone 15").brand("Foxconn").version(1L).build();
+        deviceStore.onDeviceChanged(DeviceChangedEvent.updated(iphone, rebranded));
+        deviceStore.onDeviceChanged(DeviceChangedEvent.deleted(galaxy));
+
+        assertEquals(List.of(ipad), deviceStore.findByBrand("Apple"));
+        assertEquals(List.of(rebranded), deviceStore.findByBrand("Foxconn"));
+        assertTrue(deviceStore.findById(3L).isEmpty());
+        assertEquals(List.of(ipad, rebranded), deviceStore.findAll());
+        assertEquals(2, deviceStore.size());
+
+    }
+
+    @Test
+    void TestFindAll_InIdOrderAfterOutOfOrderAdds() {
+
+        Device pixel = Device.builder().id(10L).name("Pixel 8").brand("Google").build();
+        Device watch = Device.builder().id(5L).name("Pixel Watch").brand("Google").build();
+        deviceStore.onDeviceChanged(DeviceChangedEvent.created(pixel));
+        deviceStore.onDeviceChanged(DeviceChangedEvent.created(watch));
+
+        assertEquals(List.of(ipad, iphone, galaxy, watch, pixel), deviceStore.findAll());
+        assertEquals(List.of(watch, pixel), deviceStore.findByBrand("Google"));
+        assertEquals(watch, deviceStore.findById(5L).orElseThrow());
+
+    }
+
+    @Test
+    void TestLoad_SkipsDevicesChangedWhileLoading() {
+
+        deviceStore = new DeviceStore();
+        deviceStore.startLoading();
+
+        Device renamed = Device.builder().id(2L).name("iPhone 15 Pro").brand("Apple").build();
+        deviceStore.onDeviceChanged(DeviceChangedEvent.updated(iphone, renamed));
+        deviceStore.onDeviceChanged(DeviceChangedEvent.deleted(galaxy));
+        deviceStore.load(List.of(ipad, iphone, galaxy));
+
+        assertFalse(deviceStore.isLoaded());
+        deviceStore.finishLoading();
+
+        assertTrue(deviceStore.isLoaded());
+        assertEquals(List.of(ipad, renamed), deviceStore.findAll());
+
+    }
+
+    @Test
+    void TestOnDeviceChanged_MatchesMap() {
+
+        Random random = new Random(11);
+        String[] brands = {"Apple", "Samsung", "Google", null};
+        TreeMap<Long, Device> expected = new TreeMap<>();
+        deviceStore = new DeviceStore();
+
+        for (int i = 0; i < 20_000; i++) {
+            long id = 1 + random.nextInt(5_000);
+            Device previous = expected.get(id);
+            if (previous != null && random.nextInt(3) == 0) {
+                deviceStore.onDeviceChanged(DeviceChangedEvent.deleted(previous));
+                expected.remove(id);
+            } else {
+                Device device = Device.builder().id(id).name("Device " + i).brand(brands[random.nextInt(brands.length)])
+                        .creationTime(LocalDateTime.of(2024, 1, 1, 0, 0).plusNanos(random.nextInt(1_000_000) * 1_000L))
+                        .version((long) i)
+                        .build();
+                deviceStore.onDeviceChanged(previous == null ? DeviceChangedEvent.created(device) : DeviceChangedEvent.updated(previous, device));
+                expected.put(id, device);
+            }
+            if (i % 2_000 == 0) {
+                assertEquals(new ArrayList<>(expected.values()), deviceStore.findAll());
+            }
+        }
+
+        assertEquals(new ArrayList<>(expected.values()), deviceStore.findAll());
+        assertEquals(expected.values().stream().filter(device -> "Google".equals(device.getBrand())).toList(), deviceStore.findByBrand("Google"));
+        for (long id = 1; id <= 5_000; id++) {
+            assertEquals(expected.get(id), deviceStore.findById(id).orElse(null));
+        }
+
+    }
+
+    @Test
+    void TestWriteSnapshot_RestoresEveryDevice() throws IOException {
+
+        Path file = directory.resolve("devices.snapshot");
+        Device pixel = Device.builder().id(6L).name("Pixel 8").brand("Google").build();
+        Device unnamed = Device.builder().id(4L).brand("Samsung").build();
+        deviceStore.onDeviceChanged(DeviceChangedEvent.created(pixel));
+        deviceStore.onDeviceChanged(DeviceChangedEvent.created(unnamed));
+
+        assertFalse(deviceStore.writeSnapshot(file, 7L));
+        deviceStore.finishLoading();
+        assertTrue(deviceStore.writeSnapshot(file, 7L));
+
+        DeviceSnapshot snapshot = DeviceSnapshot.map(file);
+        DeviceStore restored = new DeviceStore();
+        restored.restore(snapshot);
+
+        assertEquals(7L, snapshot.changeOffset());
+        assertTrue(restored.isLoaded());
+        assertFalse(restored.isComplete());
+        assertEquals(List.of(ipad, iphone, galaxy, unnamed, pixel), restored.findAll());
+        assertEquals(List.of(galaxy, unnamed), restored.findByBrand("Samsung"));
+        assertEquals(ipad, restored.findById(1L).orElseThrow());
+        assertTrue(restored.findById(5L).isEmpty());
+        assertThrows(IllegalStateException.class, () -> restored.restore(snapshot));
+
+    }
+
+    @Test
+    void TestReplay_ShadowsSnapshotRows() throws IOException {
+
+        Path file = directory.resolve("devices.snapshot");
+        deviceStore.finishLoading();
+        deviceStore.writeSnapshot(file, 7L);
+
+        DeviceStore restored = new DeviceStore();
+        restored.restore(DeviceSnapshot.map(file));
+
+        Device renamedLive = Device.builder().id(1L).name("iPad Pro 13").brand("Apple").version(4L).build();
+        Device renamedInFeed = Device.builder().id(1L).name("iPad Pro 12").brand("Apple").version(4L).build();
+        Device rebranded = Device.builder().id(2L).name("iPhone 15").brand("Foxconn").version(1L).build();
+        Device pixel = Device.builder().id(9L).name("Pixel 8").brand("Google").build();
+
+        restored.onDeviceChanged(DeviceChangedEvent.updated(ipad, renamedLive));
+        restored.replay(List.of(
+                DeviceChangedEvent.updated(null, renamedInFeed),
+                DeviceChangedEvent.updated(null, rebranded),
+                DeviceChangedEvent.deleted(galaxy),
+                DeviceChangedEvent.created(pixel)));
+        assertFalse(restored.isComplete());
+        restored.finishLoading();
+        assertTrue(restored.isComplete());
+
+        assertEquals(List.of(renamedLive, rebranded, pixel), restored.findAll());
+        assertEquals(3, restored.size());
+        assertTrue(restored.findById(3L).isEmpty());
+        assertEquals(List.of(renamedLive), restored.findByBrand("Apple"));
+        assertEquals(List.of(rebranded), restored.findByBrand("Foxconn"));
+
+        // a snapshot of a restored store merges its snapshot rows with the changed ones
+        Path next = directory.resolve("next.snapshot");
+        assertTrue(restored.writeSnapshot(next, 9L));
+        DeviceStore restoredAgain = new DeviceStore();
+        restoredAgain.restore(DeviceSnapshot.map(next));
+        assertEquals(List.of(renamedLive, rebranded, pixel), restoredAgain.findAll());
+
+    }
+
+}